@@ -60,6 +60,14 @@ public class Data {
         this.mimeType = mimeType;
     }
 
+    /**
+     * Returns the mimeType of the data.
+     * @return The mimeType of the data.
+     */
+    public String getMimeType(){
+        return mimeType;
+    }
+
     /**
      * Sets the data content.
      * @param content The data content.
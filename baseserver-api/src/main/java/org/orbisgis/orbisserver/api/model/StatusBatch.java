@@ -0,0 +1,86 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.api.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Response to a bulk status request, containing the status of the jobs which have changed since the version given in
+ * the request.
+ *
+ * The version is the one of the job states in the service once the request is done, and should be given in the next
+ * request to only get the next changes. A version of 0 means that the service does not track the changes of its jobs,
+ * so the status of all the requested jobs is returned.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class StatusBatch {
+
+    /** Version of the job states of the service. */
+    private final long version;
+    /** Status of the changed jobs. */
+    private final List<StatusInfo> statusInfoList;
+
+    /**
+     * Main constructor.
+     * @param version Version of the job states of the service.
+     * @param statusInfoList Status of the changed jobs.
+     */
+    public StatusBatch(long version, List<StatusInfo> statusInfoList){
+        this.version = version;
+        this.statusInfoList = Collections.unmodifiableList(statusInfoList);
+    }
+
+    /**
+     * Returns the version of the job states of the service.
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the status of the jobs which have changed since the requested version.
+     * @return The unmodifiable list of the StatusInfo.
+     */
+    public List<StatusInfo> getStatusInfoList() {
+        return statusInfoList;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.api.service;
+
+import org.orbisgis.orbisserver.api.model.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service which can be called without blocking the calling thread. The job calls return a CompletableFuture completed
+ * once the service has answered, so the server threads are not held while the service is working.
+ *
+ * The synchronous services can be called the same way through a SyncServiceAdapter.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public interface AsyncService extends Service {
+
+    /**
+     * Execute an operation with the given data.
+     *
+     * @param request Request containing all the data for the execution.
+     *
+     * @return A future completed with the statusInfo object containing all the information about the execution, or
+     * with null if the operation can not be executed.
+     */
+    CompletableFuture<StatusInfo> executeOperationAsync(ExecuteRequest request);
+
+    /**
+     * Gets the status of an execution.
+     *
+     * @param request Request containing the identifier of an execution.
+     *
+     * @return A future completed with the statusInfo object containing all the information about the execution, or
+     * with null if the status can not be requested.
+     */
+    CompletableFuture<StatusInfo> getStatusAsync(StatusRequest request);
+
+    /**
+     * Gets the status of several executions in one call. Only the status of the executions which have changed since
+     * the given version are returned.
+     *
+     * @param requestList Requests containing the identifiers of the executions.
+     * @param sinceVersion Version returned by the previous call, 0 to get the status of all the executions.
+     *
+     * @return A future completed with the StatusBatch object containing the changed statusInfo and the new version.
+     */
+    CompletableFuture<StatusBatch> getStatusAsync(List<StatusRequest> requestList, long sinceVersion);
+
+    /**
+     * Returns the result according to the data contained in the StatusRequest.
+     *
+     * @param request Object containing all the data to get the result.
+     *
+     * @return A future completed with the Result object containing the results, or with null if the result can not
+     * be retrieved.
+     */
+    CompletableFuture<Result> getResultAsync(StatusRequest request);
+
+    /**
+     * Dismisses an execution : the execution is cancelled if it is still running and its partial outputs are removed.
+     *
+     * @param request Request containing the identifier of the execution.
+     *
+     * @return A future completed once the execution is stopped with the statusInfo object containing the status of
+     * the dismissed execution, or with null if the execution can not be dismissed.
+     */
+    CompletableFuture<StatusInfo> dismissAsync(StatusRequest request);
+}
@@ -0,0 +1,174 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.api.service;
+
+import org.orbisgis.orbisserver.api.model.Operation;
+
+import java.util.*;
+
+/**
+ * Immutable catalog of the operations offered by a service, indexed by identifier, keyword and title.
+ *
+ * A catalog is built once by the service factory and shared by all the sessions. Its version only changes when the
+ * operations offered by the service change, so it can be used to detect if a cached view of the catalog is outdated.
+ * The keyword and title lookups are case insensitive.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public final class OperationCatalog {
+
+    /** Empty catalog. */
+    public static final OperationCatalog EMPTY = new OperationCatalog(0, Collections.<Operation>emptyList());
+
+    /** Version of the catalog. */
+    private final long version;
+    /** Operations in their declaration order. */
+    private final List<Operation> operationList;
+    /** Operations with their identifier as key. */
+    private final Map<String, Operation> operationsById;
+    /** Operations with their lower case keywords as key. */
+    private final Map<String, List<Operation>> operationsByKeyword;
+    /** Operations with their lower case title as key. */
+    private final Map<String, List<Operation>> operationsByTitle;
+
+    /**
+     * Main constructor.
+     * @param version Version of the catalog.
+     * @param operations Operations of the catalog.
+     */
+    public OperationCatalog(long version, Collection<Operation> operations){
+        this.version = version;
+        this.operationList = Collections.unmodifiableList(new ArrayList<>(operations));
+        Map<String, Operation> byId = new HashMap<>();
+        Map<String, List<Operation>> byKeyword = new TreeMap<>();
+        Map<String, List<Operation>> byTitle = new HashMap<>();
+        for(Operation operation : operationList){
+            byId.put(operation.getId(), operation);
+            if(operation.getTitle() != null) {
+                index(byTitle, operation.getTitle().toLowerCase(Locale.ROOT), operation);
+            }
+            for(String keyword : operation.getKeyWord()){
+                index(byKeyword, keyword.toLowerCase(Locale.ROOT), operation);
+            }
+        }
+        this.operationsById = Collections.unmodifiableMap(byId);
+        this.operationsByKeyword = freeze(byKeyword);
+        this.operationsByTitle = freeze(byTitle);
+    }
+
+    private static void index(Map<String, List<Operation>> map, String key, Operation operation){
+        List<Operation> list = map.get(key);
+        if(list == null){
+            list = new ArrayList<>();
+            map.put(key, list);
+        }
+        if(!list.contains(operation)) {
+            list.add(operation);
+        }
+    }
+
+    private static Map<String, List<Operation>> freeze(Map<String, List<Operation>> map){
+        for(Map.Entry<String, List<Operation>> entry : map.entrySet()){
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the version of the catalog.
+     * @return The catalog version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns all the operations in their declaration order.
+     * @return The unmodifiable list of the operations.
+     */
+    public List<Operation> getOperations() {
+        return operationList;
+    }
+
+    /**
+     * Returns true if the catalog contains an operation with the given identifier.
+     * @param id Identifier of the operation.
+     * @return True if the operation exists, false otherwise.
+     */
+    public boolean hasOperation(String id) {
+        return operationsById.containsKey(id);
+    }
+
+    /**
+     * Returns the operation with the given identifier.
+     * @param id Identifier of the operation.
+     * @return The operation, or null if there is no operation with this identifier.
+     */
+    public Operation getOperation(String id) {
+        return operationsById.get(id);
+    }
+
+    /**
+     * Returns the operations with the given keyword.
+     * @param keyword Keyword of the operations.
+     * @return The unmodifiable list of the operations, empty if there is none.
+     */
+    public List<Operation> getOperationsByKeyword(String keyword) {
+        List<Operation> list = operationsByKeyword.get(keyword.toLowerCase(Locale.ROOT));
+        return list != null ? list : Collections.<Operation>emptyList();
+    }
+
+    /**
+     * Returns the operations with the given title.
+     * @param title Title of the operations.
+     * @return The unmodifiable list of the operations, empty if there is none.
+     */
+    public List<Operation> getOperationsByTitle(String title) {
+        List<Operation> list = operationsByTitle.get(title.toLowerCase(Locale.ROOT));
+        return list != null ? list : Collections.<Operation>emptyList();
+    }
+
+    /**
+     * Returns all the keywords of the catalog in lower case, sorted.
+     * @return The unmodifiable set of the keywords.
+     */
+    public Set<String> getKeywords() {
+        return operationsByKeyword.keySet();
+    }
+}
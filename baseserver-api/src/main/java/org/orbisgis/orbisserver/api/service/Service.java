@@ -40,6 +40,7 @@ package org.orbisgis.orbisserver.api.service;
 
 import org.orbisgis.orbisserver.api.model.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -81,6 +82,27 @@ public interface Service {
      */
     StatusInfo getStatus(StatusRequest request);
 
+    /**
+     * Gets the status of several executions in one call. Only the status of the executions which have changed since
+     * the given version are returned. The default implementation requests the status of each execution and returns
+     * them all with the version 0, the services able to track the changes of their jobs should override it.
+     *
+     * @param requestList Requests containing the identifiers of the executions.
+     * @param sinceVersion Version returned by the previous call, 0 to get the status of all the executions.
+     *
+     * @return A StatusBatch object containing the changed statusInfo and the new version.
+     */
+    default StatusBatch getStatus(List<StatusRequest> requestList, long sinceVersion) {
+        List<StatusInfo> statusInfoList = new ArrayList<>();
+        for(StatusRequest request : requestList){
+            StatusInfo statusInfo = getStatus(request);
+            if(statusInfo != null){
+                statusInfoList.add(statusInfo);
+            }
+        }
+        return new StatusBatch(0, statusInfoList);
+    }
+
     /**
      * Returns the result according to the data contained in the StatusRequest.
      *
@@ -90,6 +112,19 @@ public interface Service {
      */
     Result getResult(StatusRequest request);
 
+    /**
+     * Dismisses an execution : the execution is cancelled if it is still running and its partial outputs are removed.
+     * The default implementation does not support the dismissal and returns null.
+     *
+     * @param request Request containing the identifier of the execution.
+     *
+     * @return A statusInfo object containing the status of the dismissed execution, null if the execution can not be
+     * dismissed.
+     */
+    default StatusInfo dismiss(StatusRequest request) {
+        return null;
+    }
+
     /**
      * Returns all the operation available throw the Service.
      *
@@ -114,4 +149,14 @@ public interface Service {
      * @return An Operation object if it is found, null otherwise.
      */
     Operation getOperation(String id);
+
+    /**
+     * Returns the catalog of the available operations. The default implementation builds a new catalog from
+     * getAllOperation(), the services sharing a catalog should return it instead.
+     *
+     * @return The catalog of the operations.
+     */
+    default OperationCatalog getOperationCatalog() {
+        return new OperationCatalog(0, getAllOperation());
+    }
 }
@@ -65,4 +65,13 @@ public interface ServiceFactory {
      * @return The class object of the instantiated Service.
      */
     Class getServiceClass();
+
+    /**
+     * Returns the catalog of the operations offered by the services of the factory. The catalog is shared by all the
+     * services created by the factory, so it can be read without starting a service.
+     * @return The operation catalog, or null if the operations depend on the service instance.
+     */
+    default OperationCatalog getOperationCatalog() {
+        return null;
+    }
 }
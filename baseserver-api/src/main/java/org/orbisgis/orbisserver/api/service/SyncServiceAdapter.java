@@ -0,0 +1,171 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.api.service;
+
+import org.orbisgis.orbisserver.api.model.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapter giving the AsyncService interface to a synchronous service. The calls of the wrapped service are run by the
+ * given executor, so they do not block the calling thread.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SyncServiceAdapter implements AsyncService {
+
+    /** Wrapped synchronous service. */
+    private final Service service;
+    /** Executor running the calls of the wrapped service. */
+    private final Executor executor;
+
+    /**
+     * Main constructor.
+     * @param service Wrapped synchronous service.
+     * @param executor Executor running the calls of the wrapped service.
+     */
+    public SyncServiceAdapter(Service service, Executor executor){
+        this.service = service;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the given service as an AsyncService, wrapping it in an adapter if it is not already asynchronous.
+     * @param service Service to adapt.
+     * @param executor Executor running the calls of the service if it is synchronous.
+     * @return The asynchronous service.
+     */
+    public static AsyncService adapt(Service service, Executor executor){
+        if(service instanceof AsyncService){
+            return (AsyncService) service;
+        }
+        return new SyncServiceAdapter(service, executor);
+    }
+
+    /**
+     * Returns the wrapped service.
+     * @return The synchronous service.
+     */
+    public Service getService(){
+        return service;
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> executeOperationAsync(ExecuteRequest request) {
+        return CompletableFuture.supplyAsync(() -> service.executeOperation(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> getStatusAsync(StatusRequest request) {
+        return CompletableFuture.supplyAsync(() -> service.getStatus(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<StatusBatch> getStatusAsync(List<StatusRequest> requestList, long sinceVersion) {
+        return CompletableFuture.supplyAsync(() -> service.getStatus(requestList, sinceVersion), executor);
+    }
+
+    @Override
+    public CompletableFuture<Result> getResultAsync(StatusRequest request) {
+        return CompletableFuture.supplyAsync(() -> service.getResult(request), executor);
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> dismissAsync(StatusRequest request) {
+        return CompletableFuture.supplyAsync(() -> service.dismiss(request), executor);
+    }
+
+    @Override
+    public void start(Map<String, Object> propertyMap) {
+        service.start(propertyMap);
+    }
+
+    @Override
+    public void shutdown() {
+        service.shutdown();
+    }
+
+    @Override
+    public StatusInfo executeOperation(ExecuteRequest request) {
+        return service.executeOperation(request);
+    }
+
+    @Override
+    public StatusInfo getStatus(StatusRequest request) {
+        return service.getStatus(request);
+    }
+
+    @Override
+    public StatusBatch getStatus(List<StatusRequest> requestList, long sinceVersion) {
+        return service.getStatus(requestList, sinceVersion);
+    }
+
+    @Override
+    public Result getResult(StatusRequest request) {
+        return service.getResult(request);
+    }
+
+    @Override
+    public StatusInfo dismiss(StatusRequest request) {
+        return service.dismiss(request);
+    }
+
+    @Override
+    public List<Operation> getAllOperation() {
+        return service.getAllOperation();
+    }
+
+    @Override
+    public boolean hasOperation(String id) {
+        return service.hasOperation(id);
+    }
+
+    @Override
+    public Operation getOperation(String id) {
+        return service.getOperation(id);
+    }
+
+    @Override
+    public OperationCatalog getOperationCatalog() {
+        return service.getOperationCatalog();
+    }
+}
@@ -40,28 +40,49 @@ package org.orbisgis.orbisserver.baseserver;
 
 import org.apache.felix.ipojo.annotations.Component;
 import org.apache.felix.ipojo.annotations.Instantiate;
+import org.apache.felix.ipojo.annotations.Invalidate;
 import org.apache.felix.ipojo.annotations.Provides;
 import org.apache.felix.ipojo.annotations.Requires;
 import org.orbisgis.orbisserver.api.BaseServer;
 import org.orbisgis.orbisserver.api.service.ServiceFactory;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.orbisgis.orbisserver.baseserver.model.JobListener;
 import org.orbisgis.orbisserver.baseserver.model.Session;
+import org.orbisgis.orbisserver.baseserver.model.User;
+import org.orbisgis.orbisserver.baseserver.utils.AdmissionController;
+import org.orbisgis.orbisserver.baseserver.utils.ConnectionPool;
+import org.orbisgis.orbisserver.baseserver.utils.FragmentCache;
+import org.orbisgis.orbisserver.baseserver.utils.JobScheduler;
+import org.orbisgis.orbisserver.baseserver.utils.OperationRouter;
+import org.orbisgis.orbisserver.baseserver.utils.OperationSearchIndex;
+import org.orbisgis.orbisserver.baseserver.utils.PendingCalls;
+import org.orbisgis.orbisserver.baseserver.utils.SessionInitMetrics;
 import org.orbisgis.orbisserver.baseserver.utils.SessionInitializer;
+import org.orbisgis.orbisserver.baseserver.utils.SessionPool;
+import org.orbisgis.orbisserver.baseserver.utils.SessionRegistry;
+import org.orbisgis.orbisserver.baseserver.utils.StatusRefresher;
+import org.orbisgis.orbisserver.baseserver.utils.TimerWheel;
+import org.orbisgis.orbisserver.baseserver.utils.UserDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wisdom.api.DefaultController;
 import org.wisdom.api.annotations.Controller;
 import org.wisdom.api.concurrent.ManagedExecutorService;
+import org.wisdom.api.configuration.ApplicationConfiguration;
+import org.wisdom.api.http.Renderable;
+import org.wisdom.api.http.Result;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -78,10 +99,41 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
     /** Logger of the class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(BaseServerImpl.class);
 
-    /** Cache list of the opened sessions. */
-    private List<Session> openSessionList;
-    /** Cache list of the alive session. */
-    private List<Session> aliveSessionList;
+    /** Maximum number of connections to the administration database. */
+    private static final int ADMIN_POOL_SIZE = 8;
+    /** Maximum time to wait for an administration database connection in milliseconds. */
+    private static final long ADMIN_POOL_WAIT_MILLIS = 5000;
+    /** Time after which a borrowed administration database connection is reported as leaked in milliseconds. */
+    private static final long ADMIN_POOL_LEAK_MILLIS = 30000;
+    /** Configuration key of the number of pre-initialized sessions. */
+    private static final String SESSION_POOL_SIZE_KEY = "orbisserver.session.pool.size";
+    /** Default number of pre-initialized sessions. */
+    private static final int DEFAULT_SESSION_POOL_SIZE = 2;
+    /** Configuration key of the number of threads running the session jobs. */
+    private static final String SCHEDULER_THREADS_KEY = "orbisserver.scheduler.threads";
+    /** Configuration key of the time after which an unused service of a session is stopped. */
+    private static final String SERVICE_IDLE_MILLIS_KEY = "orbisserver.service.idle.millis";
+    /** Configuration key of the idle time before the hibernation of a session. */
+    private static final String SESSION_HIBERNATION_MILLIS_KEY = "orbisserver.session.hibernation.millis";
+    /** Duration of a tick of the timer wheel in milliseconds. */
+    private static final long TIMER_TICK_MILLIS = 100;
+    /** Number of buckets of the timer wheel. */
+    private static final int TIMER_WHEEL_SIZE = 512;
+    /** Configuration key of the maximum number of cached views. */
+    private static final String FRAGMENT_CACHE_SIZE_KEY = "orbisserver.fragment.cache.size";
+    /** Default maximum number of cached views. */
+    private static final int DEFAULT_FRAGMENT_CACHE_SIZE = 256;
+    /** Configuration key of the maximum number of jobs of the server queued or running. */
+    private static final String ADMISSION_MAX_JOBS_KEY = "orbisserver.admission.max.jobs";
+    /** Default maximum number of jobs of the server queued or running. */
+    private static final int DEFAULT_ADMISSION_MAX_JOBS = 1000;
+    /** Maximum time to wait for the end of a call answered later to the client in milliseconds. */
+    private static final long PENDING_CALL_TIMEOUT_MILLIS = 60000;
+    /** Time a finished call is kept until its client takes the response in milliseconds. */
+    private static final long PENDING_CALL_RETENTION_MILLIS = 60000;
+
+    /** Registry of the opened and alive sessions. */
+    private SessionRegistry sessionRegistry;
 
     /** List of the service factory registered. */
     private List<ServiceFactory> serviceFactoryList;
@@ -93,18 +145,82 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
     /** Administration database. */
     @Requires DataSource ds;
 
+    /** Application configuration. */
+    @Requires ApplicationConfiguration configuration;
+
+    /** Pool of connections to the administration database. */
+    private ConnectionPool connectionPool;
+
+    /** Directory of the users registered in the administration database. */
+    private UserDirectory userDirectory;
+
+    /** Latency metrics of the session initializations. */
+    private SessionInitMetrics sessionInitMetrics;
+
+    /** Pool of pre-initialized sessions waiting for a user. */
+    private SessionPool sessionPool;
+
+    /** Scheduler running the jobs of all the sessions. */
+    private JobScheduler jobScheduler;
+
+    /** Timer wheel running the result expirations and the inactivity timeouts of all the sessions. */
+    private TimerWheel timerWheel;
+
+    /** Search indexes of the operation catalogs shared by the sessions, with the service class as key. */
+    private Map<Class, OperationSearchIndex> searchIndexMap;
+
+    /** Refreshers of the status of the running jobs, with the service class as key. */
+    private Map<Class, StatusRefresher> statusRefresherMap;
+
+    /** Listeners of the job changes of the sessions. */
+    private List<JobListener> jobListenerList;
+
+    /** Routing table giving the service owning each operation. */
+    private OperationRouter operationRouter;
+
+    /** Cache of the rendered views depending only on the operation catalogs. */
+    private FragmentCache<Renderable<?>> fragmentCache;
+
+    /** Admission control of the job submissions of all the sessions. */
+    private AdmissionController admissionController;
+
+    /** Calls of the web routes answered later to the clients. */
+    private PendingCalls<Result> pendingCalls;
+
     /**
      * Main Constructor. It initiate the administration database.
      */
     public BaseServerImpl(){
-        openSessionList = new ArrayList<>();
-        aliveSessionList = new ArrayList<>();
-        serviceFactoryList = new ArrayList<>();
+        sessionRegistry = new SessionRegistry();
+        serviceFactoryList = new CopyOnWriteArrayList<>();
+        searchIndexMap = new ConcurrentHashMap<>();
+        operationRouter = new OperationRouter();
+        jobListenerList = new CopyOnWriteArrayList<>();
+        statusRefresherMap = new ConcurrentHashMap<>();
+        admissionController = new AdmissionController(
+                configuration.getIntegerWithDefault(ADMISSION_MAX_JOBS_KEY, DEFAULT_ADMISSION_MAX_JOBS));
+        fragmentCache = new FragmentCache<>(
+                configuration.getIntegerWithDefault(FRAGMENT_CACHE_SIZE_KEY, DEFAULT_FRAGMENT_CACHE_SIZE));
+        connectionPool = new ConnectionPool("admin", ds, ADMIN_POOL_SIZE, ADMIN_POOL_WAIT_MILLIS,
+                ADMIN_POOL_LEAK_MILLIS);
+        connectionPool.registerMBean();
+        sessionInitMetrics = new SessionInitMetrics();
+        sessionInitMetrics.registerMBean();
+        jobScheduler = new JobScheduler(configuration.getIntegerWithDefault(SCHEDULER_THREADS_KEY,
+                Runtime.getRuntime().availableProcessors()));
+        jobScheduler.registerMBean();
+        timerWheel = new TimerWheel(TIMER_TICK_MILLIS, TIMER_WHEEL_SIZE, executor);
+        timerWheel.registerMBean();
+        connectionPool.startLeakCheck(timerWheel);
+        pendingCalls = new PendingCalls<>(timerWheel, PENDING_CALL_TIMEOUT_MILLIS, PENDING_CALL_RETENTION_MILLIS);
+        sessionPool = new SessionPool(
+                configuration.getIntegerWithDefault(SESSION_POOL_SIZE_KEY, DEFAULT_SESSION_POOL_SIZE),
+                this::initializeSession);
         //Read the resource sql script and execute it
-        try {
-            Statement st = ds.getConnection().createStatement();
-            InputStream inStream = this.getClass().getResourceAsStream("db_script.sql");
-            BufferedReader br = new BufferedReader(new InputStreamReader(inStream));
+        try (Connection connection = connectionPool.getConnection();
+             Statement st = connection.createStatement();
+             InputStream inStream = this.getClass().getResourceAsStream("db_script.sql");
+             BufferedReader br = new BufferedReader(new InputStreamReader(inStream))) {
             String line = br.readLine();
             int queryCount = 1;
             while(line != null) {
@@ -125,16 +241,39 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
         } catch (IOException e) {
             LOGGER.error("Unable to read the database initiation script\n"+e.getMessage());
         }
+        userDirectory = new UserDirectory(connectionPool);
+        userDirectory.load();
+    }
+
+    /**
+     * Method called when the component is invalidated. It frees the administration database connections.
+     */
+    @Invalidate
+    public void stop(){
+        sessionPool.close();
+        connectionPool.close();
+        sessionInitMetrics.unregisterMBean();
+        jobScheduler.close();
+        jobScheduler.unregisterMBean();
+        timerWheel.close();
+        timerWheel.unregisterMBean();
     }
 
     @Override
     public void registerServiceFactory(ServiceFactory serviceFactory){
         serviceFactoryList.add(serviceFactory);
+        operationRouter.register(serviceFactory);
+        //The pre-initialized sessions should be recreated with the new service
+        sessionPool.renew();
     }
 
     @Override
     public void unregisterServiceFactory(ServiceFactory serviceFactory) {
-        for(Session session : openSessionList){
+        serviceFactoryList.remove(serviceFactory);
+        operationRouter.unregister(serviceFactory);
+        searchIndexMap.remove(serviceFactory.getServiceClass());
+        sessionPool.renew();
+        for(Session session : sessionRegistry.getSessions()){
             session.shutdownService(serviceFactory.getServiceClass());
         }
     }
@@ -147,113 +286,97 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
      */
     public Session getSession(String username, String password){
         //Check if the combo user/password is valid
-        if(!testUser(username, password)){
+        User user = userDirectory.authenticate(username, password);
+        if(user == null){
             return null;
         }
-        //If the session is already open, return it
-        for(Session s : openSessionList){
-            if(s.getUsername().equals(username)){
-                return s;
-            }
-        }
-        //If the session is already open, return it
-        for(Session s : aliveSessionList){
-            if(s.getUsername().equals(username)){
-                return s;
-            }
+        //If the session is already open or alive, return it
+        Session session = sessionRegistry.getByUsername(username);
+        if(session != null && sessionRegistry.reopen(session)){
+            return session;
         }
         //Otherwise create a new session and return it
-        Session session = buildSession(username);
-        openSessionList.add(session);
-        return session;
+        return buildSession(user);
     }
 
     /**
-     * Instantiate a session with the user name.
-     * @param username User name.
+     * Binds a session to the user and registers it. The session is taken from the pool of pre-initialized sessions if
+     * possible, otherwise a new one is initialized. If an other session has been registered for the same user in the
+     * meantime, this one is reopened and returned instead, unless it is killed meanwhile.
+     * @param user User of the session.
      * @return An instantiated session.
      */
-    private Session buildSession(String username){
-        UUID token = UUID.randomUUID();
-
-        //Instantiate the session and initialize it
-        Session session = new Session(username, token, this);
-        SessionInitializer init = new SessionInitializer(
-                session, getSessionOptions(session), token, serviceFactoryList);
-        executor.submit(init);
+    private Session buildSession(User user){
+        Session session = sessionPool.poll();
+        if(session == null){
+            session = initializeSession();
+        }
+        session.bind(user.getUsername(), getSessionOptions(user));
+        jobScheduler.configure(session.getExecutorService(), user.getUsername(), user.getPoolSize());
+        Session registered = sessionRegistry.register(session);
+        //The registered session may be killed before being reopened, the new session is then registered again
+        while(registered != session && !sessionRegistry.reopen(registered)){
+            registered = sessionRegistry.register(session);
+        }
+        if(registered != session){
+            session.shutdown();
+        }
+        return registered;
+    }
 
+    /**
+     * Instantiate a session without owner and start its initialization. The session readiness future is completed
+     * once done.
+     * @return An instantiated session.
+     */
+    private Session initializeSession(){
+        UUID token = UUID.randomUUID();
+        ExecutorService jobExecutor = jobScheduler.createSessionExecutor(token.toString(),
+                UserDirectory.DEFAULT_POOL_SIZE);
+        Session session = new Session(token, jobExecutor, this);
+        startInitialization(session, jobExecutor);
         return session;
     }
 
     /**
-     * Gets the properties of a session in the administration database and give it to the session.
-     * @param session Session to set.
+     * Rehydrates a hibernated session : its jobs are restored and its resources are initialized again. The session
+     * readiness future is completed once done.
+     * @param session Hibernated session.
      */
-    private Map<String, Object> getSessionOptions(Session session){
-        Map<String, Object> optionMap = new HashMap<>();
-        try {
-            PreparedStatement ps = ds.getConnection().prepareStatement(
-                    "SELECT expirationTime, poolSize FROM session_table WHERE username LIKE ?;");
-            ps.setString(1, session.getUsername());
-            ResultSet rs = ps.executeQuery();
-            rs.first();
-            optionMap.put(Session.PROPERTY_EXPIRATION_TIME_MILLIS, rs.getLong(1));
-            optionMap.put(Session.JOB_POOL_SIZE, rs.getInt(2));
-            rs.close();
-        } catch (SQLException e) {
-            LOGGER.error("Unable to request the database in order to get the session options.\n"+e.getMessage());
+    private void rehydrateSession(Session session){
+        if(!session.rehydrate()){
+            return;
         }
-        return optionMap;
+        User user = userDirectory.getUser(session.getUsername());
+        int poolSize = user != null ? user.getPoolSize() : UserDirectory.DEFAULT_POOL_SIZE;
+        startInitialization(session, jobScheduler.createSessionExecutor(session.getUsername(), poolSize));
     }
 
     /**
-     * Test if the user name and password are correct.
-     * @param username Name of the user.
-     * @param password Password of the user.
-     * @return True if the user is correct, false otherwise.
+     * Starts the initialization of the session resources in background.
+     * @param session Session to initialize.
+     * @param jobExecutor ExecutorService running the jobs of the session.
      */
-    private boolean testUser(String username, String password){
-        try {
-            PreparedStatement ps = ds.getConnection().prepareStatement(
-                    "SELECT COUNT(username) FROM session_table WHERE username LIKE ? AND password LIKE ?;");
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ResultSet rs = ps.executeQuery();
-            rs.first();
-            boolean isUser = rs.getInt(1) != 0;
-            rs.close();
-            return isUser;
-        } catch (SQLException e) {
-            LOGGER.error("Unable to request the database in order to test username/password.\n"+e.getLocalizedMessage());
-            for(StackTraceElement el : e.getStackTrace()){
-                LOGGER.error(el.toString());
-            }
-        }
-        return false;
+    private void startInitialization(Session session, ExecutorService jobExecutor){
+        Map<String, Object> propertyMap = new HashMap<>();
+        propertyMap.put(ServiceFactory.EXECUTOR_SERVICE_PROP, jobExecutor);
+        SessionInitializer init = new SessionInitializer(
+                session, propertyMap, session.getToken(), serviceFactoryList, sessionInitMetrics, timerWheel,
+                configuration.getLongWithDefault(SERVICE_IDLE_MILLIS_KEY, 0L), executor);
+        executor.submit(init);
     }
 
     /**
-     * Test if the user name is correct.
-     * @param username Name of the user.
-     * @return True if the user is correct, false otherwise.
+     * Gets the session properties from the user record.
+     * @param user User of the session.
      */
-    private boolean testUser(String username){
-        try {
-            PreparedStatement ps = ds.getConnection().prepareStatement(
-                    "SELECT COUNT(username) FROM session_table WHERE username LIKE ?;");
-            ps.setString(1, username);
-            ResultSet rs = ps.executeQuery();
-            rs.first();
-            boolean isUser = rs.getInt(1) != 0;
-            rs.close();
-            return isUser;
-        } catch (SQLException e) {
-            LOGGER.error("Unable to request the database in order to test username.\n"+e.getLocalizedMessage());
-            for(StackTraceElement el : e.getStackTrace()){
-                LOGGER.error(el.toString());
-            }
-        }
-        return false;
+    private Map<String, Object> getSessionOptions(User user){
+        Map<String, Object> optionMap = new HashMap<>();
+        optionMap.put(Session.PROPERTY_EXPIRATION_TIME_MILLIS, user.getExpirationTime());
+        optionMap.put(Session.JOB_POOL_SIZE, user.getPoolSize());
+        optionMap.put(Session.HIBERNATION_TIME_MILLIS,
+                configuration.getLongWithDefault(SESSION_HIBERNATION_MILLIS_KEY, 0L));
+        return optionMap;
     }
 
     /**
@@ -262,20 +385,10 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
      * @return The user session.
      */
     public Session createSession(String username, String password){
-        if(!testUser(username, password)) {
-            try {
-                PreparedStatement ps = ds.getConnection().prepareStatement(
-                        "INSERT INTO session_table VALUES (?,?);");
-                ps.setString(1, username);
-                ps.setString(2, password);
-                ps.execute();
-            } catch (SQLException e) {
-                LOGGER.error("Unable to add a user.\n" + e.getMessage());
-            }
+        if(userDirectory.getUser(username) == null) {
+            userDirectory.createUser(username, password);
         }
-        Session session = getSession(username, password);
-        openSessionList.add(session);
-        return session;
+        return getSession(username, password);
     }
 
     /**
@@ -284,25 +397,166 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
      * @param newPassword New password.
      */
     public void changePassword(String username, String newPassword) {
-        if(testUser(username)) {
+        userDirectory.changePassword(username, newPassword);
+    }
+
+    /**
+     * Returns the executor running the asynchronous calls of the synchronous services and the blocking work of the
+     * asynchronous routes.
+     * @return The server executor.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the timer wheel running the delayed tasks of the sessions.
+     * @return The server timer wheel.
+     */
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    /**
+     * Returns the search index of the operations of the service with the given class. The index is shared by all the
+     * sessions and is updated by the callers with the catalog of their service.
+     * @param serviceClass Class of the service.
+     * @return The search index of the service operations.
+     */
+    public OperationSearchIndex getSearchIndex(Class serviceClass) {
+        OperationSearchIndex index = searchIndexMap.get(serviceClass);
+        if(index == null){
+            searchIndexMap.putIfAbsent(serviceClass, new OperationSearchIndex());
+            index = searchIndexMap.get(serviceClass);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the refresher of the status of the running jobs of the service with the given class. The refresher is
+     * shared by all the sessions.
+     * @param serviceClass Class of the service.
+     * @return The status refresher of the service.
+     */
+    public StatusRefresher getStatusRefresher(Class serviceClass) {
+        StatusRefresher refresher = statusRefresherMap.get(serviceClass);
+        if(refresher == null){
+            statusRefresherMap.putIfAbsent(serviceClass,
+                    new StatusRefresher(timerWheel, "Status refresh of the "+serviceClass.getSimpleName()+" jobs"));
+            refresher = statusRefresherMap.get(serviceClass);
+        }
+        return refresher;
+    }
+
+    /**
+     * Requests the admission of a new job of a session, limited by the maximum number of queued jobs of its user and
+     * of the server. The sessions not bound to a user have the default limit of a new user.
+     * @param session Session submitting the job.
+     * @return The admission, which should be released once the job is finished if it is admitted.
+     */
+    public AdmissionController.Admission admitJob(Session session) {
+        User user = userDirectory.getUser(session.getUsername());
+        if(user != null) {
+            return admissionController.admit(user.getUsername(), user.getMaxQueuedJobs());
+        }
+        return admissionController.admit(session.getToken().toString(), UserDirectory.DEFAULT_MAX_QUEUED_JOBS);
+    }
+
+    /**
+     * Drops the pending status refreshes of the jobs of a session.
+     * @param session Session which jobs should not be refreshed anymore.
+     */
+    public void cancelStatusRefreshes(Session session) {
+        for(StatusRefresher refresher : statusRefresherMap.values()){
+            refresher.cancel(session);
+        }
+    }
+
+    /**
+     * Adds a listener of the job changes of the sessions.
+     * @param listener Listener to add.
+     */
+    public void addJobListener(JobListener listener) {
+        jobListenerList.add(listener);
+    }
+
+    /**
+     * Removes a listener of the job changes of the sessions.
+     * @param listener Listener to remove.
+     */
+    public void removeJobListener(JobListener listener) {
+        jobListenerList.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners of the change of a job.
+     * @param session Session owning the job.
+     * @param statusInfo New status of the job.
+     */
+    public void fireJobChanged(Session session, StatusInfo statusInfo) {
+        for(JobListener listener : jobListenerList) {
             try {
-                PreparedStatement ps = ds.getConnection().prepareStatement(
-                        "UPDATE user_table SET password = ? WHERE username=?;");
-                ps.setString(1, newPassword);
-                ps.setString(2, username);
-                ps.execute();
-            } catch (SQLException e) {
-                LOGGER.error("Unable to change password.\n" + e.getMessage());
+                listener.jobChanged(session, statusInfo);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to notify the job change.\n"+e.getMessage());
             }
         }
     }
 
     /**
-     * Returns the open session list.
-     * @return The open session list.
+     * Notifies the listeners of the removal of a job.
+     * @param session Session owning the job.
+     * @param jobId Identifier of the job.
+     */
+    public void fireJobRemoved(Session session, String jobId) {
+        for(JobListener listener : jobListenerList) {
+            try {
+                listener.jobRemoved(session, jobId);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to notify the job removal.\n"+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the routing table giving the service owning each operation.
+     * @return The server operation router.
+     */
+    public OperationRouter getOperationRouter() {
+        return operationRouter;
+    }
+
+    /**
+     * Returns the cache of the rendered views depending only on the operation catalogs.
+     * @return The server fragment cache.
      */
-    public List<Session> getOpenSessionList() {
-        return openSessionList;
+    public FragmentCache<Renderable<?>> getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Returns the calls of the web routes answered later to the clients.
+     * @return The server pending calls.
+     */
+    public PendingCalls<Result> getPendingCalls() {
+        return pendingCalls;
+    }
+
+    /**
+     * Returns the open session corresponding to the given token. This is the method to use by the web routes to get
+     * the session of a client request. If the session is hibernated, its rehydration is started.
+     * @param token String representation of the session token, usually read from the request cookie.
+     * @return The open session, or null if there is no open session with this token.
+     */
+    public Session resolveSession(String token) {
+        Session session = sessionRegistry.getByToken(token);
+        if(session != null){
+            session.touch();
+            if(session.isHibernated()){
+                rehydrateSession(session);
+            }
+        }
+        return session;
     }
 
     /**
@@ -311,16 +565,11 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
      */
     public void closeSession(String id) {
         //Get the session
-        Session session = null;
-        for(Session s : openSessionList){
-            if(s.getToken().toString().equals(id)){
-                session = s;
-            }
-        }
+        Session session = sessionRegistry.getByToken(id);
         if(session != null){
-            //If the session is active (some process or result are running), move it to the alive session list
+            //If the session is active (some process or result are running), move it to the alive state
             if(session.isActive()) {
-                aliveSessionList.add(session);
+                sessionRegistry.close(session);
             }
             //Else (nor more results or process), shutdown the session
             else{
@@ -330,11 +579,11 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
     }
 
     /**
-     * Method called when a session became inactive. If the session is in the alive list, the session should be killed.
+     * Method called when a session became inactive. If the session is alive, the session should be killed.
      * @param session Session which became inactive.
      */
     public void inactiveSession(Session session) {
-        if(!aliveSessionList.contains(session)){
+        if(session.getState() != Session.State.ALIVE){
             return;
         }
         killSession(session);
@@ -345,8 +594,8 @@ public class BaseServerImpl extends DefaultController implements BaseServer {
      * @param session Session to kill.
      */
     public void killSession(Session session){
-        session.shutdown();
-        openSessionList.remove(session);
-        aliveSessionList.remove(session);
+        if(sessionRegistry.kill(session)) {
+            session.shutdown();
+        }
     }
 }
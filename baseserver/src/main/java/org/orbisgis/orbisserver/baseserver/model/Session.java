@@ -38,27 +38,41 @@
  */
 package org.orbisgis.orbisserver.baseserver.model;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.NameFileFilter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.SFSUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.orbisgis.orbisserver.api.model.*;
+import org.orbisgis.orbisserver.api.service.AsyncService;
 import org.orbisgis.orbisserver.api.service.Service;
 import org.orbisgis.orbisserver.api.service.ServiceFactory;
+import org.orbisgis.orbisserver.api.service.SyncServiceAdapter;
 import org.orbisgis.orbisserver.baseserver.BaseServerImpl;
+import org.orbisgis.orbisserver.baseserver.utils.AdmissionController;
+import org.orbisgis.orbisserver.baseserver.utils.JobMetadataFile;
+import org.orbisgis.orbisserver.baseserver.utils.JobStore;
+import org.orbisgis.orbisserver.baseserver.utils.LazyService;
+import org.orbisgis.orbisserver.baseserver.utils.OperationRouter;
+import org.orbisgis.orbisserver.baseserver.utils.OperationSearchIndex;
+import org.orbisgis.orbisserver.baseserver.utils.TimerWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
 import java.io.*;
 import java.net.URL;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -71,12 +85,18 @@ public class Session {
 
     /** Logger. */
     private static final Logger LOGGER = LoggerFactory.getLogger(Session.class);
+    /** Delay before the status refresh of a job without next poll date in milliseconds. */
+    private static final long DEFAULT_STATUS_REFRESH_MILLIS = 1000;
+    /** Life time of the results returned without expiration date in milliseconds. */
+    private static final long DEFAULT_RESULT_EXPIRATION_MILLIS = TimeUnit.DAYS.toMillis(1);
 
     public static final String PROPERTY_EXPIRATION_TIME_MILLIS = "PROPERTY_EXPIRATION_TIME_MILLIS";
     public static final String JOB_POOL_SIZE = "JOB_POOL_SIZE";
     public static final String SERVICE_LIST = "SERVICE_LIST";
+    public static final String HIBERNATION_TIME_MILLIS = "HIBERNATION_TIME_MILLIS";
 
-    private static final int BASE_POOL_SIZE = 5;
+    /** States of the session life cycle. */
+    public enum State {OPEN, ALIVE, KILLED}
 
     /** Token associated to the session. It is used for the identification of the web client requests. */
     private UUID token;
@@ -86,38 +106,67 @@ public class Session {
     private ExecutorService executorService;
     /** Workspace folder. */
     private File workspaceFolder;
-    /** Username associated to the session. */
-    private String username;
+    /** Username associated to the session. Null until the session is bound to a user. */
+    private volatile String username;
     /** List of services instance for the Session. */
     private List<Service> serviceList;
-    /** List of StatusInfo. This list is used as a cache saving all the process executed and waiting for the data
-     * retrieving.*/
-    private List<StatusInfo> statusInfoList;
-    /** Map linking the job id with the service executing it. */
+    /** Services of the session with their class as key, used to dispatch the operations. */
+    private Map<Class, Service> serviceMap;
+    /** Store of the StatusInfo of the running jobs and of the finished jobs waiting for the data retrieving. */
+    private final JobStore jobStore;
+    /** Map linking the id of the running jobs with the service executing it. */
     private Map<String, Service> jobIdServiceMap;
-    /** Map with the finished job. */
-    private Map<String, StatusInfo> finishedJobMap;
+    /** Version of the job states returned by the last bulk status request of each service. */
+    private final Map<Service, Long> statusVersionMap;
+    /** Admissions of the jobs not finished, with the job id as key. */
+    private final Map<String, AdmissionController.Admission> admissionMap;
     /** Time before expiration of the session. If equals to -1, there is no expiration. */
     private long expirationTimeMillis;
-    /** ScheduledThreadPoolExecutor for the jobs results expiration and the session inactivity. */
-    private ScheduledThreadPoolExecutor resultExpirationExecutor;
+    /** Timers of the result expirations with the job id as key. */
+    private Map<String, TimerWheel.Timeout> resultExpirationMap;
+    /** Timer of the session inactivity, null if not scheduled. */
+    private TimerWheel.Timeout inactivityTimeout;
     /** Instance of the BaseServerImpl. */
     private BaseServerImpl baseServerImpl;
     /** Indicates if the session is active or not. */
     private boolean isActive;
+    /** State of the session in its life cycle. */
+    private final AtomicReference<State> state;
+    /** Future completed once the session initialization is done. */
+    private volatile CompletableFuture<Session> readyFuture;
+    /** Duration in milliseconds of each phase of the session initialization. */
+    private final Map<String, Long> initPhaseMillis;
+    /** Idle time before the hibernation of the session in milliseconds. If 0 or less, the session never hibernates. */
+    private long hibernationTimeMillis;
+    /** Time of the last client request on the session in milliseconds. */
+    private volatile long lastAccessMillis;
+    /** True if the session is hibernated : its database, executor and services are released. */
+    private volatile boolean hibernated;
+    /** Timer of the hibernation check, null if not scheduled. */
+    private TimerWheel.Timeout hibernationTimeout;
 
     /**
-     * Main constructor.
+     * Main constructor. The session is created without owner, it should be bound to a user with the bind() method
+     * before being used.
+     * @param token Unique token of the session.
+     * @param executorService ExecutorService running the jobs of the session.
+     * @param baseServerImpl Instance of the BaseServerImpl.
      */
-    public Session(String username, UUID token, BaseServerImpl baseServerImpl){
+    public Session(UUID token, ExecutorService executorService, BaseServerImpl baseServerImpl){
         this.token = token;
-        this.username = username;
+        this.executorService = executorService;
+        this.username = null;
         isActive = false;
-        jobIdServiceMap = new HashMap<>();
-        finishedJobMap = new HashMap<>();
-        statusInfoList = new ArrayList<>();
+        state = new AtomicReference<>(State.OPEN);
+        readyFuture = new CompletableFuture<>();
+        initPhaseMillis = new ConcurrentHashMap<>();
+        jobIdServiceMap = new ConcurrentHashMap<>();
+        statusVersionMap = new ConcurrentHashMap<>();
+        admissionMap = new ConcurrentHashMap<>();
+        jobStore = new JobStore();
+        resultExpirationMap = new ConcurrentHashMap<>();
         expirationTimeMillis = -1;
-        this.serviceList = new ArrayList<>();
+        setServiceList(new ArrayList<Service>());
         this.baseServerImpl = baseServerImpl;
     }
 
@@ -126,13 +175,6 @@ public class Session {
      * @param propertyMap Map containing the properties of the session.
      */
     public void setProperties(Map<String, Object> propertyMap){
-        if(propertyMap.containsKey(PROPERTY_EXPIRATION_TIME_MILLIS)){
-            this.expirationTimeMillis = (long)propertyMap.get(PROPERTY_EXPIRATION_TIME_MILLIS);
-        }
-        else{
-            this.expirationTimeMillis = -1;
-        }
-
         if(propertyMap.containsKey(ServiceFactory.DATA_SOURCE_PROP)) {
             this.ds = (DataSource) propertyMap.get(ServiceFactory.DATA_SOURCE_PROP);
         }
@@ -145,22 +187,96 @@ public class Session {
             this.workspaceFolder = (File) propertyMap.get(ServiceFactory.WORKSPACE_FOLDER_PROP);
         }
 
-        if(propertyMap.containsKey(JOB_POOL_SIZE)) {
-            this.resultExpirationExecutor = new ScheduledThreadPoolExecutor((int) propertyMap.get(JOB_POOL_SIZE));
+        if(propertyMap.containsKey(ServiceFactory.DATA_SOURCE_PROP)) {
+            setServiceList((List<Service>) propertyMap.get(SERVICE_LIST));
         }
         else{
-            this.resultExpirationExecutor = new ScheduledThreadPoolExecutor(BASE_POOL_SIZE);
+            setServiceList(new ArrayList<Service>());
+            LOGGER.info("No services available on starting the session.");
         }
+    }
 
-        if(propertyMap.containsKey(ServiceFactory.DATA_SOURCE_PROP)) {
-            this.serviceList = (List<Service>) propertyMap.get(SERVICE_LIST);
+    /**
+     * Binds the session to a user and sets the user options. The session may still be initializing.
+     * @param username Name of the user owning the session.
+     * @param optionMap Map containing the user options of the session.
+     */
+    public void bind(String username, Map<String, Object> optionMap){
+        if(optionMap.containsKey(PROPERTY_EXPIRATION_TIME_MILLIS)){
+            this.expirationTimeMillis = (long)optionMap.get(PROPERTY_EXPIRATION_TIME_MILLIS);
         }
         else{
-            this.serviceList = new ArrayList<>();
-            LOGGER.info("No services available on starting the session.");
+            this.expirationTimeMillis = -1;
+        }
+        if(optionMap.containsKey(HIBERNATION_TIME_MILLIS)){
+            this.hibernationTimeMillis = (long)optionMap.get(HIBERNATION_TIME_MILLIS);
+        }
+        this.username = username;
+        touch();
+        scheduleHibernation(hibernationTimeMillis);
+    }
+
+    /**
+     * Returns true if the session is bound to a user, false otherwise.
+     * @return True if the session has an owner, false otherwise.
+     */
+    public boolean isBound(){
+        return username != null;
+    }
+
+    /**
+     * Returns a future completed with the session once its initialization is done. Until then, the session DataSource,
+     * workspace and services are not available. The future is completed exceptionally if the initialization fails.
+     * @return The readiness future of the session.
+     */
+    public CompletableFuture<Session> whenReady(){
+        return readyFuture;
+    }
+
+    /**
+     * Returns true if the session initialization is successfully done, false otherwise.
+     * @return True if the session is ready, false otherwise.
+     */
+    public boolean isReady(){
+        CompletableFuture<Session> future = readyFuture;
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Marks the session as ready, completing its readiness future. If the session has been shutdown during its
+     * initialization, its resources are released.
+     */
+    public void setReady(){
+        if(!readyFuture.complete(this)){
+            releaseResources();
         }
     }
 
+    /**
+     * Marks the session initialization as failed, completing exceptionally its readiness future.
+     * @param cause Cause of the failure.
+     */
+    public void setInitializationFailed(Throwable cause){
+        readyFuture.completeExceptionally(cause);
+    }
+
+    /**
+     * Records the duration of an initialization phase.
+     * @param phase Name of the phase.
+     * @param nanos Duration of the phase in nanoseconds.
+     */
+    public void recordInitPhase(String phase, long nanos){
+        initPhaseMillis.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Returns the duration in milliseconds of each initialization phase already done.
+     * @return Map with the phase name as key and its duration as value.
+     */
+    public Map<String, Long> getInitPhaseMillis(){
+        return new TreeMap<>(initPhaseMillis);
+    }
+
     /**
      * Returns the DataSource of the Session.
      * @return The session DataSource.
@@ -209,6 +325,24 @@ public class Session {
         return isActive;
     }
 
+    /**
+     * Returns the state of the session in its life cycle.
+     * @return The session state.
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Atomically sets the state of the session if its current state is the expected one.
+     * @param expect Expected current state.
+     * @param update New state.
+     * @return True if the state has been set, false otherwise.
+     */
+    public boolean compareAndSetState(State expect, State update) {
+        return state.compareAndSet(expect, update);
+    }
+
     /**
      * Returns the list of operations available in ths session.
      * @return The available operation list.
@@ -216,37 +350,143 @@ public class Session {
     public List<Operation> getOperationList(){
         List<Operation> operationList = new ArrayList<>();
         for(Service service : serviceList) {
-            operationList.addAll(service.getAllOperation());
+            operationList.addAll(service.getOperationCatalog().getOperations());
         }
         return operationList;
     }
 
+    /**
+     * Searches the operations of the session with the search indexes of the services. The operations of each service
+     * are ranked, the services being kept in their order.
+     * @param query Words to find in the title, the abstract or the keywords of the operations, null or empty for all.
+     * @param keyword Keyword the operations should have, ignored if null.
+     * @param excludedKeywords Keywords the operations should not have, ignored if null.
+     * @return The search result. Its version is the sum of the versions of the searched catalogs.
+     */
+    public OperationSearchIndex.SearchResult searchOperations(String query, String keyword,
+                                                               Collection<String> excludedKeywords){
+        long version = 0;
+        List<Operation> operationList = new ArrayList<>();
+        Map<String, Integer> keywordFacets = new TreeMap<>();
+        for(Service service : serviceList) {
+            OperationSearchIndex index = baseServerImpl.getSearchIndex(getServiceClass(service));
+            index.update(service.getOperationCatalog());
+            OperationSearchIndex.SearchResult result = index.search(query, keyword, excludedKeywords);
+            version += result.getVersion();
+            operationList.addAll(result.getOperationList());
+            for(Map.Entry<String, Integer> entry : result.getKeywordFacets().entrySet()){
+                Integer count = keywordFacets.get(entry.getKey());
+                keywordFacets.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+        }
+        return new OperationSearchIndex.SearchResult(version, operationList, keywordFacets);
+    }
+
+    /**
+     * Returns a tag identifying the versions of the operation catalogs of the session services. Two sessions with the
+     * same tag offer the same operations.
+     * @return The catalog tag, or null if a service does not version its catalog.
+     */
+    public String getCatalogTag(){
+        StringBuilder tag = new StringBuilder();
+        for(Service service : serviceList) {
+            long version = service.getOperationCatalog().getVersion();
+            if(version <= 0){
+                return null;
+            }
+            tag.append(getServiceClass(service).getName()).append(':').append(version).append(';');
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Sets the services of the session.
+     * @param serviceList List of the services.
+     */
+    private void setServiceList(List<Service> serviceList){
+        Map<Class, Service> map = new HashMap<>();
+        for(Service service : serviceList){
+            map.put(getServiceClass(service), service);
+        }
+        this.serviceList = serviceList;
+        this.serviceMap = map;
+        statusVersionMap.clear();
+    }
+
+    /**
+     * Returns the class of the given service, or of the service it wraps for a LazyService.
+     * @param service Service of the session.
+     * @return The service class.
+     */
+    private static Class getServiceClass(Service service){
+        if(service instanceof LazyService){
+            return ((LazyService) service).getServiceClass();
+        }
+        return service.getClass();
+    }
+
     /**
      * Returns the Operation with the given identifier.
      * @param id Identifier of the operation.
      * @return The operation with the given identifier.
      */
     public Operation getOperation(String id) {
-        Service serv = null;
-        for(Service service : serviceList){
-            if(service.hasOperation(id)){
-                serv = service;
-            }
+        OperationRouter.Route route = baseServerImpl.getOperationRouter().getRoute(id);
+        if(route != null && route.getDescription() != null){
+            return route.getDescription();
         }
-        if(serv == null) {
+        Service service = getService(id, route);
+        if(service == null) {
             return null;
         }
-        return serv.getOperation(id);
+        Operation operation = service.getOperation(id);
+        if(route != null && operation != null){
+            route.setDescription(operation);
+        }
+        return operation;
     }
 
     /**
-     * Execute the operation corresponding to the given identifier, using the given input data Map.
+     * Returns the service of the session owning the operation with the given identifier.
+     * @param id Identifier of the operation.
+     * @param route Route of the operation, null if the operation is not routed.
+     * @return The service owning the operation, or null if there is none.
+     */
+    private Service getService(String id, OperationRouter.Route route){
+        if(route != null){
+            Service service = serviceMap.get(route.getServiceClass());
+            if(service != null){
+                return service;
+            }
+        }
+        //The operations of the services without catalog are not routed
+        for(Service service : serviceList){
+            if(service.getOperationCatalog().hasOperation(id)){
+                return service;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Execute the operation corresponding to the given identifier, using the given input data Map. The calling thread
+     * is not blocked while the service executes the operation.
      * @param id Identifier of the operation to execute.
      * @param inputData Input data Map to use on the execution.
+     * @param admission Admission of the job, released once the job is finished or if it can not be executed.
+     * @return A future completed with the StatusInfo of the job, or with null if the operation can not be executed.
      */
-    public void executeOperation(String id, Map<String, String> inputData) {
+    public CompletableFuture<StatusInfo> executeOperationAsync(String id, Map<String, String> inputData,
+                                                              AdmissionController.Admission admission) {
         isActive = true;
+        cancelInactivity();
+        OperationRouter.Route route = baseServerImpl.getOperationRouter().getRoute(id);
+        Service serv = getService(id, route);
         Operation operation = getOperation(id);
+        if(serv == null || operation == null) {
+            admission.release();
+            return CompletableFuture.completedFuture(null);
+        }
         Map<String, String> tmpMap = new HashMap<>();
         for(Input input : operation.getInputList()){
             if(input.getName().equalsIgnoreCase("RawData")){
@@ -259,110 +499,294 @@ public class Session {
         }
         inputData.putAll(tmpMap);
         ExecuteRequest executeRequest = new ExecuteRequest(id, inputData);
-        Service serv = null;
-        for(Service service : serviceList){
-            if(service.hasOperation(id)){
-                serv = service;
+        String title = route != null ? route.getTitle() : operation.getTitle();
+        return getAsyncService(serv).executeOperationAsync(executeRequest).thenApply(statusInfo -> {
+            if(statusInfo == null) {
+                admission.release();
+            }
+            else {
+                statusInfo.setProcessID(id);
+                statusInfo.setProcessTitle(title);
+                admissionMap.put(statusInfo.getJobId(), admission);
+                jobIdServiceMap.put(statusInfo.getJobId(), serv);
+                jobStore.put(statusInfo);
+                baseServerImpl.fireJobChanged(this, statusInfo);
+                scheduleStatusRefresh(statusInfo);
             }
+            return statusInfo;
+        }).whenComplete((statusInfo, error) -> {
+            if(error != null) {
+                admission.release();
+            }
+        });
+    }
+
+    /**
+     * Dismisses a job. A running job is cancelled by its service, which removes its partial outputs, and its admission
+     * slot is freed for the next submitted job. A finished job is removed with its result.
+     * @param jobId Identifier of the job to dismiss.
+     * @return A future completed with the last StatusInfo of the dismissed job, or with null if the job does not exist
+     * or can not be dismissed.
+     */
+    public CompletableFuture<StatusInfo> dismissJobAsync(String jobId) {
+        StatusInfo statusInfo = jobStore.get(jobId);
+        if(statusInfo == null) {
+            return CompletableFuture.completedFuture(null);
         }
-        if(serv != null) {
-            StatusInfo statusInfo = serv.executeOperation(executeRequest);
-            statusInfo.setProcessID(id);
-            statusInfo.setProcessTitle(getTitle(id));
-            statusInfoList.add(statusInfo);
-            jobIdServiceMap.put(statusInfo.getJobId(), serv);
+        //Removing the service stops the status refresh of the job
+        Service service = jobIdServiceMap.remove(jobId);
+        if(service == null) {
+            TimerWheel.Timeout timeout = resultExpirationMap.remove(jobId);
+            if(timeout != null) {
+                timeout.cancel();
+            }
+            removeJob(jobId);
+            return CompletableFuture.completedFuture(statusInfo);
         }
+        StatusRequest statusRequest = new StatusRequest(jobId);
+        statusRequest.setProcessId(statusInfo.getProcessID());
+        statusRequest.setProcessTitle(statusInfo.getProcessTitle());
+        return getAsyncService(service).dismissAsync(statusRequest).handle((info, error) -> {
+            if(error != null || info == null) {
+                LOGGER.error("Unable to dismiss the job "+jobId+".");
+                jobIdServiceMap.put(jobId, service);
+                scheduleStatusRefresh(statusInfo);
+                return null;
+            }
+            releaseAdmission(jobId);
+            removeJob(jobId);
+            return info;
+        });
     }
 
     /**
-     * Returns the title of the operation with the given identifier. If no operation is found, returns an empty string.
-     * @param id Identifier of the operation to find.
-     * @return The title of the operation.
+     * Removes a job from the store with its result folder and notifies the listeners of the server.
+     * @param jobId Identifier of the job.
      */
-    private String getTitle(String id){
-        for(Service service : serviceList){
-            if(service.hasOperation(id)){
-                return service.getOperation(id).getTitle();
+    private void removeJob(String jobId) {
+        jobStore.remove(jobId);
+        File jobFolder = new File(workspaceFolder, jobId);
+        if(jobFolder.exists()) {
+            try {
+                FileUtils.deleteDirectory(jobFolder);
+            } catch (IOException e) {
+                LOGGER.error("Unable to delete the result folder of the job "+jobId+".\n"+e.getMessage());
             }
         }
-        return "";
+        baseServerImpl.fireJobRemoved(this, jobId);
+        scheduleInactivity();
+    }
+
+    /**
+     * Frees the admission slot of a job.
+     * @param jobId Identifier of the job.
+     */
+    private void releaseAdmission(String jobId) {
+        AdmissionController.Admission admission = admissionMap.remove(jobId);
+        if(admission != null) {
+            admission.release();
+        }
+    }
+
+    /**
+     * Returns the given service as an AsyncService, its synchronous calls being run by the server executor.
+     * @param service Service of the session.
+     * @return The asynchronous service.
+     */
+    private AsyncService getAsyncService(Service service) {
+        return SyncServiceAdapter.adapt(service, baseServerImpl.getExecutor());
     }
 
     /**
      * Returns the list of the cached list of StatusInfo responses.
-     * @return The cached StatusInfo list.
+     * @return The unmodifiable list of the cached StatusInfo, in the order of the job submissions.
      */
     public List<StatusInfo> getAllStatusInfo(){
-        List<StatusInfo> list = new ArrayList<>();
-        list.addAll(statusInfoList);
-        for(Map.Entry<String, StatusInfo> entry : finishedJobMap.entrySet()){
-            list.add(entry.getValue());
+        return jobStore.getSnapshot().getJobList();
+    }
+
+    /**
+     * Returns the store of the jobs of the session.
+     * @return The job store.
+     */
+    public JobStore getJobStore(){
+        return jobStore;
+    }
+
+    /**
+     * Refresh the status of the given jobs with one bulk status request for each service. The listeners of the server
+     * are notified of the jobs which status, progress or result has changed.
+     * @param statusInfoList Last status of the jobs to refresh.
+     */
+    public void refreshStatus(List<StatusInfo> statusInfoList) {
+        Map<Service, List<StatusInfo>> serviceJobMap = new HashMap<>();
+        for(StatusInfo statusInfo : statusInfoList){
+            Service service = jobIdServiceMap.get(statusInfo.getJobId());
+            //If there is no service, the job has already been refreshed as finished
+            if(service != null) {
+                List<StatusInfo> jobList = serviceJobMap.get(service);
+                if(jobList == null){
+                    jobList = new ArrayList<>();
+                    serviceJobMap.put(service, jobList);
+                }
+                jobList.add(statusInfo);
+            }
+        }
+        for(Map.Entry<Service, List<StatusInfo>> entry : serviceJobMap.entrySet()){
+            refreshStatus(entry.getKey(), entry.getValue());
         }
-        return list;
     }
 
     /**
-     * Return the list of all the StatusInfo with the next poll date is reached and which needs to be refreshed.
-     * @return The list of Status info to refresh.
+     * Refresh the status of jobs of a service with a bulk status request, only the changed jobs being returned. The
+     * request is asynchronous, so the calling thread is not blocked while the service answers.
+     * @param service Service executing the jobs.
+     * @param statusInfoList Last status of the jobs to refresh.
      */
-    public List<StatusInfo> getAllStatusInfoToRefresh() {
-        List<StatusInfo> allStatusInfoToRefresh = new ArrayList<>();
-        long timeMillisNow = System.currentTimeMillis();
+    private void refreshStatus(Service service, List<StatusInfo> statusInfoList) {
+        AsyncService asyncService = getAsyncService(service);
+        List<StatusRequest> requestList = new ArrayList<>();
         for(StatusInfo statusInfo : statusInfoList){
-            long comparison = -1;
-            if(statusInfo.getNextPoll() != null) {
-                long timeMillisPoll = statusInfo.getNextPoll().toGregorianCalendar().getTime().getTime();
-                comparison = timeMillisPoll - timeMillisNow;
+            StatusRequest statusRequest = new StatusRequest(statusInfo.getJobId());
+            statusRequest.setProcessId(statusInfo.getProcessID());
+            statusRequest.setProcessTitle(statusInfo.getProcessTitle());
+            requestList.add(statusRequest);
+        }
+        Long version = statusVersionMap.get(service);
+        long sinceVersion = version != null ? version : 0;
+        asyncService.getStatusAsync(requestList, sinceVersion).thenCompose(statusBatch -> {
+            if(statusBatch.getVersion() < sinceVersion){
+                //The service has been restarted, so its versions start again
+                return asyncService.getStatusAsync(requestList, 0);
             }
-            if(comparison < 0) {
-                allStatusInfoToRefresh.add(statusInfo);
+            return CompletableFuture.completedFuture(statusBatch);
+        }).thenAccept(statusBatch -> {
+            statusVersionMap.put(service, statusBatch.getVersion());
+            Map<String, StatusInfo> changedMap = new HashMap<>();
+            for(StatusInfo info : statusBatch.getStatusInfoList()){
+                changedMap.put(info.getJobId(), info);
             }
-        }
-        return allStatusInfoToRefresh;
+            for(StatusInfo statusInfo : statusInfoList){
+                StatusInfo info = changedMap.get(statusInfo.getJobId());
+                if(info == null){
+                    //The job has not changed, or its status can not be requested
+                    scheduleStatusRefresh(statusInfo);
+                }
+                else {
+                    updateStatus(asyncService, statusInfo, info);
+                }
+            }
+        }).exceptionally(e -> {
+            LOGGER.error("Unable to refresh the status of the jobs.\n"+e.getMessage());
+            for(StatusInfo statusInfo : statusInfoList){
+                scheduleStatusRefresh(statusInfo);
+            }
+            return null;
+        });
     }
 
     /**
-     * Refresh the status of the job with the given identifier.
+     * Updates the status of a changed job. If the job is finished, its result is retrieved before the update.
+     * @param service Service executing the job.
+     * @param previousInfo Previous status of the job.
+     * @param info New status of the job.
      */
-    public long refreshStatus(StatusInfo statusInfo) {
+    private void updateStatus(AsyncService service, StatusInfo previousInfo, StatusInfo info) {
         long timeMillisNow = System.currentTimeMillis();
-        long minRefresh = Long.MAX_VALUE;
-        String jobId = statusInfo.getJobId();
-        Service service = jobIdServiceMap.get(jobId);
-        StatusRequest statusRequest = new StatusRequest(jobId);
+        info.setProcessID(previousInfo.getProcessID());
+        info.setProcessTitle(previousInfo.getProcessTitle());
+        info.setNextRefreshMillis(-1);
+        if (info.getNextPoll() != null) {
+            long timeMillisPoll = info.getNextPoll().toGregorianCalendar().getTime().getTime();
+            info.setNextRefreshMillis(timeMillisPoll - timeMillisNow);
+        }
+        boolean finished = info.getStatus().equalsIgnoreCase("SUCCEEDED") ||
+                info.getStatus().equalsIgnoreCase("FAILED");
+        if(!finished){
+            storeStatus(info, false);
+            scheduleStatusRefresh(info);
+            return;
+        }
+        StatusRequest statusRequest = new StatusRequest(info.getJobId());
+        statusRequest.setProcessId(info.getProcessID());
+        service.getResultAsync(statusRequest).whenComplete((result, error) -> {
+            if(error != null){
+                LOGGER.error("Unable to get the result of the job "+info.getJobId()+".\n"+error.getMessage());
+            }
+            info.setResult(result);
+            storeStatus(info, true);
+        });
+    }
 
-        StatusInfo statusInfoToRemove = null;
-        for(StatusInfo info : statusInfoList){
-            if(info.getJobId().equalsIgnoreCase(jobId)){
-                statusInfoToRemove = info;
+    /**
+     * Stores the new status of a job and notifies the listeners of the server if it has changed. The status of a job
+     * dismissed while its refresh was running is dropped.
+     * @param info New status of the job.
+     * @param finished True if the job is finished, false otherwise.
+     */
+    private void storeStatus(StatusInfo info, boolean finished) {
+        String jobId = info.getJobId();
+        StatusInfo previous = jobStore.replace(info);
+        if(previous == null) {
+            return;
+        }
+        if(finished) {
+            releaseAdmission(jobId);
+        }
+        if (finished && jobIdServiceMap.remove(jobId) != null) {
+            //Schedule the expiration of the job, a job without result or expiration date is kept for the default time
+            if(info.getResult() != null && info.getResult().getExpirationDate() == null) {
+                setDefaultExpirationDate(info.getResult());
             }
+            scheduleResultExpiration(jobId, getExpirationDelayMillis(info.getResult(), System.currentTimeMillis()));
         }
-        statusInfoList.remove(statusInfoToRemove);
+        if(finished || !info.getStatus().equalsIgnoreCase(previous.getStatus()) ||
+                !Objects.equals(info.getPercentCompleted(), previous.getPercentCompleted())){
+            baseServerImpl.fireJobChanged(this, info);
+        }
+    }
 
-        StatusInfo info = service.getStatus(statusRequest);
-        if(info != null){
-            statusRequest.setProcessId(statusInfo.getProcessID());
-            info.setProcessID(statusInfo.getProcessID());
-            info.setProcessTitle(statusInfo.getProcessTitle());
-            info.setNextRefreshMillis(-1);
-            if (info.getNextPoll() != null) {
-                long timeMillisPoll = info.getNextPoll().toGregorianCalendar().getTime().getTime();
-                info.setNextRefreshMillis(timeMillisPoll - timeMillisNow);
-            }
-            if(info.getStatus().equalsIgnoreCase("SUCCEEDED") || info.getStatus().equalsIgnoreCase("FAILED")){
-                info.setResult(service.getResult(statusRequest));
-                //Schedule the expiration of the result
-                resultExpirationExecutor.schedule(new ResultExpirationTask(jobId, this),
-                        info.getResult().getExpirationDate().toGregorianCalendar().getTimeInMillis()-timeMillisNow,
-                        TimeUnit.MILLISECONDS);
-                jobIdServiceMap.remove(jobId);
-                finishedJobMap.put(jobId, info);
-            }
-            else{
-                statusInfoList.add(info);
-            }
+    /**
+     * Returns the delay before the expiration of a finished job. A job without result or whose result has no
+     * expiration date is kept for the default result life time.
+     * @param result Result of the job, may be null.
+     * @param timeMillisNow Current time in milliseconds.
+     * @return The delay before the job expiration in milliseconds.
+     */
+    static long getExpirationDelayMillis(Result result, long timeMillisNow) {
+        if(result == null || result.getExpirationDate() == null) {
+            return DEFAULT_RESULT_EXPIRATION_MILLIS;
+        }
+        return result.getExpirationDate().toGregorianCalendar().getTimeInMillis() - timeMillisNow;
+    }
+
+    /**
+     * Sets the expiration date of a result returned without one to the default result life time.
+     * @param result Result without expiration date.
+     */
+    private static void setDefaultExpirationDate(Result result) {
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(System.currentTimeMillis() + DEFAULT_RESULT_EXPIRATION_MILLIS);
+        try {
+            result.setExpirationDate(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
+        } catch (DatatypeConfigurationException e) {
+            LOGGER.error("Unable to set the expiration date of the result.\n"+e.getMessage());
         }
-        return minRefresh;
+    }
+
+    /**
+     * Schedules the refresh of the status of a running job at its next poll date with the status refresher of its
+     * service, so the job changes are pushed to the clients without waiting for their requests.
+     * @param statusInfo Status of the running job.
+     */
+    private void scheduleStatusRefresh(StatusInfo statusInfo) {
+        Service service = jobIdServiceMap.get(statusInfo.getJobId());
+        if(service == null || state.get() == State.KILLED || hibernated) {
+            return;
+        }
+        long delayMillis = statusInfo.getNextRefreshMillis() > 0 ? statusInfo.getNextRefreshMillis() :
+                DEFAULT_STATUS_REFRESH_MILLIS;
+        baseServerImpl.getStatusRefresher(getServiceClass(service)).schedule(this, statusInfo, delayMillis);
     }
 
     /**
@@ -415,51 +839,50 @@ public class Session {
      */
     public File getResultAchive(String jobId){
         File jobFolder = new File(workspaceFolder, jobId);
-        for(StatusInfo statusInfo : getAllStatusInfo()){
-            if(statusInfo.getJobId().equalsIgnoreCase(jobId)){
-                //Once the good StatusInfo in found, for each output store its data in the archive
-                for(Output out : statusInfo.getResult().getOutputList()){
-                    //In the case of plain data, write it into a file
-                    if(out.getData() != null){
-                        try {
-                            for(Object content : out.getData().getContent()) {
-                                File outFile;
-                                //If a file with the output name already exists, adds a number to it
-                                if(jobFolder.list(new NameFileFilter(out.getTitle()))!= null){
-                                    int diff=1;
-                                    while(jobFolder.list(new NameFileFilter(out.getTitle()+diff)) != null){
-                                        diff++;
-                                    }
-                                    outFile = new File(jobFolder, out.getTitle().replaceAll(File.separator, "")+diff);
+        StatusInfo statusInfo = jobStore.get(jobId);
+        if(statusInfo != null && statusInfo.getResult() != null){
+            //Once the good StatusInfo in found, for each output store its data in the archive
+            for(Output out : statusInfo.getResult().getOutputList()){
+                //In the case of plain data, write it into a file
+                if(out.getData() != null){
+                    try {
+                        for(Object content : out.getData().getContent()) {
+                            File outFile;
+                            //If a file with the output name already exists, adds a number to it
+                            if(jobFolder.list(new NameFileFilter(out.getTitle()))!= null){
+                                int diff=1;
+                                while(jobFolder.list(new NameFileFilter(out.getTitle()+diff)) != null){
+                                    diff++;
                                 }
-                                else {
-                                    outFile = new File(jobFolder, out.getTitle().replaceAll(File.separator, ""));
-                                }
-                                //Create the file and write data inside
-                                if (jobFolder.mkdirs() || outFile.createNewFile()) {
-                                    try (FileWriter fileWriter = new FileWriter(outFile)) {
-                                        try (PrintWriter out1 = new PrintWriter(fileWriter)) {
-                                            out1.append(content.toString());
-                                        }
+                                outFile = new File(jobFolder, out.getTitle().replaceAll(File.separator, "")+diff);
+                            }
+                            else {
+                                outFile = new File(jobFolder, out.getTitle().replaceAll(File.separator, ""));
+                            }
+                            //Create the file and write data inside
+                            if (jobFolder.mkdirs() || outFile.createNewFile()) {
+                                try (FileWriter fileWriter = new FileWriter(outFile)) {
+                                    try (PrintWriter out1 = new PrintWriter(fileWriter)) {
+                                        out1.append(content.toString());
                                     }
-                                } else {
-                                    LOGGER.error("Unable to create the output as a file.");
                                 }
+                            } else {
+                                LOGGER.error("Unable to create the output as a file.");
                             }
-                        } catch (IOException e) {
-                            LOGGER.error("Unable to write the output as a file.\n"+e.getMessage());
                         }
+                    } catch (IOException e) {
+                        LOGGER.error("Unable to write the output as a file.\n"+e.getMessage());
                     }
-                    //If the result is a reference, copy if to the archive folder
-                    else if(out.getReference() != null){
-                        try {
-                            URL url = new URL(out.getReference());
-                            ReadableByteChannel readableByteChannel = Channels.newChannel(url.openStream());
-                            FileOutputStream fos = new FileOutputStream(out.getTitle());
-                            fos.getChannel().transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
-                        } catch (IOException e) {
-                            LOGGER.error("Unable to download the result.\n"+e.getMessage());
-                        }
+                }
+                //If the result is a reference, copy if to the archive folder
+                else if(out.getReference() != null){
+                    try {
+                        URL url = new URL(out.getReference());
+                        ReadableByteChannel readableByteChannel = Channels.newChannel(url.openStream());
+                        FileOutputStream fos = new FileOutputStream(out.getTitle());
+                        fos.getChannel().transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+                    } catch (IOException e) {
+                        LOGGER.error("Unable to download the result.\n"+e.getMessage());
                     }
                 }
             }
@@ -492,12 +915,182 @@ public class Session {
         return null;
     }
 
+    /**
+     * Schedules the expiration of the result of a job.
+     * @param jobId Id of the job.
+     * @param delayMillis Delay before the expiration in milliseconds.
+     */
+    private void scheduleResultExpiration(String jobId, long delayMillis) {
+        resultExpirationMap.put(jobId, baseServerImpl.getTimerWheel().schedule(new ResultExpirationTask(jobId, this),
+                delayMillis, TimeUnit.MILLISECONDS, "Result expiration of the job "+jobId+" of the session "+token));
+    }
+
     /**
      * If there is no more running job and no result in the cache list, schedule the session inactivity
      */
-    private void scheduleInactivity() {
-        if(statusInfoList.isEmpty() && finishedJobMap.isEmpty()){
-            resultExpirationExecutor.schedule(new InactiveSessionTask(this), expirationTimeMillis, TimeUnit.MILLISECONDS);
+    private synchronized void scheduleInactivity() {
+        if(jobStore.size() == 0 && expirationTimeMillis >= 0){
+            cancelInactivity();
+            inactivityTimeout = baseServerImpl.getTimerWheel().schedule(new InactiveSessionTask(this),
+                    expirationTimeMillis, TimeUnit.MILLISECONDS, "Inactivity of the session "+token);
+        }
+    }
+
+    /**
+     * Cancels the scheduled session inactivity, if any.
+     */
+    private synchronized void cancelInactivity() {
+        if(inactivityTimeout != null){
+            inactivityTimeout.cancel();
+            inactivityTimeout = null;
+        }
+    }
+
+    /**
+     * Records a client request on the session, delaying its hibernation.
+     */
+    public void touch(){
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns true if the session is hibernated. A hibernated session should be rehydrated before being used.
+     * @return True if the session is hibernated, false otherwise.
+     */
+    public boolean isHibernated(){
+        return hibernated;
+    }
+
+    /**
+     * Schedules the hibernation check of the session, if the session can hibernate and no check is scheduled.
+     * @param delayMillis Delay before the check in milliseconds.
+     */
+    private synchronized void scheduleHibernation(long delayMillis){
+        if(hibernationTimeMillis > 0 && hibernationTimeout == null){
+            hibernationTimeout = baseServerImpl.getTimerWheel().schedule(new HibernationTask(this), delayMillis,
+                    TimeUnit.MILLISECONDS, "Hibernation of the session "+token);
+        }
+    }
+
+    /**
+     * Cancels the hibernation check of the session.
+     */
+    private synchronized void cancelHibernation(){
+        if(hibernationTimeout != null){
+            hibernationTimeout.cancel();
+            hibernationTimeout = null;
+        }
+    }
+
+    /**
+     * Hibernates the session if it has not been used for the hibernation time, otherwise schedules the next check.
+     */
+    private synchronized void checkHibernation(){
+        hibernationTimeout = null;
+        if(hibernated || state.get() == State.KILLED){
+            return;
+        }
+        long idle = System.currentTimeMillis() - lastAccessMillis;
+        if(idle >= hibernationTimeMillis && hibernate()){
+            return;
+        }
+        scheduleHibernation(idle >= hibernationTimeMillis ? hibernationTimeMillis : hibernationTimeMillis - idle);
+    }
+
+    /**
+     * Hibernates the session : the metadata of the finished jobs are saved in the workspace, the database is shut
+     * down, the executor is released and the services are dropped. The session can not hibernate while it is
+     * initializing or while it has running jobs.
+     * @return True if the session has been hibernated, false otherwise.
+     */
+    public synchronized boolean hibernate(){
+        if(hibernated || !isReady() || !jobIdServiceMap.isEmpty()){
+            return false;
+        }
+        List<StatusInfo> finishedJobs = jobStore.getSnapshot().getJobList();
+        if(!JobMetadataFile.save(workspaceFolder, finishedJobs)){
+            return false;
+        }
+        //The session is not ready anymore until its rehydration
+        readyFuture = new CompletableFuture<>();
+        hibernated = true;
+        long lastExpirationMillis = System.currentTimeMillis();
+        for(StatusInfo info : finishedJobs){
+            if(info.getResult() != null && info.getResult().getExpirationDate() != null){
+                lastExpirationMillis = Math.max(lastExpirationMillis,
+                        info.getResult().getExpirationDate().toGregorianCalendar().getTimeInMillis());
+            }
+            else {
+                //The jobs without result expire with their timer
+                TimerWheel.Timeout timeout = resultExpirationMap.get(info.getJobId());
+                if(timeout != null){
+                    lastExpirationMillis = Math.max(lastExpirationMillis,
+                            System.currentTimeMillis() + timeout.getDelay(TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+        for(TimerWheel.Timeout timeout : resultExpirationMap.values()){
+            timeout.cancel();
+        }
+        resultExpirationMap.clear();
+        jobStore.clear();
+        //The session becomes inactive once all its saved results are expired
+        cancelInactivity();
+        if(expirationTimeMillis >= 0) {
+            inactivityTimeout = baseServerImpl.getTimerWheel().schedule(new InactiveSessionTask(this),
+                    lastExpirationMillis - System.currentTimeMillis() + expirationTimeMillis, TimeUnit.MILLISECONDS,
+                    "Inactivity of the session "+token);
+        }
+        shutdownDatabase();
+        executorService.shutdownNow();
+        for(Service service : serviceList){
+            service.shutdown();
+        }
+        setServiceList(new ArrayList<Service>());
+        ds = null;
+        LOGGER.info("Session "+token+" hibernated.");
+        return true;
+    }
+
+    /**
+     * Starts the rehydration of a hibernated session by restoring the finished jobs saved in the workspace. The
+     * database, the executor and the services should then be recreated with a SessionInitializer, which marks the
+     * session as ready.
+     * @return True if the session was hibernated and should be initialized again, false otherwise.
+     */
+    public synchronized boolean rehydrate(){
+        if(!hibernated){
+            return false;
+        }
+        hibernated = false;
+        cancelInactivity();
+        long timeMillisNow = System.currentTimeMillis();
+        for(StatusInfo info : JobMetadataFile.load(workspaceFolder)){
+            //The jobs without result are kept again for the default time
+            long delay = getExpirationDelayMillis(info.getResult(), timeMillisNow);
+            if(delay > 0){
+                jobStore.put(info);
+                scheduleResultExpiration(info.getJobId(), delay);
+            }
+        }
+        touch();
+        scheduleHibernation(hibernationTimeMillis);
+        LOGGER.info("Session "+token+" rehydrated.");
+        return true;
+    }
+
+    /**
+     * Shuts down the H2 database of the session, closing its file.
+     */
+    private void shutdownDatabase(){
+        if(ds == null){
+            return;
+        }
+        try (Connection connection = ds.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            LOGGER.error("Unable to shut down the session database.\n"+e.getMessage());
         }
     }
 
@@ -505,15 +1098,42 @@ public class Session {
      * Shutdown the session of free resources.
      */
     public void shutdown(){
-        try {
-            ds.getConnection().close();
-        } catch (SQLException ignored) {}
+        isActive = false;
+        //The session is closed, so its timers should not run anymore, even if it is initializing or hibernated
+        state.set(State.KILLED);
+        cancelHibernation();
+        cancelInactivity();
+        //The session may be shutdown before the end of its initialization, its resources are then released by setReady
+        if(readyFuture.cancel(false) || !isReady()){
+            return;
+        }
+        releaseResources();
+    }
+
+    /**
+     * Releases the resources of the session : database, executor and services.
+     */
+    private void releaseResources(){
+        if(ds != null) {
+            try {
+                ds.getConnection().close();
+            } catch (SQLException ignored) {}
+        }
         executorService.shutdownNow();
         for(Service service : serviceList){
             service.shutdown();
         }
-        resultExpirationExecutor.purge();
-        isActive = false;
+        for(TimerWheel.Timeout timeout : resultExpirationMap.values()){
+            timeout.cancel();
+        }
+        resultExpirationMap.clear();
+        for(AdmissionController.Admission admission : admissionMap.values()){
+            admission.release();
+        }
+        admissionMap.clear();
+        baseServerImpl.cancelStatusRefreshes(this);
+        cancelInactivity();
+        cancelHibernation();
     }
 
     /**
@@ -523,12 +1143,15 @@ public class Session {
     public void shutdownService(Class serviceClass){
         Service toRemove = null;
         for(Service service : serviceList){
-            if(serviceClass.isInstance(service)){
+            if(serviceClass.isInstance(service) || getServiceClass(service) == serviceClass){
                 service.shutdown();
                 toRemove = service;
             }
         }
         serviceList.remove(toRemove);
+        if(toRemove != null) {
+            serviceMap.remove(getServiceClass(toRemove));
+        }
     }
 
     /**
@@ -548,12 +1171,31 @@ public class Session {
 
         @Override
         public void run() {
-            //Removes the job from the finished map
-            finishedJobMap.remove(jobId);
+            //Removes the job from the store
+            resultExpirationMap.remove(jobId);
+            jobStore.remove(jobId);
+            baseServerImpl.fireJobRemoved(session, jobId);
             session.scheduleInactivity();
         }
     }
 
+    /**
+     * Task checking the hibernation of the session.
+     */
+    private class HibernationTask implements Runnable{
+
+        private Session session;
+
+        public HibernationTask(Session session){
+            this.session = session;
+        }
+
+        @Override
+        public void run() {
+            session.checkHibernation();
+        }
+    }
+
     /**
      * Task making the session inactive.
      */
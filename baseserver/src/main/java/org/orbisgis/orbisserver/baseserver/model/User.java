@@ -39,9 +39,98 @@
 package org.orbisgis.orbisserver.baseserver.model;
 
 /**
- * User registered in the server
+ * User registered in the server, as stored in the session_table of the administration database.
+ * A User object is immutable, a modification of the user gives a new object.
  *
  * @author Sylvain PALOMINOS
  */
 public class User {
+
+    /** Primary key of the user in the session_table. */
+    private final int id;
+    /** Name of the user. */
+    private final String username;
+    /** Password of the user. */
+    private final String password;
+    /** Time before the expiration of the user session in milliseconds. */
+    private final long expirationTime;
+    /** Size of the job pool of the user session. */
+    private final int poolSize;
+    /** Maximum number of jobs of the user queued or running. If 0 or less, there is no limit. */
+    private final int maxQueuedJobs;
+
+    /**
+     * Main constructor.
+     * @param id Primary key of the user.
+     * @param username Name of the user.
+     * @param password Password of the user.
+     * @param expirationTime Time before the expiration of the user session in milliseconds.
+     * @param poolSize Size of the job pool of the user session.
+     * @param maxQueuedJobs Maximum number of jobs of the user queued or running. If 0 or less, there is no limit.
+     */
+    public User(int id, String username, String password, long expirationTime, int poolSize, int maxQueuedJobs){
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.expirationTime = expirationTime;
+        this.poolSize = poolSize;
+        this.maxQueuedJobs = maxQueuedJobs;
+    }
+
+    /**
+     * Returns the primary key of the user.
+     * @return The primary key of the user.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the user.
+     * @return The name of the user.
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Returns the password of the user.
+     * @return The password of the user.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Returns the time before the expiration of the user session in milliseconds.
+     * @return The expiration time.
+     */
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * Returns the size of the job pool of the user session.
+     * @return The job pool size.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Returns the maximum number of jobs of the user queued or running.
+     * @return The maximum job count, 0 or less if there is no limit.
+     */
+    public int getMaxQueuedJobs() {
+        return maxQueuedJobs;
+    }
+
+    /**
+     * Returns a copy of the user with the given password.
+     * @param password New password.
+     * @return A copy of the user with the new password.
+     */
+    public User withPassword(String password) {
+        return new User(id, username, password, expirationTime, poolSize, maxQueuedJobs);
+    }
 }
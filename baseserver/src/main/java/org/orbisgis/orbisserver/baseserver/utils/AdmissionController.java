@@ -0,0 +1,224 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control of the job submissions, bounding the number of jobs queued or running for each user and for the
+ * whole server.
+ *
+ * Each admitted job holds a slot in the queue of its user and in the queue of the server until it is released, once
+ * the job is finished or can not be executed. A submission is refused if one of the two queues is full. A refused job
+ * is not queued : the refusal gives the position the job would have had in the full queue with the size of this queue,
+ * and an estimation of the time before a slot is freed computed from the mean time spent by the jobs in the queues.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class AdmissionController {
+
+    /** Mean time spent by a job in the queues in milliseconds, used until a job is released. */
+    private static final long INITIAL_JOB_MILLIS = 5000;
+    /** Weight of the last released job in the mean time spent in the queues. */
+    private static final double JOB_MILLIS_SMOOTHING = 0.2;
+
+    /** Maximum number of jobs of the server. If 0 or less, there is no limit. */
+    private final int serverMaxJobs;
+    /** Number of admitted jobs of the server. */
+    private int serverJobs = 0;
+    /** Number of admitted jobs with the user key as key. */
+    private final Map<String, Integer> userJobMap = new HashMap<>();
+    /** Mean time spent by a job in the queues in milliseconds. */
+    private double meanJobMillis = INITIAL_JOB_MILLIS;
+
+    /**
+     * Main constructor.
+     * @param serverMaxJobs Maximum number of jobs of the server. If 0 or less, there is no limit.
+     */
+    public AdmissionController(int serverMaxJobs){
+        this.serverMaxJobs = serverMaxJobs;
+    }
+
+    /**
+     * Requests the admission of a job.
+     * @param userKey Key of the user submitting the job.
+     * @param userMaxJobs Maximum number of jobs of the user. If 0 or less, there is no limit.
+     * @return The admission, which should be released once the job is finished if it is admitted.
+     */
+    public synchronized Admission admit(String userKey, int userMaxJobs){
+        Integer count = userJobMap.get(userKey);
+        int userJobs = count != null ? count : 0;
+        if(userMaxJobs > 0 && userJobs >= userMaxJobs){
+            return refuse(userJobs, userMaxJobs);
+        }
+        if(serverMaxJobs > 0 && serverJobs >= serverMaxJobs){
+            return refuse(serverJobs, serverMaxJobs);
+        }
+        userJobMap.put(userKey, userJobs + 1);
+        serverJobs++;
+        return new Admission(userKey, true, userJobs + 1, userMaxJobs, 0);
+    }
+
+    /**
+     * Builds the refusal of a job submitted on a full queue.
+     * @param jobs Number of jobs in the queue.
+     * @param maxJobs Maximum number of jobs of the queue.
+     * @return The refused admission.
+     */
+    private Admission refuse(int jobs, int maxJobs){
+        //The slots of the queue are freed in parallel
+        double retryMillis = meanJobMillis * (jobs - maxJobs + 1) / maxJobs;
+        long retrySeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds((long) Math.ceil(retryMillis) + 999));
+        return new Admission(null, false, jobs + 1, maxJobs, retrySeconds);
+    }
+
+    /**
+     * Frees the slot of an admitted job.
+     * @param userKey Key of the user of the job.
+     * @param jobMillis Time spent by the job in the queues in milliseconds.
+     */
+    private synchronized void release(String userKey, long jobMillis){
+        Integer count = userJobMap.get(userKey);
+        if(count == null || count <= 1){
+            userJobMap.remove(userKey);
+        }
+        else {
+            userJobMap.put(userKey, count - 1);
+        }
+        serverJobs = Math.max(0, serverJobs - 1);
+        meanJobMillis += JOB_MILLIS_SMOOTHING * (jobMillis - meanJobMillis);
+    }
+
+    /**
+     * Returns the number of admitted jobs of the server.
+     * @return The server job count.
+     */
+    public synchronized int getServerJobs(){
+        return serverJobs;
+    }
+
+    /**
+     * Returns the number of admitted jobs of a user.
+     * @param userKey Key of the user.
+     * @return The user job count.
+     */
+    public synchronized int getUserJobs(String userKey){
+        Integer count = userJobMap.get(userKey);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Admission of a job, holding a slot in the queues until released if the job is admitted.
+     */
+    public class Admission {
+        /** Key of the user of the job, null if the job is refused. */
+        private final String userKey;
+        /** True if the job is admitted. */
+        private final boolean admitted;
+        /** Position of the job in the queue of its user, or the position it would have had in the full queue if the
+         * job is refused. */
+        private final int queuePosition;
+        /** Maximum number of jobs of the queue, 0 or less if there is no limit. */
+        private final int queueLimit;
+        /** Estimated time before a slot is freed in seconds, 0 if the job is admitted. */
+        private final long retryAfterSeconds;
+        /** Time of the admission in nanoseconds. */
+        private final long admissionNanos;
+        /** True once the slot is released. */
+        private final AtomicBoolean released;
+
+        private Admission(String userKey, boolean admitted, int queuePosition, int queueLimit,
+                          long retryAfterSeconds){
+            this.userKey = userKey;
+            this.admitted = admitted;
+            this.queuePosition = queuePosition;
+            this.queueLimit = queueLimit;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.admissionNanos = System.nanoTime();
+            this.released = new AtomicBoolean(!admitted);
+        }
+
+        /**
+         * Returns true if the job is admitted.
+         * @return True if admitted, false otherwise.
+         */
+        public boolean isAdmitted(){
+            return admitted;
+        }
+
+        /**
+         * Returns the position of the job in the queue of its user. A refused job is not queued, so its position is the
+         * one it would have had in the full queue, after the limit of this queue.
+         * @return The queue position, starting at 1.
+         */
+        public int getQueuePosition(){
+            return queuePosition;
+        }
+
+        /**
+         * Returns the maximum number of jobs of the queue of the job, the queue of its user if the job is admitted, or
+         * the full queue if the job is refused.
+         * @return The queue limit, 0 or less if there is no limit.
+         */
+        public int getQueueLimit(){
+            return queueLimit;
+        }
+
+        /**
+         * Returns the estimated time before a slot is freed.
+         * @return The time to wait before submitting the job again in seconds, 0 if the job is admitted.
+         */
+        public long getRetryAfterSeconds(){
+            return retryAfterSeconds;
+        }
+
+        /**
+         * Frees the slot of the job. Only the first call has an effect.
+         */
+        public void release(){
+            if(released.compareAndSet(false, true)){
+                AdmissionController.this.release(userKey,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - admissionNanos));
+            }
+        }
+    }
+}
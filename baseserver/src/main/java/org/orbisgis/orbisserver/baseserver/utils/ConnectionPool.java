@@ -0,0 +1,604 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections built on top of a DataSource.
+ *
+ * The connections given by the pool are proxies : closing them gives back the physical connection to the pool. Each
+ * pooled connection keeps a cache of its prepared statements, so the same SQL query is only prepared once per physical
+ * connection. A prepared statement given by the cache is not really closed when its close() method is called, its
+ * parameters are only cleared.
+ *
+ * Connections which are borrowed longer than the leak threshold are logged with the stack trace of the borrower.
+ * Besides the check done on each borrow, the leak check can be run periodically on a timer wheel, so the leaks are
+ * also reported while the server is idle. A connection still borrowed after ten times the leak threshold is reclaimed :
+ * its physical connection is closed and its place in the pool is given back.
+ * The pool metrics are exposed throw the ConnectionPoolMBean interface.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class ConnectionPool implements ConnectionPoolMBean {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+    /** Maximum number of prepared statements cached by physical connection. */
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    /** Timeout in seconds of the connection validation. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    /** Number of leak thresholds after which a leaked connection is reclaimed. */
+    private static final int LEAK_RECLAIM_FACTOR = 10;
+
+    /** Name of the pool, used for the JMX registration. */
+    private final String name;
+    /** DataSource providing the physical connections. */
+    private final DataSource dataSource;
+    /** Maximum number of connections. */
+    private final int maxConnections;
+    /** Maximum time to wait for a connection in milliseconds. */
+    private final long waitTimeoutMillis;
+    /** Time in milliseconds after which a borrowed connection is considered as leaked. -1 to disable the detection. */
+    private final long leakThresholdMillis;
+    /** Permits limiting the number of borrowed connections. */
+    private final Semaphore permits;
+    /** Physical connections waiting to be borrowed. */
+    private final Deque<PooledConnection> idleConnections;
+    /** Connections currently borrowed. */
+    private final Set<PooledConnection> borrowedConnections;
+
+    /** Metrics. */
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /** Name used for the JMX registration, null if not registered. */
+    private ObjectName objectName;
+    /** True if the pool is closed. */
+    private volatile boolean closed = false;
+    /** Timer wheel running the periodic leak check, null if not started. */
+    private TimerWheel timerWheel;
+    /** Timer of the next leak check, null if not scheduled. */
+    private TimerWheel.Timeout leakCheckTimeout;
+
+    /**
+     * Main constructor.
+     * @param name Name of the pool.
+     * @param dataSource DataSource providing the physical connections.
+     * @param maxConnections Maximum number of connections.
+     * @param waitTimeoutMillis Maximum time to wait for a connection in milliseconds.
+     * @param leakThresholdMillis Time in milliseconds after which a borrowed connection is considered as leaked.
+     *                            -1 to disable the leak detection.
+     */
+    public ConnectionPool(String name, DataSource dataSource, int maxConnections, long waitTimeoutMillis,
+                          long leakThresholdMillis){
+        this.name = name;
+        this.dataSource = dataSource;
+        this.maxConnections = maxConnections;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxConnections, true);
+        this.idleConnections = new ConcurrentLinkedDeque<>();
+        this.borrowedConnections = Collections.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+    }
+
+    /**
+     * Registers the pool in the platform MBean server in order to expose its metrics.
+     */
+    public void registerMBean(){
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.orbisgis.orbisserver:type=ConnectionPool,name=" + name);
+            if(!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register the connection pool '"+name+"' on JMX.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the leak detection periodically on the given timer wheel, every leak threshold. Does nothing if the leak
+     * detection is disabled.
+     * @param timerWheel Timer wheel running the check.
+     */
+    public synchronized void startLeakCheck(TimerWheel timerWheel){
+        if(leakThresholdMillis < 0 || closed){
+            return;
+        }
+        this.timerWheel = timerWheel;
+        scheduleLeakCheck();
+    }
+
+    /**
+     * Schedules the next leak check.
+     */
+    private synchronized void scheduleLeakCheck(){
+        if(timerWheel != null && !closed) {
+            leakCheckTimeout = timerWheel.schedule(new LeakCheckTask(), Math.max(1000, leakThresholdMillis),
+                    TimeUnit.MILLISECONDS, "Leak check of the connection pool '" + name + "'");
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool. The connection should be closed once used to give it back to the pool.
+     * @return A connection.
+     * @throws SQLException Exception thrown if no connection is available before the wait timeout or if the
+     * connection can not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if(closed){
+            throw new SQLException("The connection pool '"+name+"' is closed.");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        waitingThreads.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+        recordWait(System.nanoTime() - start);
+        if(!acquired){
+            timeoutCount.incrementAndGet();
+            detectLeaks();
+            throw new SQLException("No connection available in the pool '"+name+"' after "+waitTimeoutMillis+" ms.");
+        }
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if(pooled == null){
+                pooled = new PooledConnection(dataSource.getConnection());
+            }
+            pooled.borrow();
+            borrowedConnections.add(pooled);
+            borrowCount.incrementAndGet();
+            detectLeaks();
+            return pooled.getProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a valid idle connection or null if there is none.
+     * @return A valid idle connection or null.
+     */
+    private PooledConnection takeIdleConnection(){
+        PooledConnection pooled = idleConnections.pollFirst();
+        while(pooled != null){
+            try {
+                if(pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS)){
+                    return pooled;
+                }
+            } catch (SQLException ignored) {}
+            pooled.closePhysical();
+            pooled = idleConnections.pollFirst();
+        }
+        return null;
+    }
+
+    /**
+     * Gives back a connection to the pool.
+     * @param pooled Connection to give back.
+     */
+    private void release(PooledConnection pooled){
+        borrowedConnections.remove(pooled);
+        try {
+            boolean reusable = !closed && !pooled.connection.isClosed();
+            if(reusable && !pooled.connection.getAutoCommit()){
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if(reusable){
+                pooled.connection.clearWarnings();
+                idleConnections.offerFirst(pooled);
+            }
+            else{
+                pooled.closePhysical();
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to reset a pooled connection, it is discarded.\n"+e.getMessage());
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Logs the connections borrowed for longer than the leak threshold. Each leak is only logged once.
+     */
+    private void detectLeaks(){
+        if(leakThresholdMillis < 0){
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for(PooledConnection pooled : borrowedConnections){
+            if(!pooled.leakReported && now - pooled.borrowTimeMillis > leakThresholdMillis){
+                pooled.leakReported = true;
+                leakCount.incrementAndGet();
+                LOGGER.warn("Connection of the pool '"+name+"' borrowed since "+(now - pooled.borrowTimeMillis)+
+                        " ms without being closed, it may have leaked.", pooled.borrowTrace);
+            }
+        }
+    }
+
+    /**
+     * Reclaims the connections borrowed for longer than the leak reclaim time. Their physical connection is closed,
+     * so their borrower gets an error on its next use.
+     */
+    private void reclaimLeaks(){
+        long now = System.currentTimeMillis();
+        for(PooledConnection pooled : borrowedConnections){
+            if(now - pooled.borrowTimeMillis > leakThresholdMillis * LEAK_RECLAIM_FACTOR && pooled.giveBack()){
+                LOGGER.warn("Leaked connection of the pool '"+name+"' reclaimed after "+
+                        (now - pooled.borrowTimeMillis)+" ms.");
+                pooled.closePhysical();
+                release(pooled);
+            }
+        }
+    }
+
+    /**
+     * Records the time spent by a thread waiting for a connection.
+     * @param waitNanos Wait time in nanoseconds.
+     */
+    private void recordWait(long waitNanos){
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while(waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)){
+            max = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * Closes the pool : the idle connections are closed and the borrowed one will be closed once given back.
+     */
+    public void close(){
+        closed = true;
+        synchronized (this) {
+            if(leakCheckTimeout != null){
+                leakCheckTimeout.cancel();
+                leakCheckTimeout = null;
+            }
+            timerWheel = null;
+        }
+        PooledConnection pooled = idleConnections.pollFirst();
+        while(pooled != null){
+            pooled.closePhysical();
+            pooled = idleConnections.pollFirst();
+        }
+        if(objectName != null){
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {}
+            objectName = null;
+        }
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return borrowedConnections.size();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    @Override
+    public double getMeanWaitTimeMillis() {
+        long count = borrowCount.get() + timeoutCount.get();
+        if(count == 0){
+            return 0;
+        }
+        return (double)TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()) / 1000 / count;
+    }
+
+    @Override
+    public long getMaxWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Task reporting and reclaiming the leaked connections, then scheduling the next check.
+     */
+    private class LeakCheckTask implements Runnable {
+        @Override
+        public void run() {
+            detectLeaks();
+            reclaimLeaks();
+            scheduleLeakCheck();
+        }
+    }
+
+    /**
+     * Physical connection of the pool with its prepared statement cache. It is the handler of the connection proxy
+     * given to the pool users.
+     */
+    private class PooledConnection implements InvocationHandler {
+
+        /** Physical connection. */
+        private final Connection connection;
+        /** Proxy given to the pool users. */
+        private final Connection proxy;
+        /** Cache of the prepared statements with the SQL query as key. Only used by the borrower thread. */
+        private final Map<String, PreparedStatement> statementCache;
+        /** True if the connection is borrowed. */
+        private volatile boolean borrowed = false;
+        /** Time of the last borrow. */
+        private volatile long borrowTimeMillis;
+        /** Trace of the last borrower, used for the leak detection. */
+        private volatile Throwable borrowTrace;
+        /** True if the current borrow has already been reported as a leak. */
+        private volatile boolean leakReported;
+
+        /**
+         * Main constructor.
+         * @param connection Physical connection.
+         */
+        private PooledConnection(Connection connection){
+            this.connection = connection;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[]{Connection.class}, this);
+            this.statementCache = new LinkedHashMap<String, PreparedStatement>(STATEMENT_CACHE_SIZE, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if(size() > STATEMENT_CACHE_SIZE){
+                        try {
+                            eldest.getValue().close();
+                        } catch (SQLException ignored) {}
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Marks the connection as borrowed.
+         */
+        private void borrow(){
+            borrowTimeMillis = System.currentTimeMillis();
+            borrowTrace = leakThresholdMillis < 0 ? null : new Throwable("Connection borrowed here");
+            leakReported = false;
+            borrowed = true;
+        }
+
+        /**
+         * Marks the connection as given back.
+         * @return True if the connection was borrowed, false if it has already been given back.
+         */
+        private synchronized boolean giveBack(){
+            if(!borrowed){
+                return false;
+            }
+            borrowed = false;
+            return true;
+        }
+
+        /**
+         * Returns the proxy of the connection.
+         * @return The connection proxy.
+         */
+        private Connection getProxy(){
+            return proxy;
+        }
+
+        /**
+         * Closes the physical connection and its cached statements.
+         */
+        private void closePhysical(){
+            for(PreparedStatement statement : statementCache.values()){
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {}
+            }
+            statementCache.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {}
+        }
+
+        /**
+         * Returns the cached prepared statement of the given query, preparing it if it is not cached.
+         * @param sql SQL query.
+         * @return A proxy of the cached prepared statement.
+         * @throws SQLException Exception thrown if the statement can not be prepared.
+         */
+        private PreparedStatement prepareCachedStatement(String sql) throws SQLException {
+            PreparedStatement statement = statementCache.get(sql);
+            if(statement != null && !statement.isClosed()){
+                statementCacheHits.incrementAndGet();
+            }
+            else {
+                statementCacheMisses.incrementAndGet();
+                statement = connection.prepareStatement(sql);
+                statementCache.put(sql, statement);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class[]{PreparedStatement.class}, new CachedStatement(sql, statement, proxy));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    if (giveBack()) {
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return !borrowed || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + connection.toString();
+            }
+            if (!borrowed) {
+                throw new SQLException("The connection has already been given back to the pool.");
+            }
+            if (methodName.equals("prepareStatement") && args != null && args.length == 1) {
+                return prepareCachedStatement((String) args[0]);
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Handler of the prepared statement proxy : closing the statement only clears its parameters.
+         */
+        private class CachedStatement implements InvocationHandler {
+
+            /** SQL query of the statement. */
+            private final String sql;
+            /** Cached prepared statement. */
+            private final PreparedStatement statement;
+            /** Connection proxy which has given the statement. */
+            private final Connection connectionProxy;
+
+            private CachedStatement(String sql, PreparedStatement statement, Connection connectionProxy){
+                this.sql = sql;
+                this.statement = statement;
+                this.connectionProxy = connectionProxy;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        try {
+                            statement.clearParameters();
+                        } catch (SQLException e) {
+                            statementCache.remove(sql);
+                            statement.close();
+                        }
+                        return null;
+                    case "getConnection":
+                        return connectionProxy;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                }
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+/**
+ * JMX management interface of the ConnectionPool, giving access to the pool metrics.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public interface ConnectionPoolMBean {
+
+    /**
+     * Returns the maximum number of connections of the pool.
+     * @return The maximum number of connections.
+     */
+    int getMaxConnections();
+
+    /**
+     * Returns the number of connections currently borrowed.
+     * @return The number of active connections.
+     */
+    int getActiveConnections();
+
+    /**
+     * Returns the number of opened connections waiting in the pool.
+     * @return The number of idle connections.
+     */
+    int getIdleConnections();
+
+    /**
+     * Returns the number of threads currently waiting for a connection.
+     * @return The number of waiting threads.
+     */
+    int getWaitingThreads();
+
+    /**
+     * Returns the number of connections borrowed since the pool creation.
+     * @return The borrow count.
+     */
+    long getBorrowCount();
+
+    /**
+     * Returns the mean time spent waiting for a connection in milliseconds.
+     * @return The mean wait time.
+     */
+    double getMeanWaitTimeMillis();
+
+    /**
+     * Returns the maximum time spent waiting for a connection in milliseconds.
+     * @return The maximum wait time.
+     */
+    long getMaxWaitTimeMillis();
+
+    /**
+     * Returns the number of connection requests which have timed out.
+     * @return The timeout count.
+     */
+    long getTimeoutCount();
+
+    /**
+     * Returns the number of connections detected as leaked, i.e. borrowed for longer than the leak threshold.
+     * @return The leak count.
+     */
+    long getLeakCount();
+
+    /**
+     * Returns the number of prepared statements reused from the statement cache.
+     * @return The statement cache hit count.
+     */
+    long getStatementCacheHits();
+
+    /**
+     * Returns the number of prepared statements created because they were not in the statement cache.
+     * @return The statement cache miss count.
+     */
+    long getStatementCacheMisses();
+}
@@ -0,0 +1,179 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of rendered views, evicting the least recently used one once full.
+ *
+ * The key of a view should contain everything its content depends on, like the catalog version, the template and the
+ * filter. Each view keeps the time it has been rendered and an entity tag derived from its key, so the clients can be
+ * answered with 304 while the key does not change.
+ *
+ * @param <V> Type of the rendered views.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class FragmentCache<V> {
+
+    /** Cached views in access order. */
+    private final LinkedHashMap<String, Fragment<V>> fragmentMap;
+    /** Number of lookups finding a view. */
+    private long hitCount = 0;
+    /** Number of lookups not finding a view. */
+    private long missCount = 0;
+
+    /**
+     * Main constructor.
+     * @param maxSize Maximum number of cached views. If 0 or less, nothing is cached.
+     */
+    public FragmentCache(final int maxSize){
+        this.fragmentMap = new LinkedHashMap<String, Fragment<V>>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Fragment<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the view cached with the given key.
+     * @param key Key of the view.
+     * @return The cached view, null if there is none.
+     */
+    public synchronized Fragment<V> get(String key){
+        Fragment<V> fragment = fragmentMap.get(key);
+        if(fragment == null){
+            missCount++;
+        }
+        else{
+            hitCount++;
+        }
+        return fragment;
+    }
+
+    /**
+     * Caches a view.
+     * @param key Key of the view.
+     * @param content Rendered view.
+     * @return The cached view.
+     */
+    public synchronized Fragment<V> put(String key, V content){
+        Fragment<V> fragment = new Fragment<>(content, System.currentTimeMillis(),
+                "\"" + Integer.toHexString(key.hashCode()) + "-" + Integer.toHexString(key.length()) + "\"");
+        fragmentMap.put(key, fragment);
+        return fragment;
+    }
+
+    /**
+     * Removes all the cached views.
+     */
+    public synchronized void clear(){
+        fragmentMap.clear();
+    }
+
+    /**
+     * Returns the number of cached views.
+     * @return The cached view count.
+     */
+    public synchronized int size(){
+        return fragmentMap.size();
+    }
+
+    /**
+     * Returns the number of lookups which have found a view.
+     * @return The hit count.
+     */
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups which have not found a view.
+     * @return The miss count.
+     */
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+
+    /**
+     * Rendered view with its validators.
+     * @param <V> Type of the rendered view.
+     */
+    public static class Fragment<V> {
+        /** Rendered view. */
+        private final V content;
+        /** Time of the rendering in milliseconds. */
+        private final long lastModifiedMillis;
+        /** Entity tag of the view. */
+        private final String etag;
+
+        private Fragment(V content, long lastModifiedMillis, String etag){
+            this.content = content;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.etag = etag;
+        }
+
+        /**
+         * Returns the rendered view.
+         * @return The view.
+         */
+        public V getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the time of the rendering.
+         * @return The rendering time in milliseconds.
+         */
+        public long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+
+        /**
+         * Returns the entity tag of the view, quoted.
+         * @return The entity tag.
+         */
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.Data;
+import org.orbisgis.orbisserver.api.model.Output;
+import org.orbisgis.orbisserver.api.model.Result;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * File of the session workspace keeping the metadata of the finished jobs and of their results while the session is
+ * hibernated. The metadata are written as a properties file, the data contents being saved as strings.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public final class JobMetadataFile {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobMetadataFile.class);
+
+    /** Name of the file in the session workspace. */
+    public static final String FILE_NAME = "jobs.properties";
+
+    private JobMetadataFile(){}
+
+    /**
+     * Writes the metadata of the jobs in the workspace folder.
+     * @param workspaceFolder Workspace folder of the session.
+     * @param jobs StatusInfo of the jobs to save.
+     * @return True if the file has been written, false otherwise.
+     */
+    public static boolean save(File workspaceFolder, Collection<StatusInfo> jobs){
+        Properties properties = new Properties();
+        int jobIndex = 0;
+        for(StatusInfo info : jobs){
+            String jobKey = "job." + jobIndex++ + ".";
+            put(properties, jobKey + "id", info.getJobId());
+            put(properties, jobKey + "processId", info.getProcessID());
+            put(properties, jobKey + "processTitle", info.getProcessTitle());
+            put(properties, jobKey + "status", info.getStatus());
+            if(info.getPercentCompleted() != null) {
+                put(properties, jobKey + "percent", info.getPercentCompleted().toString());
+            }
+            Result result = info.getResult();
+            if(result == null){
+                continue;
+            }
+            if(result.getExpirationDate() != null) {
+                put(properties, jobKey + "expirationDate", result.getExpirationDate().toXMLFormat());
+            }
+            List<Output> outputList = result.getOutputList();
+            for(int i = 0; outputList != null && i < outputList.size(); i++){
+                Output output = outputList.get(i);
+                String outputKey = jobKey + "output." + i + ".";
+                put(properties, outputKey + "id", output.getId());
+                put(properties, outputKey + "title", output.getTitle());
+                put(properties, outputKey + "reference", output.getReference());
+                if(output.getData() != null){
+                    put(properties, outputKey + "mimeType", output.getData().getMimeType());
+                    List<Object> content = output.getData().getContent();
+                    for(int j = 0; content != null && j < content.size(); j++){
+                        put(properties, outputKey + "content." + j, String.valueOf(content.get(j)));
+                    }
+                }
+            }
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(workspaceFolder, FILE_NAME)), StandardCharsets.UTF_8)) {
+            properties.store(writer, "Jobs of the hibernated session");
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("Unable to save the jobs of the session.\n"+e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Reads the metadata of the jobs from the workspace folder and deletes the file.
+     * @param workspaceFolder Workspace folder of the session.
+     * @return The StatusInfo of the saved jobs, empty if there is no file.
+     */
+    public static List<StatusInfo> load(File workspaceFolder){
+        List<StatusInfo> jobs = new ArrayList<>();
+        File file = new File(workspaceFolder, FILE_NAME);
+        if(!file.exists()){
+            return jobs;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            LOGGER.error("Unable to load the jobs of the session.\n"+e.getMessage());
+            return jobs;
+        }
+        DatatypeFactory datatypeFactory;
+        try {
+            datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            LOGGER.error("Unable to read the result expiration dates.\n"+e.getMessage());
+            return jobs;
+        }
+        for(int jobIndex = 0; properties.containsKey("job." + jobIndex + ".id"); jobIndex++){
+            String jobKey = "job." + jobIndex + ".";
+            StatusInfo info = new StatusInfo(properties.getProperty(jobKey + "id"));
+            info.setProcessID(properties.getProperty(jobKey + "processId"));
+            info.setProcessTitle(properties.getProperty(jobKey + "processTitle"));
+            info.setStatus(properties.getProperty(jobKey + "status"));
+            if(properties.containsKey(jobKey + "percent")) {
+                info.setPercentCompleted(Integer.parseInt(properties.getProperty(jobKey + "percent")));
+            }
+            info.setNextRefreshMillis(-1);
+            if(properties.containsKey(jobKey + "expirationDate")){
+                Result result = new Result(info.getJobId());
+                result.setExpirationDate(
+                        datatypeFactory.newXMLGregorianCalendar(properties.getProperty(jobKey + "expirationDate")));
+                List<Output> outputList = new ArrayList<>();
+                for(int i = 0; properties.containsKey(jobKey + "output." + i + ".id"); i++){
+                    String outputKey = jobKey + "output." + i + ".";
+                    Output output = new Output(properties.getProperty(outputKey + "id"));
+                    output.setTitle(properties.getProperty(outputKey + "title"));
+                    if(properties.containsKey(outputKey + "reference")) {
+                        output.setReference(properties.getProperty(outputKey + "reference"));
+                    }
+                    if(properties.containsKey(outputKey + "mimeType") || properties.containsKey(outputKey + "content.0")){
+                        Data data = new Data();
+                        data.setMimeType(properties.getProperty(outputKey + "mimeType"));
+                        List<Object> content = new ArrayList<>();
+                        for(int j = 0; properties.containsKey(outputKey + "content." + j); j++){
+                            content.add(properties.getProperty(outputKey + "content." + j));
+                        }
+                        data.setContent(content);
+                        output.setData(data);
+                    }
+                    outputList.add(output);
+                }
+                result.setOutputList(outputList);
+                info.setResult(result);
+            }
+            jobs.add(info);
+        }
+        if(!file.delete()){
+            LOGGER.warn("Unable to delete the file of the session jobs.");
+        }
+        return jobs;
+    }
+
+    /**
+     * Puts a value in the properties if it is not null.
+     */
+    private static void put(Properties properties, String key, String value){
+        if(value != null){
+            properties.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server wide scheduler running the jobs of all the sessions on a fixed number of threads.
+ *
+ * Each session submits its jobs through its own ExecutorService, created with createSessionExecutor(). The threads are
+ * shared between the sessions with a weighted fair sharing : each session has a pass value increased by 1/weight each
+ * time one of its jobs starts, and the next job to run is taken from the session with the lowest pass. A session
+ * becoming busy again starts from the current pass of the scheduler, so an idle session can not save up its share.
+ * The number of jobs running at the same time for a session is limited by its maximum concurrency.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class JobScheduler implements JobSchedulerMXBean {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobScheduler.class);
+
+    /** Lock guarding the state of the scheduler and of its session executors. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Condition signaled when a session has a job which can be started. */
+    private final Condition jobAvailable = lock.newCondition();
+    /** Session executors having a job which can be started, ordered by pass. */
+    private final PriorityQueue<SessionExecutor> readyQueue;
+    /** All the session executors not terminated. */
+    private final Set<SessionExecutor> executors = ConcurrentHashMap.newKeySet();
+    /** Worker threads. */
+    private final List<Thread> workers;
+    /** Pass of the last started job. */
+    private double currentPass = 0;
+    /** Sequence number given to the session executors, used to order the ones with the same pass. */
+    private long sequence = 0;
+    /** True if the scheduler is closed. */
+    private boolean closed = false;
+    /** Name used for the JMX registration, null if not registered. */
+    private ObjectName objectName;
+
+    /**
+     * Main constructor. Starts the worker threads.
+     * @param threadCount Number of threads running the jobs.
+     */
+    public JobScheduler(int threadCount){
+        readyQueue = new PriorityQueue<>(11, new Comparator<SessionExecutor>() {
+            @Override
+            public int compare(SessionExecutor e1, SessionExecutor e2) {
+                int cmp = Double.compare(e1.pass, e2.pass);
+                return cmp != 0 ? cmp : Long.compare(e1.order, e2.order);
+            }
+        });
+        workers = new ArrayList<>();
+        for(int i = 0; i < Math.max(1, threadCount); i++){
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "orbisserver-job-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Creates the ExecutorService of a session.
+     * @param name Name of the session, used in the statistics.
+     * @param poolSize Job pool size of the session, used as weight and as maximum concurrency.
+     * @return The ExecutorService of the session.
+     */
+    public ExecutorService createSessionExecutor(String name, int poolSize){
+        SessionExecutor executor = new SessionExecutor(name, poolSize);
+        executors.add(executor);
+        return executor;
+    }
+
+    /**
+     * Updates the name, the weight and the maximum concurrency of a session executor, for example once the session
+     * is bound to a user.
+     * @param executorService ExecutorService created by this scheduler.
+     * @param name Name of the session, used in the statistics.
+     * @param poolSize Job pool size of the session, used as weight and as maximum concurrency.
+     */
+    public void configure(ExecutorService executorService, String name, int poolSize){
+        if(!(executorService instanceof SessionExecutor) || !executors.contains(executorService)){
+            return;
+        }
+        SessionExecutor executor = (SessionExecutor) executorService;
+        lock.lock();
+        try {
+            executor.name = name;
+            if(executor.inReadyQueue){
+                readyQueue.remove(executor);
+                executor.inReadyQueue = false;
+            }
+            executor.setPoolSize(poolSize);
+            updateReadyQueue(executor);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the worker threads. The jobs not started are dropped.
+     */
+    public void close(){
+        lock.lock();
+        try {
+            closed = true;
+            jobAvailable.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        for(Thread worker : workers){
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Registers the scheduler in the platform MBean server.
+     */
+    public void registerMBean(){
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.orbisgis.orbisserver:type=JobScheduler");
+            if(!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register the job scheduler on JMX.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the scheduler from the platform MBean server.
+     */
+    public void unregisterMBean(){
+        if(objectName != null){
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {}
+            objectName = null;
+        }
+    }
+
+    /**
+     * Main loop of the worker threads.
+     */
+    private void work(){
+        while(true) {
+            SessionExecutor executor;
+            Job job;
+            lock.lock();
+            try {
+                while (!closed && readyQueue.isEmpty()) {
+                    jobAvailable.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                executor = readyQueue.poll();
+                executor.inReadyQueue = false;
+                job = executor.start(Thread.currentThread());
+                currentPass = Math.max(currentPass, executor.pass);
+                executor.pass += 1.0 / executor.weight;
+                updateReadyQueue(executor);
+            }
+            finally {
+                lock.unlock();
+            }
+            try {
+                job.task.run();
+            } catch (Throwable e) {
+                LOGGER.error("Unable to run the job of the session "+executor.name+".\n"+e.getMessage());
+            }
+            lock.lock();
+            try {
+                executor.finish(Thread.currentThread());
+                updateReadyQueue(executor);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds or removes the session executor from the ready queue depending on whether one of its jobs can be started.
+     * Should be called with the lock held.
+     * @param executor Session executor to update.
+     */
+    private void updateReadyQueue(SessionExecutor executor){
+        boolean ready = !executor.jobs.isEmpty() && executor.running < executor.maxConcurrency;
+        if(ready && !executor.inReadyQueue){
+            executor.pass = Math.max(executor.pass, currentPass);
+            readyQueue.add(executor);
+            executor.inReadyQueue = true;
+            jobAvailable.signal();
+        }
+        else if(!ready && executor.inReadyQueue){
+            readyQueue.remove(executor);
+            executor.inReadyQueue = false;
+        }
+    }
+
+    @Override
+    public int getThreadCount() {
+        return workers.size();
+    }
+
+    @Override
+    public int getRunningJobs() {
+        int count = 0;
+        for(SessionExecutor executor : executors){
+            count += executor.getRunningJobs();
+        }
+        return count;
+    }
+
+    @Override
+    public int getQueuedJobs() {
+        int count = 0;
+        for(SessionExecutor executor : executors){
+            count += executor.getQueueDepth();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Integer> getSessionQueueDepths() {
+        Map<String, Integer> map = new TreeMap<>();
+        for(SessionExecutor executor : executors){
+            map.put(executor.getName(), executor.getQueueDepth());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Integer> getSessionRunningJobs() {
+        Map<String, Integer> map = new TreeMap<>();
+        for(SessionExecutor executor : executors){
+            map.put(executor.getName(), executor.getRunningJobs());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getSessionMeanWaitMillis() {
+        Map<String, Double> map = new TreeMap<>();
+        for(SessionExecutor executor : executors){
+            map.put(executor.getName(), executor.getMeanWaitMillis());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getSessionMaxWaitMillis() {
+        Map<String, Long> map = new TreeMap<>();
+        for(SessionExecutor executor : executors){
+            map.put(executor.getName(), executor.getMaxWaitMillis());
+        }
+        return map;
+    }
+
+    /**
+     * Job waiting in a session executor.
+     */
+    private static class Job {
+        private final Runnable task;
+        private final long submitNanos;
+
+        private Job(Runnable task){
+            this.task = task;
+            this.submitNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * ExecutorService of a session. The jobs are queued in the session executor and run by the scheduler threads.
+     */
+    public class SessionExecutor extends AbstractExecutorService {
+
+        /** Jobs waiting to be started, the oldest first. */
+        private final Deque<Job> jobs = new ArrayDeque<>();
+        /** Threads running a job of the session. */
+        private final Set<Thread> runningThreads = new HashSet<>();
+        /** Condition signaled when the executor is terminated. */
+        private final Condition terminated = lock.newCondition();
+        /** Order of creation of the executor. */
+        private final long order;
+        /** Name of the session. */
+        private volatile String name;
+        /** Weight of the session in the fair sharing. */
+        private int weight;
+        /** Maximum number of jobs of the session running at the same time. */
+        private int maxConcurrency;
+        /** Pass of the session in the fair sharing. */
+        private double pass;
+        /** True if the executor is in the ready queue. */
+        private boolean inReadyQueue = false;
+        /** Number of jobs running. */
+        private int running = 0;
+        /** True if the executor is shut down. */
+        private boolean shutdown = false;
+        /** Number of jobs started. */
+        private long startedJobs = 0;
+        /** Total time spent by the started jobs in the queue in nanoseconds. */
+        private long totalWaitNanos = 0;
+        /** Maximum time spent by a started job in the queue in nanoseconds. */
+        private long maxWaitNanos = 0;
+
+        private SessionExecutor(String name, int poolSize){
+            lock.lock();
+            try {
+                this.order = sequence++;
+                this.pass = currentPass;
+            }
+            finally {
+                lock.unlock();
+            }
+            this.name = name;
+            setPoolSize(poolSize);
+        }
+
+        private void setPoolSize(int poolSize){
+            this.weight = Math.max(1, poolSize);
+            this.maxConcurrency = Math.max(1, poolSize);
+        }
+
+        /**
+         * Takes the oldest job and marks it as running. Should be called with the lock held.
+         * @param thread Thread running the job.
+         * @return The job to run.
+         */
+        private Job start(Thread thread){
+            Job job = jobs.poll();
+            long wait = System.nanoTime() - job.submitNanos;
+            startedJobs++;
+            totalWaitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+            running++;
+            runningThreads.add(thread);
+            return job;
+        }
+
+        /**
+         * Marks a job as finished. Should be called with the lock held.
+         * @param thread Thread which has run the job.
+         */
+        private void finish(Thread thread){
+            running--;
+            runningThreads.remove(thread);
+            //Clears a possible interruption from shutdownNow() before running the next job
+            Thread.interrupted();
+            checkTermination();
+        }
+
+        /**
+         * Signals the termination of the executor if it is shut down and has no more job. Should be called with the
+         * lock held.
+         */
+        private void checkTermination(){
+            if(isTerminated()){
+                executors.remove(this);
+                terminated.signalAll();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if(command == null){
+                throw new NullPointerException();
+            }
+            lock.lock();
+            try {
+                if(shutdown || closed){
+                    throw new RejectedExecutionException("The executor of the session "+name+" is shut down.");
+                }
+                jobs.add(new Job(command));
+                updateReadyQueue(this);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                checkTermination();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            lock.lock();
+            try {
+                shutdown = true;
+                List<Runnable> dropped = new ArrayList<>();
+                for(Job job : jobs){
+                    dropped.add(job.task);
+                }
+                jobs.clear();
+                updateReadyQueue(this);
+                for(Thread thread : runningThreads){
+                    thread.interrupt();
+                }
+                checkTermination();
+                return dropped;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            lock.lock();
+            try {
+                return shutdown;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            lock.lock();
+            try {
+                return shutdown && running == 0 && jobs.isEmpty();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            try {
+                while(!isTerminated()){
+                    if(nanos <= 0){
+                        return false;
+                    }
+                    nanos = terminated.awaitNanos(nanos);
+                }
+                return true;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the name of the session.
+         * @return The session name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of jobs waiting to be started.
+         * @return The queue depth.
+         */
+        public int getQueueDepth() {
+            lock.lock();
+            try {
+                return jobs.size();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the number of jobs running.
+         * @return The running job count.
+         */
+        public int getRunningJobs() {
+            lock.lock();
+            try {
+                return running;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the mean time spent in the queue by the started jobs in milliseconds.
+         * @return The mean wait time.
+         */
+        public double getMeanWaitMillis() {
+            lock.lock();
+            try {
+                return startedJobs == 0 ? 0 : (double)TimeUnit.NANOSECONDS.toMicros(totalWaitNanos) / 1000 / startedJobs;
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the maximum time spent in the queue by a started job in milliseconds.
+         * @return The maximum wait time.
+         */
+        public long getMaxWaitMillis() {
+            lock.lock();
+            try {
+                return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+}
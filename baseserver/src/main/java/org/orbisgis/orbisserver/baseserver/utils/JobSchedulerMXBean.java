@@ -0,0 +1,91 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of the JobScheduler, giving access to the job queues of the sessions.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public interface JobSchedulerMXBean {
+
+    /**
+     * Returns the number of threads running the jobs.
+     * @return The thread count.
+     */
+    int getThreadCount();
+
+    /**
+     * Returns the number of jobs running.
+     * @return The running job count.
+     */
+    int getRunningJobs();
+
+    /**
+     * Returns the number of jobs waiting to be started.
+     * @return The queued job count.
+     */
+    int getQueuedJobs();
+
+    /**
+     * Returns the number of jobs waiting to be started for each session.
+     * @return Map with the session name as key and the queue depth as value.
+     */
+    Map<String, Integer> getSessionQueueDepths();
+
+    /**
+     * Returns the number of jobs running for each session.
+     * @return Map with the session name as key and the running job count as value.
+     */
+    Map<String, Integer> getSessionRunningJobs();
+
+    /**
+     * Returns the mean time spent in the queue by the jobs of each session in milliseconds.
+     * @return Map with the session name as key and the mean wait time as value.
+     */
+    Map<String, Double> getSessionMeanWaitMillis();
+
+    /**
+     * Returns the maximum time spent in the queue by a job of each session in milliseconds.
+     * @return Map with the session name as key and the maximum wait time as value.
+     */
+    Map<String, Long> getSessionMaxWaitMillis();
+}
@@ -0,0 +1,294 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent store of the jobs of a session, keyed by job id.
+ *
+ * The store keeps the last StatusInfo of each job, indexed by state and by process id. The jobs keep the order in which
+ * they have been added. Each update increases the
+ * version of the store. The readers get an immutable snapshot of the jobs which is only built again once the version
+ * has changed, so reading an unchanged store does not copy anything. The updates are serialized, the lookups never
+ * wait.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class JobStore {
+
+    /** Jobs with their id as key. */
+    private final Map<String, StatusInfo> jobMap = new ConcurrentHashMap<>();
+    /** Insertion rank of the jobs with their id as key, giving the order of the snapshots. */
+    private final Map<String, Long> rankMap = new ConcurrentHashMap<>();
+    /** Ids of the jobs with their upper case state as key. */
+    private final Map<String, Set<String>> stateIndex = new ConcurrentHashMap<>();
+    /** Ids of the jobs with their process id as key. */
+    private final Map<String, Set<String>> processIndex = new ConcurrentHashMap<>();
+    /** Version of the store, increased on each update. */
+    private volatile long version = 0;
+    /** Last snapshot built. */
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.<StatusInfo>emptyList());
+
+    /**
+     * Adds or replaces the status of a job.
+     * @param statusInfo Status of the job.
+     * @return The previous status of the job, null if the job was not in the store.
+     */
+    public synchronized StatusInfo put(StatusInfo statusInfo){
+        StatusInfo previous = jobMap.put(statusInfo.getJobId(), statusInfo);
+        if(previous != null){
+            unindex(previous);
+        }
+        else{
+            rankMap.put(statusInfo.getJobId(), version);
+        }
+        index(stateIndex, stateKey(statusInfo), statusInfo.getJobId());
+        index(processIndex, statusInfo.getProcessID(), statusInfo.getJobId());
+        version++;
+        return previous;
+    }
+
+    /**
+     * Replaces the status of a job only if the job is still in the store, so a job removed meanwhile is not added back.
+     * @param statusInfo New status of the job.
+     * @return The replaced status, null if the job is not in the store.
+     */
+    public synchronized StatusInfo replace(StatusInfo statusInfo){
+        if(!jobMap.containsKey(statusInfo.getJobId())){
+            return null;
+        }
+        return put(statusInfo);
+    }
+
+    /**
+     * Removes a job.
+     * @param jobId Id of the job.
+     * @return The removed status, null if the job was not in the store.
+     */
+    public synchronized StatusInfo remove(String jobId){
+        StatusInfo previous = jobMap.remove(jobId);
+        if(previous != null){
+            unindex(previous);
+            rankMap.remove(jobId);
+            version++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes all the jobs.
+     */
+    public synchronized void clear(){
+        jobMap.clear();
+        rankMap.clear();
+        stateIndex.clear();
+        processIndex.clear();
+        version++;
+    }
+
+    /**
+     * Returns the status of a job.
+     * @param jobId Id of the job.
+     * @return The status of the job, null if the job is not in the store.
+     */
+    public StatusInfo get(String jobId){
+        return jobMap.get(jobId);
+    }
+
+    /**
+     * Returns the jobs in the given state.
+     * @param state State of the jobs, case insensitive.
+     * @return The list of the jobs in the state.
+     */
+    public List<StatusInfo> getByState(String state){
+        return lookup(stateIndex, state.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the number of jobs in the given state.
+     * @param state State of the jobs, case insensitive.
+     * @return The number of jobs in the state.
+     */
+    public int countByState(String state){
+        Set<String> ids = stateIndex.get(state.toUpperCase(Locale.ROOT));
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Returns the jobs of the given process.
+     * @param processId Id of the process.
+     * @return The list of the jobs of the process.
+     */
+    public List<StatusInfo> getByProcess(String processId){
+        return lookup(processIndex, processId);
+    }
+
+    /**
+     * Returns the number of jobs in the store.
+     * @return The job count.
+     */
+    public int size(){
+        return jobMap.size();
+    }
+
+    /**
+     * Returns the version of the store.
+     * @return The store version.
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Returns an immutable snapshot of the jobs, built again only if the store has changed since the last one.
+     * @return The snapshot of the jobs.
+     */
+    public Snapshot getSnapshot(){
+        Snapshot current = snapshot;
+        long currentVersion = version;
+        if(current.version == currentVersion){
+            return current;
+        }
+        //The jobs updated while copying can be in the snapshot, the next call builds it again anyway
+        List<StatusInfo> jobList = new ArrayList<>(jobMap.values());
+        Collections.sort(jobList, new Comparator<StatusInfo>() {
+            @Override
+            public int compare(StatusInfo s1, StatusInfo s2) {
+                return Long.compare(rank(s1), rank(s2));
+            }
+        });
+        current = new Snapshot(currentVersion, Collections.unmodifiableList(jobList));
+        snapshot = current;
+        return current;
+    }
+
+    /**
+     * Returns the jobs with the ids indexed with the given key.
+     */
+    private List<StatusInfo> lookup(Map<String, Set<String>> indexMap, String key){
+        List<StatusInfo> list = new ArrayList<>();
+        Set<String> ids = key == null ? null : indexMap.get(key);
+        if(ids != null){
+            for(String id : ids){
+                StatusInfo info = jobMap.get(id);
+                if(info != null){
+                    list.add(info);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Removes a job from the indexes. Should be called with the store lock held.
+     */
+    private void unindex(StatusInfo statusInfo){
+        unindex(stateIndex, stateKey(statusInfo), statusInfo.getJobId());
+        unindex(processIndex, statusInfo.getProcessID(), statusInfo.getJobId());
+    }
+
+    private static void index(Map<String, Set<String>> indexMap, String key, String jobId){
+        if(key == null){
+            return;
+        }
+        Set<String> ids = indexMap.get(key);
+        if(ids == null){
+            ids = ConcurrentHashMap.newKeySet();
+            indexMap.put(key, ids);
+        }
+        ids.add(jobId);
+    }
+
+    private static void unindex(Map<String, Set<String>> indexMap, String key, String jobId){
+        if(key == null){
+            return;
+        }
+        Set<String> ids = indexMap.get(key);
+        if(ids != null){
+            ids.remove(jobId);
+            if(ids.isEmpty()){
+                indexMap.remove(key);
+            }
+        }
+    }
+
+    private long rank(StatusInfo statusInfo){
+        Long rank = rankMap.get(statusInfo.getJobId());
+        return rank == null ? Long.MAX_VALUE : rank;
+    }
+
+    private static String stateKey(StatusInfo statusInfo){
+        return statusInfo.getStatus() == null ? null : statusInfo.getStatus().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Immutable list of the jobs of the store at a version.
+     */
+    public static class Snapshot {
+        /** Version of the store. */
+        private final long version;
+        /** Jobs of the store. */
+        private final List<StatusInfo> jobList;
+
+        private Snapshot(long version, List<StatusInfo> jobList){
+            this.version = version;
+            this.jobList = jobList;
+        }
+
+        /**
+         * Returns the version of the store when the snapshot was built.
+         * @return The store version.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the jobs of the store.
+         * @return The unmodifiable list of the jobs.
+         */
+        public List<StatusInfo> getJobList() {
+            return jobList;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.*;
+import org.orbisgis.orbisserver.api.service.AsyncService;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
+import org.orbisgis.orbisserver.api.service.Service;
+import org.orbisgis.orbisserver.api.service.ServiceFactory;
+import org.orbisgis.orbisserver.api.service.SyncServiceAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Service of a session created on its first use. The wrapped service is created by its factory on the first operation
+ * lookup or execution, so the sessions of the users who do not use a service do not pay for it.
+ *
+ * If an idle time is set, the wrapped service is stopped once it has not been used for this time and has no running
+ * job. It is created again on its next use.
+ *
+ * The asynchronous calls are forwarded to the wrapped service if it is an AsyncService, otherwise they are run by the
+ * given executor. The wrapped service is considered in use until their future is completed.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class LazyService implements AsyncService {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyService.class);
+    /** Status of the jobs which are not running anymore. */
+    private static final Set<String> FINAL_STATUS = new HashSet<>(Arrays.asList("SUCCEEDED", "FAILED", "DISMISSED"));
+
+    /** Factory of the wrapped service. */
+    private final ServiceFactory factory;
+    /** Properties of the session used to create the wrapped service. */
+    private Map<String, Object> propertyMap;
+    /** Timer wheel used for the idle check. */
+    private final TimerWheel timerWheel;
+    /** Time after which an unused service is stopped in milliseconds. If 0 or less, the service is never stopped. */
+    private final long idleMillis;
+    /** Executor running the asynchronous calls of a synchronous wrapped service. */
+    private final Executor callExecutor;
+    /** Server wide initialization metrics recording the service creation time, can be null. */
+    private final SessionInitMetrics metrics;
+    /** Wrapped service, null if not started. */
+    private Service service;
+    /** Number of calls in progress on the wrapped service. */
+    private int activeCalls = 0;
+    /** Identifiers of the jobs executed by the wrapped service which have not reached a final status. */
+    private final Set<String> runningJobIds = new HashSet<>();
+    /** Time of the end of the last call in nanoseconds. */
+    private long lastUseNanos;
+    /** Timer of the idle check, null if not scheduled. */
+    private TimerWheel.Timeout idleTimeout;
+    /** True if the service is shut down. */
+    private boolean shutdown = false;
+
+    /**
+     * Main constructor.
+     * @param factory Factory of the wrapped service.
+     * @param propertyMap Properties of the session used to create the wrapped service.
+     * @param timerWheel Timer wheel used for the idle check.
+     * @param idleMillis Time after which an unused service is stopped in milliseconds. If 0 or less, the service is
+     *                   never stopped.
+     * @param callExecutor Executor running the asynchronous calls of a synchronous wrapped service.
+     * @param metrics Server wide initialization metrics recording the service creation time, can be null.
+     */
+    public LazyService(ServiceFactory factory, Map<String, Object> propertyMap, TimerWheel timerWheel, long idleMillis,
+                       Executor callExecutor, SessionInitMetrics metrics){
+        this.factory = factory;
+        this.propertyMap = propertyMap;
+        this.timerWheel = timerWheel;
+        this.idleMillis = idleMillis;
+        this.callExecutor = callExecutor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the class of the wrapped service.
+     * @return The class of the service created by the factory.
+     */
+    public Class getServiceClass(){
+        return factory.getServiceClass();
+    }
+
+    /**
+     * Returns true if the wrapped service is started.
+     * @return True if started, false otherwise.
+     */
+    public synchronized boolean isStarted(){
+        return service != null;
+    }
+
+    /**
+     * Returns the wrapped service, creating it if needed, and marks a call as in progress.
+     * @return The wrapped service.
+     */
+    private synchronized Service acquire(){
+        if(shutdown){
+            throw new IllegalStateException("The service "+factory.getServiceClass().getSimpleName()+" is shut down.");
+        }
+        if(service == null){
+            long start = System.nanoTime();
+            service = factory.createService(propertyMap);
+            long duration = System.nanoTime() - start;
+            if(metrics != null) {
+                metrics.record(SessionInitMetrics.PHASE_SERVICE_PREFIX + factory.getServiceClass().getSimpleName(),
+                        duration);
+            }
+            LOGGER.info("Service "+factory.getServiceClass().getSimpleName()+" started in "+
+                    TimeUnit.NANOSECONDS.toMillis(duration)+" ms.");
+            scheduleIdleCheck(idleMillis);
+        }
+        activeCalls++;
+        return service;
+    }
+
+    /**
+     * Runs an asynchronous call on the wrapped service, which is marked as in use until the call future is completed.
+     * @param call Call to run on the wrapped service.
+     * @return The future of the call.
+     */
+    private <T> CompletableFuture<T> acquireAsync(Function<AsyncService, CompletableFuture<T>> call){
+        CompletableFuture<T> future;
+        Service s;
+        try {
+            s = acquire();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            future = call.apply(SyncServiceAdapter.adapt(s, callExecutor));
+        } catch (RuntimeException e) {
+            //The call has not been started, so the service is not in use anymore
+            release();
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return future.whenComplete((value, error) -> release());
+    }
+
+    /**
+     * Marks the end of a call.
+     */
+    private synchronized void release(){
+        activeCalls--;
+        lastUseNanos = System.nanoTime();
+    }
+
+    /**
+     * Schedules the idle check of the wrapped service.
+     * @param delayMillis Delay before the check in milliseconds.
+     */
+    private void scheduleIdleCheck(long delayMillis){
+        if(idleMillis > 0 && timerWheel != null){
+            idleTimeout = timerWheel.schedule(new IdleCheckTask(), delayMillis, TimeUnit.MILLISECONDS,
+                    "Idle check of the service "+factory.getServiceClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Stops the wrapped service if it has not been used for the idle time, otherwise schedules the next check.
+     */
+    private synchronized void checkIdle(){
+        idleTimeout = null;
+        if(service == null || shutdown){
+            return;
+        }
+        long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUseNanos);
+        if(activeCalls == 0 && runningJobIds.isEmpty() && idle >= idleMillis){
+            service.shutdown();
+            service = null;
+            LOGGER.info("Service "+factory.getServiceClass().getSimpleName()+" stopped after "+idle+" ms of inactivity.");
+        }
+        else{
+            scheduleIdleCheck(activeCalls == 0 && runningJobIds.isEmpty() ? idleMillis - idle : idleMillis);
+        }
+    }
+
+    @Override
+    public synchronized void start(Map<String, Object> propertyMap) {
+        this.propertyMap = propertyMap;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        if(idleTimeout != null){
+            idleTimeout.cancel();
+            idleTimeout = null;
+        }
+        if(service != null){
+            service.shutdown();
+            service = null;
+        }
+    }
+
+    @Override
+    public StatusInfo executeOperation(ExecuteRequest request) {
+        Service s = acquire();
+        try {
+            StatusInfo statusInfo = s.executeOperation(request);
+            jobStarted(statusInfo);
+            return statusInfo;
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> executeOperationAsync(ExecuteRequest request) {
+        return acquireAsync(s -> s.executeOperationAsync(request).thenApply(statusInfo -> {
+            jobStarted(statusInfo);
+            return statusInfo;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> getStatusAsync(StatusRequest request) {
+        return acquireAsync(s -> s.getStatusAsync(request).thenApply(statusInfo -> {
+            jobUpdated(statusInfo);
+            return statusInfo;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<StatusBatch> getStatusAsync(List<StatusRequest> requestList, long sinceVersion) {
+        return acquireAsync(s -> s.getStatusAsync(requestList, sinceVersion).thenApply(statusBatch -> {
+            for(StatusInfo statusInfo : statusBatch.getStatusInfoList()){
+                jobUpdated(statusInfo);
+            }
+            return statusBatch;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Result> getResultAsync(StatusRequest request) {
+        return acquireAsync(s -> s.getResultAsync(request).whenComplete((result, error) -> jobEnded(request.getId())));
+    }
+
+    @Override
+    public CompletableFuture<StatusInfo> dismissAsync(StatusRequest request) {
+        return acquireAsync(s -> s.dismissAsync(request).thenApply(statusInfo -> {
+            if(statusInfo != null) {
+                jobEnded(request.getId());
+            }
+            return statusInfo;
+        }));
+    }
+
+    @Override
+    public StatusInfo getStatus(StatusRequest request) {
+        Service s = acquire();
+        try {
+            StatusInfo statusInfo = s.getStatus(request);
+            jobUpdated(statusInfo);
+            return statusInfo;
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public StatusBatch getStatus(List<StatusRequest> requestList, long sinceVersion) {
+        Service s = acquire();
+        try {
+            StatusBatch statusBatch = s.getStatus(requestList, sinceVersion);
+            for(StatusInfo statusInfo : statusBatch.getStatusInfoList()){
+                jobUpdated(statusInfo);
+            }
+            return statusBatch;
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public Result getResult(StatusRequest request) {
+        Service s = acquire();
+        try {
+            return s.getResult(request);
+        }
+        finally {
+            jobEnded(request.getId());
+            release();
+        }
+    }
+
+    @Override
+    public StatusInfo dismiss(StatusRequest request) {
+        Service s = acquire();
+        try {
+            StatusInfo statusInfo = s.dismiss(request);
+            if(statusInfo != null) {
+                jobEnded(request.getId());
+            }
+            return statusInfo;
+        }
+        finally {
+            release();
+        }
+    }
+
+    /**
+     * Marks a job as running.
+     * @param statusInfo Status of the executed job, null if the execution has failed.
+     */
+    private synchronized void jobStarted(StatusInfo statusInfo){
+        if(statusInfo != null){
+            runningJobIds.add(statusInfo.getJobId());
+        }
+    }
+
+    /**
+     * Marks a job as ended if its new status is a final one.
+     * @param statusInfo New status of the job, can be null.
+     */
+    private void jobUpdated(StatusInfo statusInfo){
+        if(statusInfo != null && statusInfo.getStatus() != null && FINAL_STATUS.contains(statusInfo.getStatus()
+                .toUpperCase(Locale.ROOT))){
+            jobEnded(statusInfo.getJobId());
+        }
+    }
+
+    /**
+     * Marks a job as ended.
+     * @param jobId Identifier of the job.
+     */
+    private synchronized void jobEnded(String jobId){
+        runningJobIds.remove(jobId);
+    }
+
+    @Override
+    public List<Operation> getAllOperation() {
+        Service s = acquire();
+        try {
+            return s.getAllOperation();
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public boolean hasOperation(String id) {
+        Service s = acquire();
+        try {
+            return s.hasOperation(id);
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public Operation getOperation(String id) {
+        Service s = acquire();
+        try {
+            return s.getOperation(id);
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public OperationCatalog getOperationCatalog() {
+        //The catalog shared by the factory does not need the service to be started
+        OperationCatalog catalog = factory.getOperationCatalog();
+        if(catalog != null){
+            return catalog;
+        }
+        Service s = acquire();
+        try {
+            return s.getOperationCatalog();
+        }
+        finally {
+            release();
+        }
+    }
+
+    /**
+     * Task checking the inactivity of the wrapped service.
+     */
+    private class IdleCheckTask implements Runnable {
+        @Override
+        public void run() {
+            checkIdle();
+        }
+    }
+}
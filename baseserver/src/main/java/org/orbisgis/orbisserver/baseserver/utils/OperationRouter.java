@@ -0,0 +1,233 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.Operation;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
+import org.orbisgis.orbisserver.api.service.ServiceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Routing table of the server giving the service owning an operation, with the operation title and description.
+ *
+ * The table is built from the operation catalogs of the registered service factories, in their registration order. If
+ * two services offer an operation with the same identifier, the first registered one keeps it and the conflict is
+ * logged. The table is built again on the registration or the unregistration of a factory, and on the lookup following
+ * a change of the catalog of a factory. The factories without catalog are not routed, their operations should be found
+ * by asking the services.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class OperationRouter {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OperationRouter.class);
+
+    /** Registered factories in their registration order. */
+    private final List<ServiceFactory> factoryList = new ArrayList<>();
+    /** Current routing table. */
+    private volatile Table table = new Table(Collections.<String, Route>emptyMap(),
+            Collections.<ServiceFactory, OperationCatalog>emptyMap(), Collections.<String>emptyList());
+
+    /**
+     * Adds the operations of a factory to the table.
+     * @param factory Factory to register.
+     */
+    public synchronized void register(ServiceFactory factory){
+        factoryList.add(factory);
+        rebuild();
+    }
+
+    /**
+     * Removes the operations of a factory from the table.
+     * @param factory Factory to unregister.
+     */
+    public synchronized void unregister(ServiceFactory factory){
+        factoryList.remove(factory);
+        rebuild();
+    }
+
+    /**
+     * Returns the route of the operation with the given identifier.
+     * @param id Identifier of the operation.
+     * @return The route of the operation, or null if no catalog contains it.
+     */
+    public Route getRoute(String id){
+        Table current = table;
+        if(current.isOutdated()){
+            synchronized (this) {
+                if(table.isOutdated()) {
+                    rebuild();
+                }
+                current = table;
+            }
+        }
+        return current.routeMap.get(id);
+    }
+
+    /**
+     * Returns the conflicts found on the last build of the table.
+     * @return The unmodifiable list of the conflict descriptions.
+     */
+    public List<String> getConflicts(){
+        return table.conflictList;
+    }
+
+    /**
+     * Builds the table from the catalogs of the factories. Should be called with the router lock held.
+     */
+    private void rebuild(){
+        Map<String, Route> routeMap = new HashMap<>();
+        Map<ServiceFactory, OperationCatalog> catalogMap = new IdentityHashMap<>();
+        List<String> conflictList = new ArrayList<>();
+        for(ServiceFactory factory : factoryList){
+            OperationCatalog catalog = factory.getOperationCatalog();
+            catalogMap.put(factory, catalog);
+            if(catalog == null){
+                continue;
+            }
+            for(Operation operation : catalog.getOperations()){
+                Route route = routeMap.get(operation.getId());
+                if(route == null){
+                    routeMap.put(operation.getId(), new Route(factory.getServiceClass(), operation));
+                }
+                else if(route.getServiceClass() != factory.getServiceClass()){
+                    String conflict = "The operation '"+operation.getId()+"' of the service "+
+                            factory.getServiceClass().getSimpleName()+" is already offered by the service "+
+                            route.getServiceClass().getSimpleName()+".";
+                    conflictList.add(conflict);
+                    LOGGER.warn(conflict);
+                }
+            }
+        }
+        table = new Table(routeMap, catalogMap, Collections.unmodifiableList(conflictList));
+    }
+
+    /**
+     * Immutable state of the routing table.
+     */
+    private static class Table {
+        /** Routes with the operation identifier as key. */
+        private final Map<String, Route> routeMap;
+        /** Catalogs used to build the table with their factory as key. */
+        private final Map<ServiceFactory, OperationCatalog> catalogMap;
+        /** Conflicts found on the build. */
+        private final List<String> conflictList;
+
+        private Table(Map<String, Route> routeMap, Map<ServiceFactory, OperationCatalog> catalogMap,
+                      List<String> conflictList){
+            this.routeMap = routeMap;
+            this.catalogMap = catalogMap;
+            this.conflictList = conflictList;
+        }
+
+        /**
+         * Returns true if the catalog of a factory is not the one used to build the table.
+         */
+        private boolean isOutdated(){
+            for(Map.Entry<ServiceFactory, OperationCatalog> entry : catalogMap.entrySet()){
+                if(entry.getKey().getOperationCatalog() != entry.getValue()){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Route of an operation.
+     */
+    public static class Route {
+        /** Class of the service owning the operation. */
+        private final Class serviceClass;
+        /** Operation from the catalog. */
+        private final Operation operation;
+        /** Description of the operation with its inputs and outputs, null until it is first requested. */
+        private final AtomicReference<Operation> description = new AtomicReference<>();
+
+        private Route(Class serviceClass, Operation operation){
+            this.serviceClass = serviceClass;
+            this.operation = operation;
+        }
+
+        /**
+         * Returns the class of the service owning the operation.
+         * @return The service class.
+         */
+        public Class getServiceClass() {
+            return serviceClass;
+        }
+
+        /**
+         * Returns the title of the operation.
+         * @return The operation title.
+         */
+        public String getTitle() {
+            return operation.getTitle();
+        }
+
+        /**
+         * Returns the operation as read in the catalog.
+         * @return The catalog operation.
+         */
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * Returns the description of the operation with its inputs and outputs.
+         * @return The operation description, or null if it has not been requested yet.
+         */
+        public Operation getDescription() {
+            return description.get();
+        }
+
+        /**
+         * Keeps the description of the operation. It is dropped with the route when the catalog changes.
+         * @param operation The operation description.
+         */
+        public void setDescription(Operation operation) {
+            description.compareAndSet(null, operation);
+        }
+    }
+}
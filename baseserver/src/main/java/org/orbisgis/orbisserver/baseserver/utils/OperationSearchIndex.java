@@ -0,0 +1,423 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.Operation;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full text index of the operations of a service catalog, on their title, abstract and keywords.
+ *
+ * The words of the operations are kept in a sorted inverted index giving the operations containing a word with its
+ * weight (the title words weight more than the keywords, which weight more than the abstract words). A query word
+ * matches the indexed words equal to it, starting with it, or containing it, the later being found with an index of the
+ * trigrams of the indexed words. The operations matching all the query words are ranked by score, then by their order in the catalog.
+ *
+ * The index follows the versions of the catalog : on a new version, only the added, removed or replaced operations are
+ * indexed again.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class OperationSearchIndex {
+
+    /** Weight of the title words. */
+    private static final int TITLE_WEIGHT = 3;
+    /** Weight of the keywords. */
+    private static final int KEYWORD_WEIGHT = 2;
+    /** Weight of the abstract words. */
+    private static final int ABSTRACT_WEIGHT = 1;
+    /** Score factor of a query word equal to an indexed word. */
+    private static final int EXACT_MATCH = 3;
+    /** Score factor of a query word starting an indexed word. */
+    private static final int PREFIX_MATCH = 2;
+    /** Score factor of a query word contained in an indexed word. */
+    private static final int INFIX_MATCH = 1;
+    /** Length of the n-grams used for the infix matching. */
+    private static final int GRAM_LENGTH = 3;
+
+    /** Lock guarding the index. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Version of the indexed catalog, -1 if nothing is indexed. */
+    private long version = -1;
+    /** Catalog indexed. */
+    private OperationCatalog catalog;
+    /** Indexed operations with their identifier as key. */
+    private final Map<String, Document> documentMap = new HashMap<>();
+    /** Identifiers of the operations containing a word, with the word weight, sorted by word. */
+    private final NavigableMap<String, Map<String, Integer>> postingMap = new TreeMap<>();
+    /** Indexed words containing a trigram, with the trigram as key. */
+    private final Map<String, Set<String>> gramMap = new HashMap<>();
+
+    /**
+     * Updates the index with the given catalog if its version is not the indexed one.
+     * @param catalog Catalog to index.
+     */
+    public void update(OperationCatalog catalog){
+        lock.readLock().lock();
+        try {
+            //The catalogs built on the fly by the services without versioning all have the version 0
+            if(this.catalog == catalog || (this.catalog != null && version > 0 && version == catalog.getVersion())){
+                return;
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            Map<String, Operation> newOperations = new HashMap<>();
+            for(Operation operation : catalog.getOperations()){
+                newOperations.put(operation.getId(), operation);
+            }
+            //Removes the operations which are no more in the catalog or which have been replaced
+            Iterator<Map.Entry<String, Document>> iterator = documentMap.entrySet().iterator();
+            while(iterator.hasNext()){
+                Document document = iterator.next().getValue();
+                if(newOperations.get(document.operation.getId()) != document.operation){
+                    unindex(document);
+                    iterator.remove();
+                }
+            }
+            //Adds the new ones
+            for(Operation operation : catalog.getOperations()){
+                if(!documentMap.containsKey(operation.getId())){
+                    Document document = new Document(operation);
+                    index(document);
+                    documentMap.put(operation.getId(), document);
+                }
+            }
+            //Updates the position of the operations in the catalog
+            int position = 0;
+            for(Operation operation : catalog.getOperations()){
+                documentMap.get(operation.getId()).position = position++;
+            }
+            this.catalog = catalog;
+            this.version = catalog.getVersion();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the operations matching the query.
+     * @param query Words to find, the operations should match all of them. If null or empty, all the operations match.
+     * @param keyword Keyword the operations should have, ignored if null.
+     * @param excludedKeywords Keywords the operations should not have, ignored if null.
+     * @return The search result.
+     */
+    public SearchResult search(String query, String keyword, Collection<String> excludedKeywords){
+        List<String> queryWords = tokenize(query);
+        String requiredKeyword = keyword == null ? null : keyword.toLowerCase(Locale.ROOT);
+        Set<String> excluded = new HashSet<>();
+        if(excludedKeywords != null){
+            for(String excludedKeyword : excludedKeywords){
+                excluded.add(excludedKeyword.toLowerCase(Locale.ROOT));
+            }
+        }
+        lock.readLock().lock();
+        try {
+            //Scores the operations matching all the query words
+            Map<String, Integer> scoreMap = null;
+            for(String word : queryWords){
+                Map<String, Integer> wordScores = score(word);
+                if(scoreMap == null){
+                    scoreMap = wordScores;
+                }
+                else {
+                    Map<String, Integer> merged = new HashMap<>();
+                    for(Map.Entry<String, Integer> entry : wordScores.entrySet()){
+                        Integer score = scoreMap.get(entry.getKey());
+                        if(score != null){
+                            merged.put(entry.getKey(), score + entry.getValue());
+                        }
+                    }
+                    scoreMap = merged;
+                }
+                if(scoreMap.isEmpty()){
+                    break;
+                }
+            }
+            Collection<String> candidates = scoreMap == null ? documentMap.keySet() : scoreMap.keySet();
+            //Filters the candidates with the keywords and counts the keyword facets
+            final Map<String, Integer> scores = scoreMap;
+            List<Document> matches = new ArrayList<>();
+            Map<String, Integer> facetMap = new TreeMap<>();
+            for(String id : candidates){
+                Document document = documentMap.get(id);
+                if((requiredKeyword != null && !document.keywords.contains(requiredKeyword)) ||
+                        !Collections.disjoint(document.keywords, excluded)){
+                    continue;
+                }
+                matches.add(document);
+                for(String documentKeyword : document.keywords){
+                    Integer count = facetMap.get(documentKeyword);
+                    facetMap.put(documentKeyword, count == null ? 1 : count + 1);
+                }
+            }
+            Collections.sort(matches, new Comparator<Document>() {
+                @Override
+                public int compare(Document d1, Document d2) {
+                    int comparison = scores == null ? 0 :
+                            Integer.compare(scores.get(d2.operation.getId()), scores.get(d1.operation.getId()));
+                    if(comparison == 0){
+                        comparison = Integer.compare(d1.position, d2.position);
+                    }
+                    return comparison;
+                }
+            });
+            List<Operation> operationList = new ArrayList<>();
+            for(Document document : matches){
+                operationList.add(document.operation);
+            }
+            return new SearchResult(version, operationList, facetMap);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the score of the operations matching a query word. Should be called with the lock held.
+     * @param word Query word.
+     * @return The score of the matching operations with their identifier as key.
+     */
+    private Map<String, Integer> score(String word){
+        Map<String, Integer> scoreMap = new HashMap<>();
+        //Exact and prefix matches
+        for(Map.Entry<String, Map<String, Integer>> entry :
+                postingMap.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()){
+            addScores(scoreMap, entry.getValue(), entry.getKey().equals(word) ? EXACT_MATCH : PREFIX_MATCH);
+        }
+        //Infix matches, found with the words containing all the trigrams of the query word
+        if(word.length() >= GRAM_LENGTH){
+            Set<String> words = null;
+            for(String gram : grams(word)){
+                Set<String> gramWords = gramMap.get(gram);
+                if(gramWords == null){
+                    return scoreMap;
+                }
+                if(words == null || gramWords.size() < words.size()){
+                    words = gramWords;
+                }
+            }
+            for(String indexedWord : words){
+                if(!indexedWord.startsWith(word) && indexedWord.contains(word)){
+                    addScores(scoreMap, postingMap.get(indexedWord), INFIX_MATCH);
+                }
+            }
+        }
+        return scoreMap;
+    }
+
+    /**
+     * Adds to the score map the weights of the posting multiplied by the match factor, keeping the best score of each
+     * operation.
+     */
+    private static void addScores(Map<String, Integer> scoreMap, Map<String, Integer> posting, int factor){
+        for(Map.Entry<String, Integer> entry : posting.entrySet()){
+            Integer score = scoreMap.get(entry.getKey());
+            int newScore = entry.getValue() * factor;
+            if(score == null || score < newScore){
+                scoreMap.put(entry.getKey(), newScore);
+            }
+        }
+    }
+
+    /**
+     * Adds the words of a document to the index. Should be called with the write lock held.
+     */
+    private void index(Document document){
+        for(Map.Entry<String, Integer> entry : document.wordWeights.entrySet()){
+            Map<String, Integer> posting = postingMap.get(entry.getKey());
+            if(posting == null){
+                posting = new HashMap<>();
+                postingMap.put(entry.getKey(), posting);
+                for(String gram : grams(entry.getKey())){
+                    Set<String> words = gramMap.get(gram);
+                    if(words == null){
+                        words = new HashSet<>();
+                        gramMap.put(gram, words);
+                    }
+                    words.add(entry.getKey());
+                }
+            }
+            posting.put(document.operation.getId(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the words of a document from the index. Should be called with the write lock held.
+     */
+    private void unindex(Document document){
+        for(String word : document.wordWeights.keySet()){
+            Map<String, Integer> posting = postingMap.get(word);
+            if(posting == null){
+                continue;
+            }
+            posting.remove(document.operation.getId());
+            if(posting.isEmpty()){
+                postingMap.remove(word);
+                for(String gram : grams(word)){
+                    Set<String> words = gramMap.get(gram);
+                    if(words != null){
+                        words.remove(word);
+                        if(words.isEmpty()){
+                            gramMap.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a text into lower case words.
+     * @param text Text to split, can be null.
+     * @return The list of the words.
+     */
+    static List<String> tokenize(String text){
+        List<String> words = new ArrayList<>();
+        if(text == null){
+            return words;
+        }
+        for(String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")){
+            if(!word.isEmpty()){
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the distinct trigrams of a word.
+     */
+    private static Set<String> grams(String word){
+        Set<String> grams = new HashSet<>();
+        for(int i = 0; i + GRAM_LENGTH <= word.length(); i++){
+            grams.add(word.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Indexed operation.
+     */
+    private static class Document {
+        /** Operation indexed. */
+        private final Operation operation;
+        /** Best weight of each word of the operation. */
+        private final Map<String, Integer> wordWeights = new HashMap<>();
+        /** Lower case keywords of the operation. */
+        private final Set<String> keywords = new HashSet<>();
+        /** Position of the operation in the catalog. */
+        private int position;
+
+        private Document(Operation operation){
+            this.operation = operation;
+            addWords(operation.getAbstr(), ABSTRACT_WEIGHT);
+            for(String keyword : operation.getKeyWord()){
+                keywords.add(keyword.toLowerCase(Locale.ROOT));
+                addWords(keyword, KEYWORD_WEIGHT);
+            }
+            addWords(operation.getTitle(), TITLE_WEIGHT);
+        }
+
+        private void addWords(String text, int weight){
+            for(String word : tokenize(text)){
+                Integer current = wordWeights.get(word);
+                if(current == null || current < weight){
+                    wordWeights.put(word, weight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Result of a search.
+     */
+    public static class SearchResult {
+        /** Version of the catalog searched. */
+        private final long version;
+        /** Operations found, the best ranked first. */
+        private final List<Operation> operationList;
+        /** Number of operations found for each lower case keyword, sorted by keyword. */
+        private final Map<String, Integer> keywordFacets;
+
+        /**
+         * Main constructor.
+         * @param version Version of the catalog searched.
+         * @param operationList Operations found, the best ranked first.
+         * @param keywordFacets Number of operations found for each keyword.
+         */
+        public SearchResult(long version, List<Operation> operationList, Map<String, Integer> keywordFacets){
+            this.version = version;
+            this.operationList = Collections.unmodifiableList(operationList);
+            this.keywordFacets = Collections.unmodifiableMap(keywordFacets);
+        }
+
+        /**
+         * Returns the version of the catalog searched.
+         * @return The catalog version.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the operations found, the best ranked first.
+         * @return The unmodifiable list of the operations.
+         */
+        public List<Operation> getOperationList() {
+            return operationList;
+        }
+
+        /**
+         * Returns the number of operations found for each lower case keyword, sorted by keyword.
+         * @return The unmodifiable map of the keyword counts.
+         */
+        public Map<String, Integer> getKeywordFacets() {
+            return keywordFacets;
+        }
+    }
+}
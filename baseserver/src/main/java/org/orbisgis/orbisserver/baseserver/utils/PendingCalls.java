@@ -0,0 +1,192 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of the calls answered later to the clients, so that no thread waits for the end of a call.
+ *
+ * Once registered, a call is identified by a random id given to the client. The call future gives the response
+ * itself, so any side effect of the call is done on its completion whether the client polls it or not. The completion
+ * marks the call as finished and the client gets its response by polling the id. A call not finished after the timeout is marked
+ * as timed out, and a finished call not taken by its client is dropped after the retention delay.
+ *
+ * @param <R> Type of the responses.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class PendingCalls<R> {
+
+    /** Registered calls by id. */
+    private final Map<String, PendingCall<R>> callMap = new ConcurrentHashMap<>();
+    /** Timer wheel used for the timeouts and the retention. */
+    private final TimerWheel timerWheel;
+    /** Maximum time to wait for the end of a call in milliseconds. */
+    private final long timeoutMillis;
+    /** Time a finished call is kept for its client in milliseconds. */
+    private final long retentionMillis;
+
+    /**
+     * Main constructor.
+     * @param timerWheel Timer wheel used for the timeouts and the retention.
+     * @param timeoutMillis Maximum time to wait for the end of a call in milliseconds.
+     * @param retentionMillis Time a finished call is kept for its client in milliseconds.
+     */
+    public PendingCalls(TimerWheel timerWheel, long timeoutMillis, long retentionMillis){
+        this.timerWheel = timerWheel;
+        this.timeoutMillis = timeoutMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Registers a call.
+     * @param owner Owner of the call, the only one able to poll it.
+     * @param future Future of the call, completed with its response.
+     * @return The id of the call.
+     */
+    public String register(String owner, CompletableFuture<? extends R> future){
+        String id = UUID.randomUUID().toString();
+        PendingCall<R> call = new PendingCall<>(owner, future);
+        callMap.put(id, call);
+        schedule(() -> {
+            if(!future.isDone()) {
+                call.timedOut = true;
+                schedule(() -> callMap.remove(id), retentionMillis, "Retention of the timed out call "+id);
+            }
+        }, timeoutMillis, "Timeout of the call "+id);
+        future.whenComplete((value, throwable) ->
+                schedule(() -> callMap.remove(id), retentionMillis, "Retention of the call "+id));
+        return id;
+    }
+
+    /**
+     * Returns the call with the given id. A finished or timed out call is removed, so its response is given once.
+     * @param id Id of the call.
+     * @param owner Owner of the call.
+     * @return The call, or null if there is no call with this id for this owner.
+     */
+    public PendingCall<R> poll(String id, String owner){
+        PendingCall<R> call = callMap.get(id);
+        if(call == null || !call.owner.equals(owner)) {
+            return null;
+        }
+        if(call.isFinished()) {
+            callMap.remove(id);
+        }
+        return call;
+    }
+
+    /**
+     * Returns the number of registered calls.
+     * @return The registered call count.
+     */
+    public int size(){
+        return callMap.size();
+    }
+
+    /**
+     * Schedules a task on the timer wheel, or runs it directly if the wheel is closed.
+     * @param task Task to schedule.
+     * @param delayMillis Delay before running the task in milliseconds.
+     * @param description Description of the timer.
+     */
+    private void schedule(Runnable task, long delayMillis, String description){
+        try {
+            timerWheel.schedule(task, delayMillis, TimeUnit.MILLISECONDS, description);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Call registered until its client takes its response.
+     * @param <R> Type of the response.
+     */
+    public static class PendingCall<R> {
+        /** Owner of the call. */
+        private final String owner;
+        /** Future of the call, completed with its response. */
+        private final CompletableFuture<? extends R> future;
+        /** True if the call was not finished before the timeout. */
+        private volatile boolean timedOut = false;
+
+        private PendingCall(String owner, CompletableFuture<? extends R> future){
+            this.owner = owner;
+            this.future = future;
+        }
+
+        /**
+         * Returns true if the call is completed or timed out.
+         * @return True if the call is finished.
+         */
+        public boolean isFinished() {
+            return future.isDone() || timedOut;
+        }
+
+        /**
+         * Returns true if the call was not completed before the timeout.
+         * @return True if the call is timed out.
+         */
+        public boolean isTimedOut() {
+            return timedOut && !future.isDone();
+        }
+
+        /**
+         * Returns true if the call completed exceptionally.
+         * @return True if the call failed.
+         */
+        public boolean isFailed() {
+            return future.isCompletedExceptionally();
+        }
+
+        /**
+         * Returns the response of the completed call.
+         * @return The call response.
+         */
+        public R getResponse() {
+            return future.join();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server wide statistics of the session initialization latencies, aggregated by initialization phase.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionInitMetrics implements SessionInitMetricsMXBean {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionInitMetrics.class);
+
+    /** Name of the workspace creation phase. */
+    public static final String PHASE_WORKSPACE = "workspace";
+    /** Name of the database creation phase. */
+    public static final String PHASE_DATABASE = "database";
+    /** Prefix of the service creation phases, followed by the service class name. */
+    public static final String PHASE_SERVICE_PREFIX = "service:";
+    /** Name of the whole initialization. */
+    public static final String PHASE_TOTAL = "total";
+
+    /** Statistics of each phase with the phase name as key. */
+    private final ConcurrentMap<String, PhaseStatistics> phaseMap = new ConcurrentHashMap<>();
+    /** Number of sessions initialized. */
+    private final LongAdder initializedSessions = new LongAdder();
+    /** Number of sessions which initialization has failed. */
+    private final LongAdder failedSessions = new LongAdder();
+    /** Name used for the JMX registration, null if not registered. */
+    private ObjectName objectName;
+
+    /**
+     * Records the duration of an initialization phase.
+     * @param phase Name of the phase.
+     * @param nanos Duration of the phase in nanoseconds.
+     */
+    public void record(String phase, long nanos){
+        phaseMap.computeIfAbsent(phase, k -> new PhaseStatistics()).record(nanos);
+    }
+
+    /**
+     * Records the end of a session initialization.
+     * @param succeeded True if the initialization has succeeded, false otherwise.
+     */
+    public void sessionInitialized(boolean succeeded){
+        if(succeeded){
+            initializedSessions.increment();
+        }
+        else{
+            failedSessions.increment();
+        }
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     */
+    public void registerMBean(){
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.orbisgis.orbisserver:type=SessionInitMetrics");
+            if(!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register the session initialization metrics on JMX.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server.
+     */
+    public void unregisterMBean(){
+        if(objectName != null){
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {}
+            objectName = null;
+        }
+    }
+
+    @Override
+    public long getInitializedSessions() {
+        return initializedSessions.sum();
+    }
+
+    @Override
+    public long getFailedSessions() {
+        return failedSessions.sum();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        Map<String, Long> map = new TreeMap<>();
+        for(Map.Entry<String, PhaseStatistics> entry : phaseMap.entrySet()){
+            map.put(entry.getKey(), entry.getValue().count.sum());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMillis() {
+        Map<String, Double> map = new TreeMap<>();
+        for(Map.Entry<String, PhaseStatistics> entry : phaseMap.entrySet()){
+            map.put(entry.getKey(), entry.getValue().getMeanMillis());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMaxMillis() {
+        Map<String, Long> map = new TreeMap<>();
+        for(Map.Entry<String, PhaseStatistics> entry : phaseMap.entrySet()){
+            map.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().maxNanos.get()));
+        }
+        return map;
+    }
+
+    /**
+     * Statistics of one phase.
+     */
+    private static class PhaseStatistics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos){
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private double getMeanMillis(){
+            long c = count.sum();
+            return c == 0 ? 0 : (double)TimeUnit.NANOSECONDS.toMicros(totalNanos.sum()) / 1000 / c;
+        }
+    }
+}
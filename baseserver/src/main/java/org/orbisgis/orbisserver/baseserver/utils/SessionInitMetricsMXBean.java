@@ -0,0 +1,79 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of the SessionInitMetrics, giving access to the session initialization latencies.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public interface SessionInitMetricsMXBean {
+
+    /**
+     * Returns the number of sessions successfully initialized.
+     * @return The initialized session count.
+     */
+    long getInitializedSessions();
+
+    /**
+     * Returns the number of sessions which initialization has failed.
+     * @return The failed session count.
+     */
+    long getFailedSessions();
+
+    /**
+     * Returns the number of executions of each initialization phase.
+     * @return Map with the phase name as key and the execution count as value.
+     */
+    Map<String, Long> getPhaseCounts();
+
+    /**
+     * Returns the mean duration in milliseconds of each initialization phase.
+     * @return Map with the phase name as key and the mean duration as value.
+     */
+    Map<String, Double> getPhaseMeanMillis();
+
+    /**
+     * Returns the maximum duration in milliseconds of each initialization phase.
+     * @return Map with the phase name as key and the maximum duration as value.
+     */
+    Map<String, Long> getPhaseMaxMillis();
+}
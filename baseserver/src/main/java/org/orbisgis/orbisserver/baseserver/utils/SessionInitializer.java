@@ -15,11 +15,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 /**
  * Class implementing the Runnable interface, used to start a session in an other thread and avoid server freeze.
+ * Once the initialization is done, the session readiness future is completed, so the requests waiting for the session
+ * can go on. The duration of each initialization phase is recorded in the session and in the server metrics.
  *
  * @author Sylvain PALOMINOS
  */
@@ -36,27 +37,56 @@ public class SessionInitializer implements Runnable {
     private UUID token;
     /** List of the ServiceFactory tu use. */
     private List<ServiceFactory> serviceFactoryList;
+    /** Server wide initialization metrics. */
+    private SessionInitMetrics metrics;
+    /** Timer wheel used to stop the idle services. */
+    private TimerWheel timerWheel;
+    /** Time after which an unused service is stopped in milliseconds, 0 to keep the services. */
+    private long serviceIdleMillis;
+    /** Executor running the asynchronous calls of the synchronous services. */
+    private Executor serviceExecutor;
 
     public SessionInitializer(Session session, Map<String, Object> propertyMap, UUID token,
-                              List<ServiceFactory> serviceFactoryList){
+                              List<ServiceFactory> serviceFactoryList, SessionInitMetrics metrics,
+                              TimerWheel timerWheel, long serviceIdleMillis, Executor serviceExecutor){
         this.session = session;
         this.propertyMap = propertyMap;
         this.token = token;
         this.serviceFactoryList = serviceFactoryList;
+        this.metrics = metrics;
+        this.timerWheel = timerWheel;
+        this.serviceIdleMillis = serviceIdleMillis;
+        this.serviceExecutor = serviceExecutor;
     }
 
     @Override
     public void run() {
+        long start = System.nanoTime();
+        try {
+            initialize();
+            recordPhase(SessionInitMetrics.PHASE_TOTAL, start);
+            metrics.sessionInitialized(true);
+            session.setReady();
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to initialize the session.\n"+e.getMessage());
+            metrics.sessionInitialized(false);
+            session.setInitializationFailed(e);
+        }
+    }
+
+    /**
+     * Creates the session resources and sets the session with them.
+     */
+    private void initialize() {
         //Creates the session workspace
+        long phaseStart = System.nanoTime();
         File workspaceFolder = new File("workspace", token.toString());
         workspaceFolder.mkdirs();
         propertyMap.put(ServiceFactory.WORKSPACE_FOLDER_PROP, workspaceFolder);
-
-        //Creates the session ExecutorService
-        ExecutorService executorService = Executors.newFixedThreadPool(3);
-        propertyMap.put(ServiceFactory.EXECUTOR_SERVICE_PROP, executorService);
+        recordPhase(SessionInitMetrics.PHASE_WORKSPACE, phaseStart);
 
         //Creates the session DataSource
+        phaseStart = System.nanoTime();
         DataSource dataSource = null;
         String dataBaseLocation = new File(workspaceFolder, "h2_db.mv.db").getAbsolutePath();
         try {
@@ -66,17 +96,29 @@ public class SessionInitializer implements Runnable {
         }
         LOGGER.info("Session database started.");
         propertyMap.put(ServiceFactory.DATA_SOURCE_PROP, dataSource);
+        recordPhase(SessionInitMetrics.PHASE_DATABASE, phaseStart);
 
 
-        //Sets the session with the options
+        //Sets the session with the options. The services are only created on their first use, their creation time
+        //being recorded in the service phase of the metrics at this time.
         List<Service> serviceList = new ArrayList<>();
         for(ServiceFactory factory : serviceFactoryList) {
-            Service service = factory.createService(propertyMap);
-            serviceList.add(service);
-            LOGGER.info("Service "+service.getClass().getSimpleName()+" started.");
+            serviceList.add(new LazyService(factory, propertyMap, timerWheel, serviceIdleMillis, serviceExecutor,
+                    metrics));
         }
         propertyMap.put(Session.SERVICE_LIST, serviceList);
 
         session.setProperties(propertyMap);
     }
-}
\ No newline at end of file
+
+    /**
+     * Records the duration of an initialization phase in the session and in the server metrics.
+     * @param phase Name of the phase.
+     * @param phaseStart Start time of the phase in nanoseconds.
+     */
+    private void recordPhase(String phase, long phaseStart) {
+        long duration = System.nanoTime() - phaseStart;
+        session.recordInitPhase(phase, duration);
+        metrics.record(phase, duration);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.baseserver.model.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pool of pre-initialized sessions without owner. On login, a session is taken from the pool and bound to the user,
+ * avoiding the creation of the workspace, the database and the services on the login path. The pool is refilled each
+ * time a session is taken. The sessions are initialized in background by the session supplier, so a session taken
+ * from the pool may still be initializing.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionPool {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionPool.class);
+
+    /** Number of sessions to keep in the pool. */
+    private final int size;
+    /** Supplier creating a new session and starting its initialization. */
+    private final Supplier<Session> sessionSupplier;
+    /** Sessions waiting for an owner, the oldest first. */
+    private final Queue<Session> sessionQueue;
+    /** Number of sessions in the queue. */
+    private final AtomicInteger sessionCount;
+    /** True if the pool is closed. */
+    private volatile boolean closed = false;
+
+    /**
+     * Main constructor.
+     * @param size Number of sessions to keep in the pool. If 0, the pool is disabled.
+     * @param sessionSupplier Supplier creating a new session and starting its initialization.
+     */
+    public SessionPool(int size, Supplier<Session> sessionSupplier){
+        this.size = Math.max(0, size);
+        this.sessionSupplier = sessionSupplier;
+        this.sessionQueue = new ConcurrentLinkedQueue<>();
+        this.sessionCount = new AtomicInteger();
+    }
+
+    /**
+     * Takes a session from the pool and refills it. The sessions which initialization has failed are discarded.
+     * @return A session without owner, or null if the pool is empty.
+     */
+    public Session poll(){
+        Session session = sessionQueue.poll();
+        while(session != null){
+            sessionCount.decrementAndGet();
+            if(!session.whenReady().isCompletedExceptionally()){
+                break;
+            }
+            session.shutdown();
+            session = sessionQueue.poll();
+        }
+        refill();
+        return session;
+    }
+
+    /**
+     * Creates sessions until the pool is full.
+     */
+    public void refill(){
+        int count = sessionCount.get();
+        while(!closed && count < size){
+            if(sessionCount.compareAndSet(count, count + 1)){
+                try {
+                    sessionQueue.add(sessionSupplier.get());
+                } catch (RuntimeException e) {
+                    sessionCount.decrementAndGet();
+                    LOGGER.error("Unable to pre-initialize a session.\n"+e.getMessage());
+                    return;
+                }
+            }
+            count = sessionCount.get();
+        }
+    }
+
+    /**
+     * Shutdowns all the sessions of the pool and refills it. This should be called when the sessions configuration
+     * changes, for example on the registering of a new service.
+     */
+    public void renew(){
+        drain();
+        refill();
+    }
+
+    /**
+     * Shutdowns all the sessions of the pool.
+     */
+    private void drain(){
+        Session session = sessionQueue.poll();
+        while(session != null){
+            sessionCount.decrementAndGet();
+            session.shutdown();
+            session = sessionQueue.poll();
+        }
+    }
+
+    /**
+     * Closes the pool and shutdowns all its sessions.
+     */
+    public void close(){
+        closed = true;
+        drain();
+    }
+
+    /**
+     * Returns the number of sessions waiting in the pool.
+     * @return The number of available sessions.
+     */
+    public int getAvailableSessions(){
+        return sessionCount.get();
+    }
+}
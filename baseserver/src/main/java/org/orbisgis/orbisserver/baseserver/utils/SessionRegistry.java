@@ -0,0 +1,182 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.baseserver.model.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the server sessions. The sessions are indexed by their token and by their username, so the lookups done
+ * on each web request do not require any lock or any iteration over the sessions.
+ *
+ * The life cycle of a session is OPEN -> ALIVE -> KILLED. A session is ALIVE once its user logged out while jobs are
+ * still running or results are still available. An ALIVE session can be reopened by a new login of its user.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionRegistry {
+
+    /** Map of the sessions with their token as key. */
+    private final ConcurrentMap<UUID, Session> tokenMap;
+    /** Map of the sessions with their username as key. */
+    private final ConcurrentMap<String, Session> usernameMap;
+
+    /**
+     * Main constructor.
+     */
+    public SessionRegistry(){
+        tokenMap = new ConcurrentHashMap<>();
+        usernameMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers a new session. If a session is already registered for the same user, the registered session is
+     * returned and the given one is ignored. A KILLED session not unregistered yet is replaced by the given one.
+     * @param session Session to register.
+     * @return The session registered for the user.
+     */
+    public Session register(Session session){
+        Session registered = usernameMap.compute(session.getUsername(), (username, current) ->
+                current == null || current.getState() == Session.State.KILLED ? session : current);
+        if(registered == session){
+            tokenMap.put(session.getToken(), session);
+        }
+        return registered;
+    }
+
+    /**
+     * Returns the OPEN session corresponding to the given token.
+     * @param token String representation of the session token.
+     * @return The session if it exists and is open, null otherwise.
+     */
+    public Session getByToken(String token){
+        if(token == null || token.isEmpty()){
+            return null;
+        }
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Session session = tokenMap.get(uuid);
+        if(session == null || session.getState() != Session.State.OPEN){
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Returns the OPEN or ALIVE session of the given user.
+     * @param username Name of the user.
+     * @return The session of the user if it exists, null otherwise.
+     */
+    public Session getByUsername(String username){
+        Session session = usernameMap.get(username);
+        if(session == null || session.getState() == Session.State.KILLED){
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Moves an OPEN session into the ALIVE state.
+     * @param session Session to close.
+     * @return True if the state has changed, false otherwise.
+     */
+    public boolean close(Session session){
+        return session.compareAndSetState(Session.State.OPEN, Session.State.ALIVE);
+    }
+
+    /**
+     * Moves an ALIVE session back into the OPEN state.
+     * @param session Session to reopen.
+     * @return True if the session is open, false otherwise.
+     */
+    public boolean reopen(Session session){
+        return session.compareAndSetState(Session.State.ALIVE, Session.State.OPEN) ||
+                session.getState() == Session.State.OPEN;
+    }
+
+    /**
+     * Moves a session into the KILLED state and unregisters it. Only the first call on a session succeed.
+     * @param session Session to kill.
+     * @return True if the session has been killed by this call, false if it was already killed.
+     */
+    public boolean kill(Session session){
+        Session.State state = session.getState();
+        while(state != Session.State.KILLED){
+            if(session.compareAndSetState(state, Session.State.KILLED)){
+                tokenMap.remove(session.getToken(), session);
+                usernameMap.remove(session.getUsername(), session);
+                return true;
+            }
+            state = session.getState();
+        }
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of the registered sessions in the given state.
+     * @param state State of the sessions to return.
+     * @return List of the sessions.
+     */
+    public List<Session> getSessions(Session.State state){
+        List<Session> sessionList = new ArrayList<>();
+        for(Session session : tokenMap.values()){
+            if(session.getState() == state){
+                sessionList.add(session);
+            }
+        }
+        return sessionList;
+    }
+
+    /**
+     * Returns a snapshot of all the registered sessions.
+     * @return List of the sessions.
+     */
+    public List<Session> getSessions(){
+        return new ArrayList<>(tokenMap.values());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.orbisgis.orbisserver.baseserver.model.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background refresher of the status of the running jobs of a service, for all the sessions.
+ *
+ * Each running job has one pending refresh, due at the next poll date given by the service. A refresh requested again
+ * for a job replaces the pending one. The refreshes due within the same coalescing window are run together in one pass,
+ * so the jobs of all the sessions are refreshed with a single timer, and the due jobs of each session with a single bulk
+ * status request.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class StatusRefresher {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatusRefresher.class);
+
+    /** Window in milliseconds in which the due refreshes are run together. */
+    private static final long COALESCE_MILLIS = 250;
+
+    /** Timer wheel running the passes. */
+    private final TimerWheel timerWheel;
+    /** Description of the refresher, used for its timer. */
+    private final String description;
+    /** Pending refreshes with the job id as key. */
+    private final Map<String, Refresh> refreshMap = new ConcurrentHashMap<>();
+    /** Timer of the next pass, null if none is scheduled. */
+    private TimerWheel.Timeout passTimeout;
+    /** Time of the next pass in milliseconds. */
+    private long nextPassMillis = Long.MAX_VALUE;
+
+    /**
+     * Main constructor.
+     * @param timerWheel Timer wheel running the passes.
+     * @param description Description of the refresher, used for its timer.
+     */
+    public StatusRefresher(TimerWheel timerWheel, String description){
+        this.timerWheel = timerWheel;
+        this.description = description;
+    }
+
+    /**
+     * Schedules the refresh of a job, replacing its pending one.
+     * @param session Session owning the job.
+     * @param statusInfo Last status of the job.
+     * @param delayMillis Delay before the refresh in milliseconds.
+     */
+    public void schedule(Session session, StatusInfo statusInfo, long delayMillis){
+        long dueMillis = System.currentTimeMillis() + Math.max(0, delayMillis);
+        refreshMap.put(statusInfo.getJobId(), new Refresh(session, statusInfo, dueMillis));
+        schedulePass(dueMillis);
+    }
+
+    /**
+     * Drops the pending refreshes of a session.
+     * @param session Session which jobs should not be refreshed anymore.
+     */
+    public void cancel(Session session){
+        Iterator<Refresh> iterator = refreshMap.values().iterator();
+        while(iterator.hasNext()){
+            if(iterator.next().session == session){
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pending refreshes.
+     * @return The pending refresh count.
+     */
+    public int getPendingRefreshes(){
+        return refreshMap.size();
+    }
+
+    /**
+     * Schedules a pass at the given time, unless a pass is already scheduled close enough before it.
+     * @param dueMillis Time of the pass in milliseconds.
+     */
+    private synchronized void schedulePass(long dueMillis){
+        if(passTimeout != null && nextPassMillis <= dueMillis + COALESCE_MILLIS){
+            return;
+        }
+        if(passTimeout != null){
+            passTimeout.cancel();
+        }
+        nextPassMillis = dueMillis;
+        passTimeout = timerWheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                pass();
+            }
+        }, dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS, description);
+    }
+
+    /**
+     * Runs the due refreshes and schedules the next pass.
+     */
+    private void pass(){
+        synchronized (this) {
+            passTimeout = null;
+            nextPassMillis = Long.MAX_VALUE;
+        }
+        long limitMillis = System.currentTimeMillis() + COALESCE_MILLIS;
+        Map<Session, List<StatusInfo>> dueMap = new LinkedHashMap<>();
+        for(Map.Entry<String, Refresh> entry : refreshMap.entrySet()){
+            Refresh refresh = entry.getValue();
+            if(refresh.dueMillis <= limitMillis && refreshMap.remove(entry.getKey(), refresh)){
+                List<StatusInfo> dueList = dueMap.get(refresh.session);
+                if(dueList == null){
+                    dueList = new ArrayList<>();
+                    dueMap.put(refresh.session, dueList);
+                }
+                dueList.add(refresh.statusInfo);
+            }
+        }
+        for(Map.Entry<Session, List<StatusInfo>> entry : dueMap.entrySet()){
+            try {
+                //The due jobs of a session are refreshed with one bulk status request, the session scheduling the
+                //next refresh of the jobs still running
+                entry.getKey().refreshStatus(entry.getValue());
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to refresh the status of the jobs of the session "+entry.getKey().getToken()+
+                        ".\n"+e.getMessage());
+            }
+        }
+        long nextDueMillis = Long.MAX_VALUE;
+        for(Refresh refresh : refreshMap.values()){
+            nextDueMillis = Math.min(nextDueMillis, refresh.dueMillis);
+        }
+        if(nextDueMillis != Long.MAX_VALUE){
+            schedulePass(nextDueMillis);
+        }
+    }
+
+    /**
+     * Pending refresh of a job.
+     */
+    private static class Refresh {
+        /** Session owning the job. */
+        private final Session session;
+        /** Last status of the job. */
+        private final StatusInfo statusInfo;
+        /** Time of the refresh in milliseconds. */
+        private final long dueMillis;
+
+        private Refresh(Session session, StatusInfo statusInfo, long dueMillis){
+            this.session = session;
+            this.statusInfo = statusInfo;
+            this.dueMillis = dueMillis;
+        }
+    }
+}
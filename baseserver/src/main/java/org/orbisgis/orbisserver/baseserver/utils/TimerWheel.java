@@ -0,0 +1,383 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Server wide hashed timer wheel running the delayed tasks of all the sessions, like the result expirations and the
+ * inactivity timeouts, with a single thread.
+ *
+ * The time is divided in ticks and each timer is stored in the bucket of its deadline tick, together with the number of
+ * wheel rotations remaining before its expiration. The scheduling and the cancellation only link or unlink the timer in
+ * its bucket, and each tick only visits one bucket. The deadlines are rounded up to the next tick. The expired tasks are
+ * run by the given executor, so a slow task does not delay the other timers.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class TimerWheel implements TimerWheelMXBean {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    /** Buckets of the wheel. */
+    private final Bucket[] wheel;
+    /** Mask giving the bucket index of a tick. */
+    private final int mask;
+    /** Duration of a tick in nanoseconds. */
+    private final long tickNanos;
+    /** Start time of the wheel in nanoseconds. */
+    private final long startNanos;
+    /** Executor running the expired tasks. */
+    private final Executor taskExecutor;
+    /** Thread moving the wheel. */
+    private final Thread workerThread;
+    /** Next tick to process. */
+    private long currentTick = 0;
+    /** Number of pending timers. */
+    private int pendingTimers = 0;
+    /** True if the wheel is closed. */
+    private volatile boolean closed = false;
+    /** Name used for the JMX registration, null if not registered. */
+    private ObjectName objectName;
+
+    /**
+     * Main constructor. Starts the wheel thread.
+     * @param tickMillis Duration of a tick in milliseconds, which is the precision of the timers.
+     * @param wheelSize Number of buckets of the wheel, rounded up to a power of two.
+     * @param taskExecutor Executor running the expired tasks.
+     */
+    public TimerWheel(long tickMillis, int wheelSize, Executor taskExecutor){
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for(int i = 0; i < size; i++){
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.taskExecutor = taskExecutor;
+        this.startNanos = System.nanoTime();
+        this.workerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "orbisserver-timer");
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Schedules a task.
+     * @param task Task to run once the delay is elapsed.
+     * @param delay Delay before running the task.
+     * @param unit Unit of the delay.
+     * @param description Description of the timer, used for its inspection.
+     * @return The timer, which can be used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit, String description){
+        if(closed){
+            throw new RejectedExecutionException("The timer wheel is closed.");
+        }
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startNanos;
+        Timeout timeout = new Timeout(task, deadline, description);
+        synchronized (wheel) {
+            long tick = Math.max(deadline / tickNanos, currentTick);
+            timeout.remainingRounds = (tick - currentTick) / wheel.length;
+            wheel[(int) (tick & mask)].add(timeout);
+            pendingTimers++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. The pending timers are dropped.
+     */
+    public void close(){
+        closed = true;
+        workerThread.interrupt();
+        synchronized (wheel) {
+            for(Bucket bucket : wheel){
+                while(bucket.head != null){
+                    bucket.remove(bucket.head);
+                }
+            }
+            pendingTimers = 0;
+        }
+    }
+
+    /**
+     * Registers the wheel in the platform MBean server.
+     */
+    public void registerMBean(){
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.orbisgis.orbisserver:type=TimerWheel");
+            if(!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+                this.objectName = objectName;
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register the timer wheel on JMX.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the wheel from the platform MBean server.
+     */
+    public void unregisterMBean(){
+        if(objectName != null){
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {}
+            objectName = null;
+        }
+    }
+
+    @Override
+    public int getPendingTimers() {
+        synchronized (wheel) {
+            return pendingTimers;
+        }
+    }
+
+    @Override
+    public List<String> getPendingTimerDescriptions() {
+        List<Timeout> timeouts = new ArrayList<>();
+        synchronized (wheel) {
+            for(Bucket bucket : wheel){
+                for(Timeout timeout = bucket.head; timeout != null; timeout = timeout.next){
+                    timeouts.add(timeout);
+                }
+            }
+        }
+        Collections.sort(timeouts, new Comparator<Timeout>() {
+            @Override
+            public int compare(Timeout t1, Timeout t2) {
+                return Long.compare(t1.deadline, t2.deadline);
+            }
+        });
+        List<String> list = new ArrayList<>();
+        for(Timeout timeout : timeouts){
+            list.add(timeout.getDescription()+" in "+timeout.getDelay(TimeUnit.MILLISECONDS)+" ms");
+        }
+        return list;
+    }
+
+    /**
+     * Main loop of the wheel thread.
+     */
+    private void work(){
+        while(!closed){
+            long tickDeadline;
+            synchronized (wheel) {
+                tickDeadline = startNanos + (currentTick + 1) * tickNanos;
+            }
+            long sleepNanos = tickDeadline - System.nanoTime();
+            if(sleepNanos > 0){
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            List<Timeout> expired = new ArrayList<>();
+            synchronized (wheel) {
+                Bucket bucket = wheel[(int) (currentTick & mask)];
+                Timeout timeout = bucket.head;
+                while(timeout != null){
+                    Timeout next = timeout.next;
+                    if(timeout.remainingRounds <= 0){
+                        bucket.remove(timeout);
+                        pendingTimers--;
+                        timeout.state = Timeout.EXPIRED;
+                        expired.add(timeout);
+                    }
+                    else{
+                        timeout.remainingRounds--;
+                    }
+                    timeout = next;
+                }
+                currentTick++;
+            }
+            for(Timeout timeout : expired){
+                try {
+                    taskExecutor.execute(timeout.task);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.error("Unable to run the timer '"+timeout.getDescription()+"'.\n"+e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timers of a bucket. Should be used with the wheel lock held.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout){
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if(tail == null){
+                head = timeout;
+            }
+            else{
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout){
+            if(timeout.prev == null){
+                head = timeout.next;
+            }
+            else{
+                timeout.prev.next = timeout.next;
+            }
+            if(timeout.next == null){
+                tail = timeout.prev;
+            }
+            else{
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * Timer of a task scheduled in the wheel.
+     */
+    public class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        /** Task to run on the expiration. */
+        private final Runnable task;
+        /** Deadline in nanoseconds since the start of the wheel. */
+        private final long deadline;
+        /** Description of the timer. */
+        private final String description;
+        /** Number of wheel rotations before the expiration. */
+        private long remainingRounds;
+        /** State of the timer, guarded by the wheel lock. */
+        private int state = PENDING;
+        /** Bucket containing the timer, null if not pending. */
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline, String description){
+            this.task = task;
+            this.deadline = deadline;
+            this.description = description;
+        }
+
+        /**
+         * Cancels the timer.
+         * @return True if the timer has been cancelled, false if it has already expired or been cancelled.
+         */
+        public boolean cancel(){
+            synchronized (wheel) {
+                if(state != PENDING){
+                    return false;
+                }
+                state = CANCELLED;
+                if(bucket != null) {
+                    bucket.remove(this);
+                    pendingTimers--;
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Returns true if the timer has been cancelled.
+         * @return True if cancelled, false otherwise.
+         */
+        public boolean isCancelled(){
+            synchronized (wheel) {
+                return state == CANCELLED;
+            }
+        }
+
+        /**
+         * Returns true if the timer has expired and its task has been submitted.
+         * @return True if expired, false otherwise.
+         */
+        public boolean isExpired(){
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+
+        /**
+         * Returns the remaining delay before the expiration.
+         * @param unit Unit of the delay.
+         * @return The remaining delay, negative if the deadline is passed.
+         */
+        public long getDelay(TimeUnit unit){
+            return unit.convert(deadline - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the description of the timer.
+         * @return The timer description.
+         */
+        public String getDescription(){
+            return description;
+        }
+    }
+}
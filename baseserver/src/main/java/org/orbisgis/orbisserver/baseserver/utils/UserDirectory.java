@@ -0,0 +1,213 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.orbisgis.orbisserver.baseserver.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In memory directory of the users registered in the session_table of the administration database.
+ *
+ * The directory is loaded once from the database and is then kept in sync by its own write methods, so the login and
+ * the session building only cost a map lookup. The users are indexed by their exact username and by their primary key.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class UserDirectory {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDirectory.class);
+
+    /** Default time before the expiration of a new user session in milliseconds. */
+    public static final long DEFAULT_EXPIRATION_TIME = 172800000;
+    /** Default size of the job pool of a new user session. */
+    public static final int DEFAULT_POOL_SIZE = 3;
+    /** Default maximum number of jobs of a new user queued or running. */
+    public static final int DEFAULT_MAX_QUEUED_JOBS = 50;
+
+    /** Pool of connections to the administration database. */
+    private final ConnectionPool connectionPool;
+    /** Map of the users with their username as key. */
+    private final ConcurrentMap<String, User> usersByName;
+    /** Map of the users with their primary key as key. */
+    private final ConcurrentMap<Integer, User> usersById;
+
+    /**
+     * Main constructor.
+     * @param connectionPool Pool of connections to the administration database.
+     */
+    public UserDirectory(ConnectionPool connectionPool){
+        this.connectionPool = connectionPool;
+        this.usersByName = new ConcurrentHashMap<>();
+        this.usersById = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads all the users from the session_table.
+     */
+    public void load(){
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT id, username, password, expirationTime, poolSize, maxQueuedJobs FROM session_table;");
+             ResultSet rs = ps.executeQuery()) {
+            usersByName.clear();
+            usersById.clear();
+            while (rs.next()) {
+                index(new User(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getInt(5),
+                        rs.getInt(6)));
+            }
+            LOGGER.info(usersByName.size()+" users loaded.");
+        } catch (SQLException e) {
+            LOGGER.error("Unable to load the users from the database.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the user with the given username.
+     * @param username Name of the user.
+     * @return The user, or null if there is no user with this name.
+     */
+    public User getUser(String username){
+        if(username == null){
+            return null;
+        }
+        return usersByName.get(username);
+    }
+
+    /**
+     * Returns the user with the given primary key.
+     * @param id Primary key of the user.
+     * @return The user, or null if there is no user with this key.
+     */
+    public User getUser(int id){
+        return usersById.get(id);
+    }
+
+    /**
+     * Returns the user corresponding to the given username and password.
+     * @param username Name of the user.
+     * @param password Password of the user.
+     * @return The user if the username and password are correct, null otherwise.
+     */
+    public User authenticate(String username, String password){
+        User user = getUser(username);
+        if(user == null || user.getPassword() == null || !user.getPassword().equals(password)){
+            return null;
+        }
+        return user;
+    }
+
+    /**
+     * Registers a new user in the session_table with the default session options.
+     * @param username Name of the user.
+     * @param password Password of the user.
+     * @return The new user, or null if the user already exists or can not be registered.
+     */
+    public synchronized User createUser(String username, String password){
+        if(usersByName.containsKey(username)){
+            return null;
+        }
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO session_table (username, password, expirationTime, poolSize, maxQueuedJobs) " +
+                             "VALUES (?,?,?,?,?);",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, username);
+            ps.setString(2, password);
+            ps.setLong(3, DEFAULT_EXPIRATION_TIME);
+            ps.setInt(4, DEFAULT_POOL_SIZE);
+            ps.setInt(5, DEFAULT_MAX_QUEUED_JOBS);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    User user = new User(rs.getInt(1), username, password, DEFAULT_EXPIRATION_TIME, DEFAULT_POOL_SIZE,
+                            DEFAULT_MAX_QUEUED_JOBS);
+                    index(user);
+                    return user;
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Unable to add a user.\n" + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Updates the password of a user.
+     * @param username Name of the user.
+     * @param newPassword New password.
+     * @return True if the password has been changed, false otherwise.
+     */
+    public synchronized boolean changePassword(String username, String newPassword){
+        User user = getUser(username);
+        if(user == null){
+            return false;
+        }
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE session_table SET password = ? WHERE id = ?;")) {
+            ps.setString(1, newPassword);
+            ps.setInt(2, user.getId());
+            ps.executeUpdate();
+            index(user.withPassword(newPassword));
+            return true;
+        } catch (SQLException e) {
+            LOGGER.error("Unable to change password.\n" + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Adds or replaces the user in the indexes.
+     * @param user User to index.
+     */
+    private void index(User user){
+        usersByName.put(user.getUsername(), user);
+        usersById.put(user.getId(), user);
+    }
+}
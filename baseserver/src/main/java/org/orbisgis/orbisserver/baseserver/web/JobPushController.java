@@ -0,0 +1,191 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.web;
+
+import org.apache.felix.ipojo.annotations.Invalidate;
+import org.apache.felix.ipojo.annotations.Requires;
+import org.apache.felix.ipojo.annotations.Validate;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.orbisgis.orbisserver.baseserver.BaseServerImpl;
+import org.orbisgis.orbisserver.baseserver.model.JobListener;
+import org.orbisgis.orbisserver.baseserver.model.Session;
+import org.wisdom.api.DefaultController;
+import org.wisdom.api.annotations.Body;
+import org.wisdom.api.annotations.Controller;
+import org.wisdom.api.annotations.Parameter;
+import org.wisdom.api.annotations.websockets.Closed;
+import org.wisdom.api.annotations.websockets.OnMessage;
+import org.wisdom.api.content.Json;
+import org.wisdom.api.http.websockets.Publisher;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Controller pushing the job changes of a session to its clients through the web socket '/jobs/ws'. Each message is
+ * a JSON object with the job identifier, its status, its progress and the availability of its result. The clients
+ * without web socket keep polling the '/jobs' route.
+ *
+ * The session token is not part of the socket uri, so it does not appear in the access logs : the first message sent
+ * by a client should be its session token. A client sending an unknown token receives an 'unauthorized' event and is
+ * expected to close the socket, nothing is pushed to it.
+ *
+ * @author Sylvain PALOMINOS
+ */
+@Controller
+public class JobPushController extends DefaultController implements JobListener {
+
+    /** Uri of the web socket of the jobs. */
+    private static final String SOCKET_URI = "/jobs/ws";
+
+    @Requires
+    private BaseServerImpl coreServerController;
+
+    @Requires
+    private Publisher publisher;
+
+    @Requires
+    private Json json;
+
+    /** Identifiers of the authenticated clients with the token of their session as key. */
+    private final Map<String, Set<String>> clientMap = new ConcurrentHashMap<>();
+    /** Session token of the authenticated clients with the client identifier as key. */
+    private final Map<String, String> clientTokenMap = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the controller as job listener of the server.
+     */
+    @Validate
+    public void start() {
+        coreServerController.addJobListener(this);
+    }
+
+    /**
+     * Unregisters the controller from the server.
+     */
+    @Invalidate
+    public void stop() {
+        coreServerController.removeJobListener(this);
+        clientMap.clear();
+        clientTokenMap.clear();
+    }
+
+    /**
+     * Called when a client sends a message on the web socket. The first message of a client authenticates it with
+     * the token of its session, the next ones are ignored.
+     * @param client Identifier of the client.
+     * @param token Token of the session of the client.
+     */
+    @OnMessage(SOCKET_URI)
+    public void authenticate(@Parameter("client") String client, @Body String token) {
+        if(clientTokenMap.containsKey(client)) {
+            return;
+        }
+        String sessionToken = token != null ? token.trim() : null;
+        if(sessionToken == null || sessionToken.isEmpty() ||
+                coreServerController.resolveSession(sessionToken) == null) {
+            publisher.send(SOCKET_URI, client, json.toJson(Collections.singletonMap("event", "unauthorized")));
+            return;
+        }
+        clientTokenMap.put(client, sessionToken);
+        //The client is added in the atomic update of the map, so a set removed by a closing client is not used
+        clientMap.compute(sessionToken, (k, clients) -> {
+            Set<String> set = clients != null ? clients : ConcurrentHashMap.<String>newKeySet();
+            set.add(client);
+            return set;
+        });
+    }
+
+    /**
+     * Called when a client closes the web socket.
+     * @param client Identifier of the client.
+     */
+    @Closed(SOCKET_URI)
+    public void close(@Parameter("client") String client) {
+        String token = clientTokenMap.remove(client);
+        if(token == null) {
+            return;
+        }
+        //The set of an empty session is removed atomically, so no client can be added to it meanwhile
+        clientMap.computeIfPresent(token, (k, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    @Override
+    public void jobChanged(Session session, StatusInfo statusInfo) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("event", "changed");
+        event.put("jobId", statusInfo.getJobId());
+        event.put("processId", statusInfo.getProcessID());
+        event.put("processTitle", statusInfo.getProcessTitle());
+        event.put("status", statusInfo.getStatus());
+        event.put("percentCompleted", statusInfo.getPercentCompleted());
+        event.put("resultReady", statusInfo.getResult() != null);
+        push(session, event);
+    }
+
+    @Override
+    public void jobRemoved(Session session, String jobId) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("event", "removed");
+        event.put("jobId", jobId);
+        push(session, event);
+    }
+
+    /**
+     * Sends an event to the authenticated clients of a session, if there is one.
+     * @param session Session of the job.
+     * @param event Event to send.
+     */
+    private void push(Session session, Map<String, Object> event) {
+        Set<String> clients = clientMap.get(session.getToken().toString());
+        if(clients == null || clients.isEmpty()) {
+            return;
+        }
+        String message = json.toJson(event);
+        for(String client : clients) {
+            publisher.send(SOCKET_URI, client, message);
+        }
+    }
+}
@@ -42,29 +42,47 @@ import org.apache.felix.ipojo.annotations.Requires;
 import org.orbisgis.orbisserver.api.model.Operation;
 import org.orbisgis.orbisserver.api.model.StatusInfo;
 import org.orbisgis.orbisserver.baseserver.BaseServerImpl;
-import org.orbisgis.orbisserver.baseserver.model.DatabaseContent;
 import org.orbisgis.orbisserver.baseserver.model.DatabaseTable;
 import org.orbisgis.orbisserver.baseserver.model.Session;
+import org.orbisgis.orbisserver.baseserver.utils.AdmissionController;
+import org.orbisgis.orbisserver.baseserver.utils.FragmentCache;
+import org.orbisgis.orbisserver.baseserver.utils.OperationSearchIndex;
+import org.orbisgis.orbisserver.baseserver.utils.PendingCalls;
 import org.wisdom.api.DefaultController;
 import org.wisdom.api.annotations.Controller;
 import org.wisdom.api.annotations.Parameter;
 import org.wisdom.api.annotations.Route;
 import org.wisdom.api.annotations.View;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wisdom.api.annotations.scheduler.Async;
+import org.wisdom.api.http.Context;
 import org.wisdom.api.http.FileItem;
+import org.wisdom.api.http.HeaderNames;
 import org.wisdom.api.http.HttpMethod;
+import org.wisdom.api.http.Renderable;
 import org.wisdom.api.http.Result;
+import org.wisdom.api.http.Status;
 import org.wisdom.api.templates.Template;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLDecoder;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Main orbisserver controller containing all the route for the web wps client.
@@ -74,6 +92,27 @@ import java.util.Map;
 @Controller
 public class MainController extends DefaultController {
 
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MainController.class);
+    /** Prefix of the uploaded files not moved to the workspace yet. */
+    private static final String UPLOAD_PREFIX = "orbisserver-upload-";
+    /** Delay before the client polls a request answered later in seconds. */
+    private static final long PENDING_POLL_SECONDS = 1;
+    /** Header asking the browser to load again an url after a delay. */
+    private static final String REFRESH_HEADER = "Refresh";
+    /** Status of the job submissions refused by the admission control. */
+    private static final int TOO_MANY_REQUESTS = 429;
+    /** Minimum delay before the client polls the job list again in milliseconds. */
+    private static final long MIN_JOBS_REFRESH_MILLIS = 1000;
+    /** Format of the HTTP dates. */
+    private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME;
+    /** Keyword of the import operations. */
+    private static final String IMPORT_KEYWORD = "Import";
+    /** Keyword of the export operations. */
+    private static final String EXPORT_KEYWORD = "Export";
+    /** Keywords of the operations not shown in the process list. */
+    private static final List<String> IMPORT_EXPORT_KEYWORDS = Arrays.asList(IMPORT_KEYWORD, EXPORT_KEYWORD);
+
     @Requires
     private BaseServerImpl coreServerController;
 
@@ -154,128 +193,181 @@ public class MainController extends DefaultController {
         }
     }
 
+    @Route(method = HttpMethod.GET, uri = "/session/ready")
+    public Result sessionReady(@Parameter("wait") Boolean wait) {
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if(session == null) {
+            return badRequest("Unexisting session.");
+        }
+        //Optionally answer once the initialization is done
+        if(wait != null && wait && !session.whenReady().isDone()) {
+            return answerLater(session.whenReady().handle((s, throwable) -> readiness(session)));
+        }
+        return readiness(session);
+    }
+
+    @Route(method = HttpMethod.GET, uri = "/pending/{id}")
+    public Result pending(@Parameter("id") String id) {
+        //Only the client which has sent the request can get its response
+        String token = context().cookieValue("token");
+        PendingCalls.PendingCall<Result> call = token == null ? null :
+                coreServerController.getPendingCalls().poll(id, token);
+        if(call == null) {
+            return notFound("Unknown pending request.");
+        }
+        if(!call.isFinished()) {
+            return accepted(id);
+        }
+        if(call.isTimedOut()) {
+            return status(Status.SERVICE_UNAVAILABLE).render("The service did not answer in time.");
+        }
+        if(call.isFailed()) {
+            return internalServerError("The service call failed.");
+        }
+        return call.getResponse();
+    }
+
     @Route(method = HttpMethod.GET, uri = "/process/processList")
     public Result processList(@Parameter("filters") String filters) throws IOException {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                List<Operation> processList = session.getOperationList();
-                List<Operation> importExportList = new ArrayList<>();
-                List<Operation> filteredList = new ArrayList<>();
-
-                for(Operation op : processList){
-                    for(String keyword :  op.getKeyWord()){
-                        if(keyword.equals("Export") || keyword.equals("Import")){
-                            importExportList.add(op);
-                        }
-                    }
-                }
-                processList.removeAll(importExportList);
-                for(Operation op : processList){
-                    if(op.getTitle().toLowerCase().contains(filters.toLowerCase())) {
-                        filteredList.add(op);
-                    }
-                }
-                return ok(render(processListTemplate, "processList", filteredList));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest(render(processListTemplate));
         }
-        return badRequest(render(processListTemplate));
+        return whenReady(session, s -> {
+            return catalogView(s, "ProcessList", filters, () -> {
+                OperationSearchIndex.SearchResult result = s.searchOperations(filters, null, IMPORT_EXPORT_KEYWORDS);
+                return render(processListTemplate,
+                        "processList", result.getOperationList(),
+                        "keywordFacets", result.getKeywordFacets());
+            });
+        });
     }
 
     @Route(method = HttpMethod.GET, uri = "/describeProcess")
     public Result describeProcess(@Parameter("id") String id) throws IOException {
-        String token = context().cookieValue("token");
-        Session session = null;
-        for(Session s : coreServerController.getOpenSessionList()) {
-            if (s.getToken().toString().equals(token)) {
-                session = s;
-                Operation op = session.getOperation(id);
-                return ok(render(describeProcess, "operation", op, "session", session));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest(render(homeContent));
         }
-        return badRequest(render(homeContent));
+        return whenReady(session, s -> {
+            //A process which can not be described is not rendered, so its view is not cached
+            Operation operation = s.getOperation(id);
+            if(operation == null) {
+                return internalServerError("Unable to describe the process.");
+            }
+            return catalogView(s, "Describe", id, () -> render(describeProcess, "operation", operation));
+        });
     }
 
     @Route(method = HttpMethod.POST, uri = "/execute")
     public Result execute() throws IOException {
-        for(Session session : coreServerController.getOpenSessionList()) {
-            String urlContent = URLDecoder.decode(context().reader().readLine(), "UTF-8");
-            String[] split = urlContent.split("&");
-            String token = context().cookieValue("token");
-            if (session.getToken().toString().equals(token)) {
-                Map<String, String> inputData = new HashMap<>();
-                String id = "";
-                for (String str : split) {
-                    String[] val = str.split("=");
-                    if (val[0].equals("processId")) {
-                        id = val[1];
-                    } else {
-                        if (val.length == 1) {
-                            inputData.put(val[0], "");
-                        } else {
-                            inputData.put(val[0], val[1]);
-                        }
-                    }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest();
+        }
+        String urlContent = URLDecoder.decode(context().reader().readLine(), "UTF-8");
+        String[] split = urlContent.split("&");
+        Map<String, String> inputData = new HashMap<>();
+        String id = "";
+        for (String str : split) {
+            String[] val = str.split("=");
+            if (val[0].equals("processId")) {
+                id = val[1];
+            } else {
+                if (val.length == 1) {
+                    inputData.put(val[0], "");
+                } else {
+                    inputData.put(val[0], val[1]);
                 }
-                session.executeOperation(id, inputData);
-                return ok();
             }
         }
-        return badRequest();
+        String processId = id;
+        return whenReadyAsync(session, s -> {
+            //The job is refused if the queue of the user or of the server is full
+            AdmissionController.Admission admission = coreServerController.admitJob(s);
+            if(!admission.isAdmitted()) {
+                return CompletableFuture.completedFuture(tooManyRequests(admission));
+            }
+            return s.executeOperationAsync(processId, inputData, admission).thenApply(statusInfo ->
+                    statusInfo != null ? ok() : internalServerError("Unable to execute the operation."));
+        }, Function.identity());
+    }
+
+    @Route(method = HttpMethod.POST, uri = "/dismiss")
+    public Result dismiss(@Parameter("jobId") String jobId) {
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest("Unexisting session.");
+        }
+        //The running job is cancelled and its admission slot freed before the answer
+        return whenReadyAsync(session, s -> s.dismissJobAsync(jobId),
+                statusInfo -> statusInfo != null ? ok() : badRequest("Unable to dismiss the job."));
     }
 
     @Route(method = HttpMethod.POST, uri = "/uploading")
     public Result upload() throws IOException {
-        String cookie = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if(session.getToken().toString().equalsIgnoreCase(cookie)){
-
-                if(!context().files().isEmpty()){
-                    for (FileItem fileItem : context().files()) {
-                        if(fileItem!=null){
-                            byte[] buffer = new byte[8 * 1024];
-                            FileOutputStream out = new FileOutputStream(new File(session.getWorkspaceFolder(),
-                                    fileItem.name()));
-                            BufferedInputStream in = new BufferedInputStream(fileItem.stream());
-                            while (in.read(buffer) != -1) {
-                                out.write(buffer);
-                            }
-                            in.close();
-                            out.close();
-                        }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if(session == null){
+            return badRequest(render(homeContent));
+        }
+        //The uploaded files are copied before the answer as the request files are not kept after it
+        Map<String, File> uploadMap = new HashMap<>();
+        try {
+            for (FileItem fileItem : context().files()) {
+                if(fileItem!=null){
+                    File tmpFile = Files.createTempFile(UPLOAD_PREFIX, null).toFile();
+                    uploadMap.put(fileItem.name(), tmpFile);
+                    try (InputStream in = fileItem.stream()) {
+                        Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
                     }
                 }
-                return  ok();
             }
+        } catch (IOException e) {
+            deleteUploads(uploadMap);
+            return internalServerError("Unable to read the uploaded files.");
+        }
+        if(!session.isReady()) {
+            session.whenReady().whenComplete((s, throwable) -> {
+                if(throwable != null) {
+                    deleteUploads(uploadMap);
+                }
+            });
         }
-        return badRequest(render(homeContent));
+        return whenReady(session, s -> {
+            try {
+                for (Map.Entry<String, File> entry : uploadMap.entrySet()) {
+                    Files.move(entry.getValue().toPath(), new File(s.getWorkspaceFolder(), entry.getKey()).toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                deleteUploads(uploadMap);
+                return internalServerError("Unable to write the uploaded files.");
+            }
+            return  ok();
+        });
     }
 
     @Route(method = HttpMethod.GET, uri = "/jobs")
     public Result jobs() throws IOException {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                List<StatusInfo> statusInfoToRefreshList = session.getAllStatusInfoToRefresh();
-                List<StatusInfo> statusInfoList = session.getAllStatusInfo();
-                long minRefresh = Long.MAX_VALUE;
-                for (StatusInfo statusInfo : statusInfoToRefreshList) {
-                    minRefresh = Math.min(session.refreshStatus(statusInfo), minRefresh);
-                }
-
-                for (StatusInfo statusInfo : statusInfoList) {
-                    if (statusInfo.getNextRefreshMillis() >= 0) {
-                        minRefresh = Math.min(statusInfo.getNextRefreshMillis(), minRefresh);
-                    }
-                }
-
-                if (minRefresh == Long.MAX_VALUE) {
-                    minRefresh = -1;
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return ok(render(homeContent));
+        }
+        return whenReady(session, s -> {
+            //The status are refreshed in background, the route only reads them
+            List<StatusInfo> statusInfoList = s.getAllStatusInfo();
+            long minRefresh = Long.MAX_VALUE;
+            for (StatusInfo statusInfo : statusInfoList) {
+                if (statusInfo.getResult() == null) {
+                    minRefresh = Math.min(Math.max(statusInfo.getNextRefreshMillis(), MIN_JOBS_REFRESH_MILLIS),
+                            minRefresh);
                 }
-                return ok(render(jobs, "jobList", session.getAllStatusInfo(), "nextRefresh", minRefresh));
             }
-        }
-        return ok(render(homeContent));
+            if (minRefresh == Long.MAX_VALUE) {
+                minRefresh = -1;
+            }
+            return ok(render(jobs, "jobList", statusInfoList, "nextRefresh", minRefresh));
+        });
     }
 
     @Route(method = HttpMethod.POST, uri = "/register")
@@ -299,90 +391,59 @@ public class MainController extends DefaultController {
 
     @Route(method = HttpMethod.GET, uri = "/data")
     public Result data() {
-        String token = context().cookieValue("token");
-        for (Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                return ok(render(data));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session != null) {
+            return ok(render(data));
         }
         return badRequest(render(data));
     }
 
     @Route(method = HttpMethod.GET, uri = "/dataleftnav")
     public Result dataLeftNav() {
-        String token = context().cookieValue("token");
-        for (Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                return ok(render(dataLeftNav));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session != null) {
+            return ok(render(dataLeftNav));
         }
         return badRequest(render(data));
     }
 
     @Route(method = HttpMethod.GET, uri = "/data/import")
     public Result Import(@Parameter("filters") String filters) {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                List<Operation> opList = session.getOperationList();
-                List<Operation> importList = new ArrayList<>();
-                List<Operation> filteredList = new ArrayList<>();
-
-                for(Operation op : opList){
-                    for(String keyword :  op.getKeyWord()){
-                        if(keyword.equals("Import")){
-                            importList.add(op);
-                        }
-                    }
-                }
-
-                for(Operation op : importList){
-                    if(op.getTitle().toLowerCase().contains(filters.toLowerCase())) {
-                        filteredList.add(op);
-                    }
-                }
-                return ok(render(tImport, "processList", filteredList));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest(render(homeContent));
         }
-
-        return badRequest(render(homeContent));
+        return whenReady(session, s -> {
+            return catalogView(s, "Import", filters, () -> {
+                OperationSearchIndex.SearchResult result = s.searchOperations(filters, IMPORT_KEYWORD, null);
+                return render(tImport,
+                        "processList", result.getOperationList(),
+                        "keywordFacets", result.getKeywordFacets());
+            });
+        });
     }
 
     @Route(method = HttpMethod.GET, uri = "/data/export")
     public Result export(@Parameter("filters") String filters) {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                List<Operation> opList = session.getOperationList();
-                List<Operation> exportList = new ArrayList<>();
-                List<Operation> filteredList = new ArrayList<>();
-
-                for(Operation op : opList){
-                    for(String keyword :  op.getKeyWord()){
-                        if(keyword.equals("Export")){
-                            exportList.add(op);
-                        }
-                    }
-                }
-                for(Operation op : exportList){
-                    if(op.getTitle().toLowerCase().contains(filters.toLowerCase())) {
-                        filteredList.add(op);
-                    }
-                }
-                return ok(render(export, "processList", filteredList));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session == null) {
+            return badRequest(render(homeContent));
         }
-
-        return badRequest(render(homeContent));
+        return whenReady(session, s -> {
+            return catalogView(s, "Export", filters, () -> {
+                OperationSearchIndex.SearchResult result = s.searchOperations(filters, EXPORT_KEYWORD, null);
+                return render(export,
+                        "processList", result.getOperationList(),
+                        "keywordFacets", result.getKeywordFacets());
+            });
+        });
     }
 
     @Route(method = HttpMethod.GET, uri = "/process")
     public Result process() {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                return ok(render(process));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session != null) {
+            return ok(render(process));
         }
         return badRequest(render(process));
     }
@@ -390,24 +451,17 @@ public class MainController extends DefaultController {
 
     @Route(method = HttpMethod.GET, uri = "/process/leftNavContent")
     public Result leftNavContent() {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                return ok(render(leftNavContent));
-            }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if (session != null) {
+            return ok(render(leftNavContent));
         }
         return badRequest(render(process));
     }
 
     @Route(method = HttpMethod.GET, uri = "/user")
     public Result user() {
-        String token = context().cookieValue("token");
-        for(Session session : coreServerController.getOpenSessionList()) {
-            if (session.getToken().toString().equals(token)) {
-                return ok(render(user, "session", session));
-            }
-        }
-        return ok(render(user, "session", null));
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        return ok(render(user, "session", session));
     }
 
     @Route(method = HttpMethod.POST, uri = "/user/changePwd")
@@ -431,8 +485,12 @@ public class MainController extends DefaultController {
                     break;
             }
         }
-        if(newPassword.equals(newPasswordRepeat) && token != null) {
-            coreServerController.changePassword(token, newPassword);
+        Session session = coreServerController.resolveSession(token);
+        if(session == null) {
+            return badRequest("Unexisting session.");
+        }
+        if(newPassword.equals(newPasswordRepeat)) {
+            coreServerController.changePassword(session.getUsername(), newPassword);
             return ok("Password changed.");
         }
         else{
@@ -442,13 +500,7 @@ public class MainController extends DefaultController {
 
     @Route(method = HttpMethod.GET, uri = "/user/settings")
     public Result settings() {
-        String token = context().cookieValue("token");
-        Session session = null;
-        for(Session s : coreServerController.getOpenSessionList()){
-            if(s.getToken().toString().equals(token)){
-                session = s;
-            }
-        }
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
         if(session != null) {
             return ok(render(userSettings, "session", session));
         }
@@ -459,46 +511,222 @@ public class MainController extends DefaultController {
 
     @Route(method = HttpMethod.GET, uri = "/data/database")
     public Result database() {
-        String token = context().cookieValue("token");
-        Session session = null;
-        for(Session s : coreServerController.getOpenSessionList()){
-            if(s.getToken().toString().equals(token)){
-                session = s;
-            }
-        }
-        if(session != null) {
-            DatabaseContent dbContent = session.getDatabaseContent();
-            int maxSize = 0;
-            for(DatabaseTable dbTable : dbContent.getTableList()){
-                maxSize = Math.max(maxSize, dbTable.getFieldList().size()+1);
-            }
-            return ok(render(databaseView,
-                    "databaseContent", dbContent,
-                    "cell_width_percent", (float)(100)/maxSize));
-        }
-        else {
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if(session == null) {
             return badRequest("Unexisting session.");
         }
+        //The database is read by the server executor
+        return whenReadyAsync(session,
+                s -> CompletableFuture.supplyAsync(s::getDatabaseContent, coreServerController.getExecutor()),
+                dbContent -> {
+                    int maxSize = 0;
+                    for(DatabaseTable dbTable : dbContent.getTableList()){
+                        maxSize = Math.max(maxSize, dbTable.getFieldList().size()+1);
+                    }
+                    return ok(render(databaseView,
+                            "databaseContent", dbContent,
+                            "cell_width_percent", (float)(100)/maxSize));
+                });
     }
 
     @Route(method = HttpMethod.GET, uri = "/createArchive")
     public Result createArchive(@Parameter("jobId") String jobId) {
-        String token = context().cookieValue("token");
-        Session session = null;
-        for(Session s : coreServerController.getOpenSessionList()){
-            if(s.getToken().toString().equals(token)){
-                session = s;
+        Session session = coreServerController.resolveSession(context().cookieValue("token"));
+        if(session == null) {
+            return badRequest("Unexisting session.");
+        }
+        //The archive is written by the server executor
+        return whenReadyAsync(session,
+                s -> CompletableFuture.supplyAsync(() -> s.getResultAchive(jobId), coreServerController.getExecutor()),
+                file -> file != null ? ok(file, true) : badRequest("Unable to create the result archive."));
+    }
+
+    /**
+     * Returns the readiness of the session with the duration of its initialization phases.
+     * @param session Session to check.
+     * @return The route result.
+     */
+    private Result readiness(Session session) {
+        Map<String, Object> readiness = new HashMap<>();
+        readiness.put("ready", session.isReady());
+        readiness.put("failed", session.whenReady().isCompletedExceptionally());
+        readiness.put("phases", session.getInitPhaseMillis());
+        return ok(readiness).json();
+    }
+
+    /**
+     * Deletes the uploaded files not moved to the workspace.
+     * @param uploadMap Map with the file name as key and the uploaded file as value.
+     */
+    private void deleteUploads(Map<String, File> uploadMap) {
+        for (File file : uploadMap.values()) {
+            if(file.exists() && !file.delete()) {
+                LOGGER.warn("Unable to delete the uploaded file "+file.getAbsolutePath());
             }
         }
-        if(session != null) {
-            File file = session.getResultAchive(jobId);
-            if(file != null) {
-                return ok(file, true);
+    }
+
+    /**
+     * Returns the answer to a refused job submission, giving the position the job would have had in the full queue
+     * and the time to wait before submitting it again.
+     * @param admission Refused admission.
+     * @return The route result.
+     */
+    private Result tooManyRequests(AdmissionController.Admission admission) {
+        Map<String, Object> refusal = new HashMap<>();
+        refusal.put("message", "Too many jobs submitted, please retry later.");
+        refusal.put("queuePosition", admission.getQueuePosition());
+        refusal.put("queueLimit", admission.getQueueLimit());
+        refusal.put("retryAfter", admission.getRetryAfterSeconds());
+        return status(TOO_MANY_REQUESTS).render(refusal).json()
+                .with(HeaderNames.RETRY_AFTER, Long.toString(admission.getRetryAfterSeconds()));
+    }
+
+    /**
+     * Returns a view depending only on the operation catalogs of the session. While the catalogs do not change, the
+     * rendered view is taken from the server cache and the clients having a valid copy are answered with 304.
+     * @param session Ready session.
+     * @param viewName Name of the view, part of the cache key.
+     * @param variant Parameter of the view like the filter, part of the cache key.
+     * @param renderer Renders the view.
+     * @return The route result.
+     */
+    private Result catalogView(Session session, String viewName, String variant, Supplier<Renderable<?>> renderer) {
+        String catalogTag = session.getCatalogTag();
+        if(catalogTag == null) {
+            return ok(renderer.get());
+        }
+        FragmentCache<Renderable<?>> cache = coreServerController.getFragmentCache();
+        String key = catalogTag + "|" + viewName + "|" + variant;
+        FragmentCache.Fragment<Renderable<?>> fragment = cache.get(key);
+        if(fragment == null) {
+            fragment = cache.put(key, renderer.get());
+        }
+        String lastModified = HTTP_DATE_FORMAT.format(
+                Instant.ofEpochMilli(fragment.getLastModifiedMillis()).atZone(ZoneOffset.UTC));
+        Result result;
+        if(isNotModified(fragment)) {
+            result = status(Status.NOT_MODIFIED);
+        }
+        else {
+            result = ok(fragment.getContent());
+        }
+        return result.with(HeaderNames.ETAG, fragment.getEtag())
+                .with(HeaderNames.LAST_MODIFIED, lastModified)
+                .with(HeaderNames.CACHE_CONTROL, "private, no-cache");
+    }
+
+    /**
+     * Returns true if the copy of the client is still valid, checking first its entity tag, then its date.
+     * @param fragment Cached view.
+     * @return True if the client copy is valid, false otherwise.
+     */
+    private boolean isNotModified(FragmentCache.Fragment<Renderable<?>> fragment) {
+        String ifNoneMatch = context().header(HeaderNames.IF_NONE_MATCH);
+        if(ifNoneMatch != null) {
+            for(String etag : ifNoneMatch.split(",")) {
+                if(etag.trim().equals(fragment.getEtag()) || etag.trim().equals("*")) {
+                    return true;
+                }
             }
-            return badRequest("Unable to create the result archive.");
+            return false;
         }
-        else{
-            return badRequest("Unexisting session.");
+        String ifModifiedSince = context().header(HeaderNames.IF_MODIFIED_SINCE);
+        if(ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, HTTP_DATE_FORMAT).toInstant().toEpochMilli();
+                //The HTTP dates have a precision of one second
+                return fragment.getLastModifiedMillis() / 1000 <= since / 1000;
+            } catch (DateTimeParseException ignored) {}
         }
+        return false;
+    }
+
+    /**
+     * Returns the result of the given action applied on the session once it is ready. If the session is already ready
+     * the action is directly applied, otherwise the request is answered later and the action is applied as soon as the
+     * session readiness future is completed.
+     * @param session Session needed by the action.
+     * @param action Action building the route result from the ready session.
+     * @return The route result.
+     */
+    private Result whenReady(Session session, Function<Session, Result> action) {
+        if(session.isReady()) {
+            return action.apply(session);
+        }
+        return answerLater(session.whenReady().thenApply(inContext(action)));
+    }
+
+    /**
+     * Returns the result of the given asynchronous call on the session once it is ready. If the session is not ready
+     * or if the call is not completed, the request is answered later and the result is built as soon as the call
+     * future is completed. No thread waits for the call.
+     * @param session Session needed by the call.
+     * @param call Call on the ready session.
+     * @param response Builds the route result from the value of the call.
+     * @return The route result.
+     */
+    private <T> Result whenReadyAsync(Session session, Function<Session, CompletableFuture<T>> call,
+                                      Function<T, Result> response) {
+        if(!session.isReady()) {
+            return answerLater(session.whenReady().thenCompose(inContext(call)).thenApply(inContext(response)));
+        }
+        CompletableFuture<T> future = call.apply(session);
+        if(!future.isDone()) {
+            return answerLater(future.thenApply(inContext(response)));
+        }
+        if(future.isCompletedExceptionally()) {
+            return internalServerError("The service call failed.");
+        }
+        return response.apply(future.join());
+    }
+
+    /**
+     * Returns the given function applied in the context of the current request, so that it can render the views
+     * once the request is answered, from the thread completing a future.
+     * @param function Function to apply in the request context.
+     * @return The function applied in the request context.
+     */
+    private <T, U> Function<T, U> inContext(Function<T, U> function) {
+        Context context = context();
+        return value -> {
+            Context previous = Context.CONTEXT.get();
+            Context.CONTEXT.set(context);
+            try {
+                return function.apply(value);
+            } finally {
+                if(previous == null) {
+                    Context.CONTEXT.remove();
+                }
+                else {
+                    Context.CONTEXT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Registers a call not completed yet and answers the request with 202, giving the location where the client
+     * gets the response once the call is completed.
+     * @param future Future of the call, completed with the route result.
+     * @return The route result.
+     */
+    private Result answerLater(CompletableFuture<Result> future) {
+        String id = coreServerController.getPendingCalls().register(context().cookieValue("token"), future);
+        return accepted(id);
+    }
+
+    /**
+     * Returns the answer to a request whose response is not ready yet. The Location and Retry-After headers are read
+     * by the scripts and the Refresh header by the browser for the downloads.
+     * @param id Id of the pending call.
+     * @return The route result.
+     */
+    private Result accepted(String id) {
+        String uri = "/pending/" + id;
+        return status(Status.ACCEPTED).render("The request is being processed.")
+                .with(HeaderNames.LOCATION, uri)
+                .with(HeaderNames.RETRY_AFTER, Long.toString(PENDING_POLL_SECONDS))
+                .with(REFRESH_HEADER, PENDING_POLL_SECONDS + "; url=" + uri);
     }
 }
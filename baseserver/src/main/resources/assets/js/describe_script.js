@@ -79,7 +79,16 @@
                 },
                 error : function(text)
                 {
-                    $( "#content" ).html(String(text.responseText));
+                    if(text.status == 429 && text.responseJSON) {
+                        //The job queue is full, the job should be submitted again later
+                        $("#submitText").toggle();
+                        alert(text.responseJSON.message + "\nPosition in the queue : " +
+                            text.responseJSON.queuePosition + " / " + text.responseJSON.queueLimit +
+                            "\nRetry in " + text.responseJSON.retryAfter + " s");
+                    }
+                    else {
+                        $( "#content" ).html(String(text.responseText));
+                    }
                 }
             });
         });
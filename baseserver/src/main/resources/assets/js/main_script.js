@@ -47,6 +47,27 @@ $('#navbar').affix({
 
 $('#Mymodal').on('shown.bs.modal', function () {$('#sign in').focus()})
 
+/** Requests answered later : the response is polled at the location given with the 202 status */
+$.ajaxPrefilter(function(options, originalOptions) {
+    var success = originalOptions.success;
+    if(!success) {
+        return;
+    }
+    options.success = function(data, textStatus, xhr) {
+        var location = xhr.getResponseHeader("Location");
+        if(xhr.status == 202 && location) {
+            var delay = (parseInt(xhr.getResponseHeader("Retry-After")) || 1) * 1000;
+            setTimeout(function() {
+                $.ajax($.extend({}, originalOptions,
+                    {type: "GET", url: location, data: null, async: true, beforeSend: null}));
+            }, delay);
+        }
+        else {
+            success.apply(this, arguments);
+        }
+    };
+});
+
 function process(){
     $.ajax({ type: "GET",
         url: "http://localhost:8080/process",
@@ -221,6 +242,76 @@ function jobs(){
     });
 }
 
+/** Dismisses a job, cancelling it if it is still running, then shows the job list again. */
+function dismissJob(jobId){
+    $.ajax({ type: "POST",
+        url: "http://localhost:8080/dismiss",
+        data: { jobId: jobId },
+        success : function(text)
+        {
+            jobs();
+        },
+        error : function(text)
+        {
+            alert(String(text.responseText));
+            jobs();
+        }
+    });
+}
+
+/** Socket pushing the job changes of the session, null if not opened. */
+var jobSocket = null;
+/** Timer of the next refresh of the job list. */
+var jobsRefreshTimer = null;
+
+/** Opens the job socket if the browser supports it. The job list falls back to polling otherwise. */
+function openJobSocket(){
+    if(jobSocket != null || !("WebSocket" in window)){
+        return;
+    }
+    var protocol = window.location.protocol === "https:" ? "wss://" : "ws://";
+    jobSocket = new WebSocket(protocol + window.location.host + "/jobs/ws");
+    //The session token is sent as first message, so it does not appear in the socket url
+    jobSocket.onopen = function(){
+        jobSocket.send(readCookie("token"));
+    };
+    jobSocket.onmessage = function(message){
+        var event = JSON.parse(message.data);
+        if(event.event === "unauthorized"){
+            jobSocket.close();
+            return;
+        }
+        var progress = $("#" + event.jobId + "progress");
+        //A progress change is updated in place, the other changes reload the list
+        if(event.event === "changed" && event.status === "RUNNING" && progress.length > 0 && !event.resultReady){
+            progress.css("width", event.percentCompleted + "%");
+            progress.find("span").html(event.percentCompleted + "%");
+        }
+        else{
+            scheduleJobsRefresh(0);
+        }
+    };
+    jobSocket.onclose = function(){
+        jobSocket = null;
+        //Falls back to polling
+        scheduleJobsRefresh(1000);
+    };
+}
+
+/** Schedules the refresh of the job list. While the job socket is open, only the pushed changes refresh it. */
+function scheduleJobsRefresh(delay){
+    if(delay > 0 && jobSocket != null && jobSocket.readyState === WebSocket.OPEN){
+        return;
+    }
+    clearTimeout(jobsRefreshTimer);
+    jobsRefreshTimer = setTimeout(function(){
+        //Refreshes only if the job list is displayed
+        if($("#content").find(".table").length > 0 && $("#content").find("th:contains('ProcessTitle')").length > 0){
+            jobs();
+        }
+    }, delay);
+}
+
 function data(){
     $.ajax({ type: "GET",
         url: "http://localhost:8080/data",
@@ -350,14 +441,18 @@ function loadFile(id){
     nameFile();
     var form = new FormData();
     form.append("file",$("#file")[0].files[0]);
-    var request = new XMLHttpRequest();
-    request.open('POST', 'http://localhost:8080/uploading', false);
-    request.send(form);
-    if (request.status === 200) {
-        $("#"+id).addClass("has-success")
-    } else {
-        $("#"+id).addClass("has-error")
-    }
+    $.ajax({ type: "POST",
+        url: "http://localhost:8080/uploading",
+        data: form,
+        processData: false,
+        contentType: false,
+        success : function() {
+            $("#"+id).addClass("has-success")
+        },
+        error : function() {
+            $("#"+id).addClass("has-error")
+        }
+    });
 }
 
 /** Login modal scripts */
@@ -1,4 +1,4 @@
 -- Script of the initiation of the database.
 DROP TABLE IF EXISTS session_table;
-CREATE TABLE session_table (username VARCHAR(50), password VARCHAR(50), expirationTime LONG, poolSize INT);
-INSERT INTO session_table VALUES ('admin', 'admin', 172800000, 10);
\ No newline at end of file
+CREATE TABLE session_table (id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(50) NOT NULL UNIQUE, password VARCHAR(50), expirationTime LONG, poolSize INT, maxQueuedJobs INT);
+INSERT INTO session_table (username, password, expirationTime, poolSize, maxQueuedJobs) VALUES ('admin', 'admin', 172800000, 10, 200);
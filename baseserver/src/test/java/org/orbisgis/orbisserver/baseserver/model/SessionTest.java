@@ -0,0 +1,89 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.model;
+
+import org.junit.Test;
+import org.orbisgis.orbisserver.api.model.Result;
+
+import javax.xml.datatype.DatatypeFactory;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class of the Session.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionTest {
+
+    /** Default life time of the finished jobs in milliseconds. */
+    private static final long DEFAULT_EXPIRATION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Tests that a finished job without result, like a failed job, still expires after the default time.
+     */
+    @Test
+    public void testExpirationWithoutResult() {
+        assertEquals(DEFAULT_EXPIRATION_MILLIS, Session.getExpirationDelayMillis(null, System.currentTimeMillis()));
+    }
+
+    /**
+     * Tests that a result without expiration date expires after the default time.
+     */
+    @Test
+    public void testExpirationWithoutDate() {
+        Result result = new Result("job1");
+        assertEquals(DEFAULT_EXPIRATION_MILLIS, Session.getExpirationDelayMillis(result, System.currentTimeMillis()));
+    }
+
+    /**
+     * Tests that a result expires at its expiration date.
+     */
+    @Test
+    public void testExpirationWithDate() throws Exception {
+        long timeMillisNow = System.currentTimeMillis();
+        GregorianCalendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(timeMillisNow + 5000);
+        Result result = new Result("job1");
+        result.setExpirationDate(DatatypeFactory.newInstance().newXMLGregorianCalendar(calendar));
+        assertEquals(5000, Session.getExpirationDelayMillis(result, timeMillisNow));
+    }
+}
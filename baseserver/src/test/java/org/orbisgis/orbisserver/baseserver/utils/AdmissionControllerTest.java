@@ -0,0 +1,121 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class of the AdmissionController.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class AdmissionControllerTest {
+
+    /**
+     * Tests that the jobs of a user are refused once its limit is reached, without affecting the other users.
+     */
+    @Test
+    public void testUserLimit() {
+        AdmissionController controller = new AdmissionController(0);
+        AdmissionController.Admission first = controller.admit("user1", 2);
+        AdmissionController.Admission second = controller.admit("user1", 2);
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertEquals(1, first.getQueuePosition());
+        assertEquals(2, second.getQueuePosition());
+        AdmissionController.Admission refused = controller.admit("user1", 2);
+        assertFalse(refused.isAdmitted());
+        assertEquals(3, refused.getQueuePosition());
+        assertEquals(2, refused.getQueueLimit());
+        assertTrue(refused.getRetryAfterSeconds() >= 1);
+        assertTrue(controller.admit("user2", 2).isAdmitted());
+        assertEquals(2, controller.getUserJobs("user1"));
+        assertEquals(3, controller.getServerJobs());
+    }
+
+    /**
+     * Tests that the jobs of all the users are refused once the server limit is reached.
+     */
+    @Test
+    public void testServerLimit() {
+        AdmissionController controller = new AdmissionController(2);
+        assertTrue(controller.admit("user1", 0).isAdmitted());
+        assertTrue(controller.admit("user2", 0).isAdmitted());
+        AdmissionController.Admission refused = controller.admit("user3", 0);
+        assertFalse(refused.isAdmitted());
+        assertEquals(3, refused.getQueuePosition());
+        assertEquals(2, refused.getQueueLimit());
+        assertEquals(0, controller.getUserJobs("user3"));
+        assertEquals(2, controller.getServerJobs());
+    }
+
+    /**
+     * Tests that a released admission frees its slot only once, and that a refusal holds no slot.
+     */
+    @Test
+    public void testRelease() {
+        AdmissionController controller = new AdmissionController(1);
+        AdmissionController.Admission admission = controller.admit("user1", 1);
+        AdmissionController.Admission refused = controller.admit("user1", 1);
+        refused.release();
+        assertEquals(1, controller.getServerJobs());
+        admission.release();
+        admission.release();
+        assertEquals(0, controller.getServerJobs());
+        assertEquals(0, controller.getUserJobs("user1"));
+        assertTrue(controller.admit("user1", 1).isAdmitted());
+        assertEquals(1, controller.getServerJobs());
+    }
+
+    /**
+     * Tests that there is no limit with a maximum of 0 or less.
+     */
+    @Test
+    public void testNoLimit() {
+        AdmissionController controller = new AdmissionController(0);
+        for(int i = 0; i < 100; i++){
+            assertTrue(controller.admit("user1", -1).isAdmitted());
+        }
+        assertEquals(100, controller.getUserJobs("user1"));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class of the FragmentCache.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class FragmentCacheTest {
+
+    /**
+     * Tests that the least recently used view is evicted once the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        FragmentCache<String> cache = new FragmentCache<>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        //Reading 'a' makes 'b' the least recently used view
+        assertNotNull(cache.get("a"));
+        cache.put("c", "C");
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a").getContent());
+        assertEquals("C", cache.get("c").getContent());
+    }
+
+    /**
+     * Tests that nothing is cached with a size of 0.
+     */
+    @Test
+    public void testNoCache() {
+        FragmentCache<String> cache = new FragmentCache<>(0);
+        cache.put("a", "A");
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    /**
+     * Tests the hit and miss counts and the clear.
+     */
+    @Test
+    public void testCounts() {
+        FragmentCache<String> cache = new FragmentCache<>(4);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    /**
+     * Tests that the entity tag of a view only depends on its key.
+     */
+    @Test
+    public void testEtag() {
+        FragmentCache<String> cache = new FragmentCache<>(4);
+        String etag = cache.put("v1|Describe|id", "A").getEtag();
+        assertEquals(etag, cache.put("v1|Describe|id", "B").getEtag());
+        assertFalse(etag.equals(cache.put("v2|Describe|id", "A").getEtag()));
+    }
+}
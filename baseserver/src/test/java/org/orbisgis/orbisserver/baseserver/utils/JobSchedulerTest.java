@@ -0,0 +1,166 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class of the JobScheduler.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class JobSchedulerTest {
+
+    /** Maximum time to wait for the jobs of a test in seconds. */
+    private static final long WAIT_SECONDS = 10;
+
+    /**
+     * Tests that a session with a twice bigger pool size starts twice more jobs while both sessions have queued jobs.
+     */
+    @Test
+    public void testFairShareOrder() throws InterruptedException {
+        JobScheduler scheduler = new JobScheduler(1);
+        try {
+            ExecutorService blocker = scheduler.createSessionExecutor("blocker", 1);
+            ExecutorService small = scheduler.createSessionExecutor("small", 1);
+            ExecutorService big = scheduler.createSessionExecutor("big", 2);
+            //The only worker is blocked until all the jobs are queued
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch gate = new CountDownLatch(1);
+            blocker.execute(() -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            CountDownLatch done = new CountDownLatch(12);
+            for(int i = 0; i < 6; i++){
+                small.execute(() -> {
+                    order.add("small");
+                    done.countDown();
+                });
+                big.execute(() -> {
+                    order.add("big");
+                    done.countDown();
+                });
+            }
+            gate.countDown();
+            assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            //The big session has a pass growing twice slower, so it runs two jobs for each job of the small one
+            assertEquals(Arrays.asList("small", "big", "big", "small", "big", "big", "small", "big", "big"),
+                    order.subList(0, 9));
+        }
+        finally {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Tests that a session never runs more jobs at the same time than its pool size, even with free threads.
+     */
+    @Test
+    public void testMaxConcurrency() throws InterruptedException {
+        JobScheduler scheduler = new JobScheduler(4);
+        try {
+            ExecutorService session = scheduler.createSessionExecutor("session", 2);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(8);
+            for(int i = 0; i < 8; i++){
+                session.execute(() -> {
+                    int count = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(count, Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(maxRunning.get() <= 2);
+        }
+        finally {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Tests that a shut down session executor refuses the new jobs and terminates once its jobs are done.
+     */
+    @Test
+    public void testShutdown() throws InterruptedException {
+        JobScheduler scheduler = new JobScheduler(1);
+        try {
+            ExecutorService session = scheduler.createSessionExecutor("session", 1);
+            CountDownLatch done = new CountDownLatch(1);
+            session.execute(done::countDown);
+            session.shutdown();
+            try {
+                session.execute(() -> {});
+                fail("A shut down executor should refuse the jobs.");
+            } catch (RejectedExecutionException ignored) {}
+            assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(session.awaitTermination(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+        finally {
+            scheduler.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class of the JobStore.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class JobStoreTest {
+
+    /**
+     * Tests the state index, case insensitive, updated when the status of a job changes.
+     */
+    @Test
+    public void testStateIndex() {
+        JobStore jobStore = new JobStore();
+        jobStore.put(status("job1", "process1", "Running"));
+        jobStore.put(status("job2", "process1", "RUNNING"));
+        jobStore.put(status("job3", "process2", "Succeeded"));
+        assertEquals(2, jobStore.countByState("running"));
+        assertEquals(Arrays.asList("job1", "job2"), sortedIds(jobStore.getByState("Running")));
+        jobStore.put(status("job1", "process1", "Succeeded"));
+        assertEquals(1, jobStore.countByState("RUNNING"));
+        assertEquals(Arrays.asList("job1", "job3"), sortedIds(jobStore.getByState("SUCCEEDED")));
+        assertEquals(0, jobStore.countByState("FAILED"));
+        assertTrue(jobStore.getByState("FAILED").isEmpty());
+    }
+
+    /**
+     * Tests the process index and the removal of a job from the indexes.
+     */
+    @Test
+    public void testProcessIndex() {
+        JobStore jobStore = new JobStore();
+        jobStore.put(status("job1", "process1", "Running"));
+        jobStore.put(status("job2", "process1", "Running"));
+        jobStore.put(status("job3", "process2", "Running"));
+        assertEquals(Arrays.asList("job1", "job2"), sortedIds(jobStore.getByProcess("process1")));
+        jobStore.remove("job1");
+        assertEquals(Collections.singletonList("job2"), sortedIds(jobStore.getByProcess("process1")));
+        assertEquals(2, jobStore.countByState("RUNNING"));
+        assertNull(jobStore.get("job1"));
+        assertEquals(2, jobStore.size());
+    }
+
+    /**
+     * Tests that a replacement only succeeds while the job is in the store.
+     */
+    @Test
+    public void testReplace() {
+        JobStore jobStore = new JobStore();
+        StatusInfo running = status("job1", "process1", "Running");
+        assertNull(jobStore.replace(running));
+        assertEquals(0, jobStore.size());
+        jobStore.put(running);
+        StatusInfo succeeded = status("job1", "process1", "Succeeded");
+        assertSame(running, jobStore.replace(succeeded));
+        assertSame(succeeded, jobStore.get("job1"));
+        jobStore.remove("job1");
+        assertNull(jobStore.replace(status("job1", "process1", "Running")));
+        assertNull(jobStore.get("job1"));
+    }
+
+    /**
+     * Tests that the snapshot keeps the insertion order and is only built again once the store has changed.
+     */
+    @Test
+    public void testSnapshot() {
+        JobStore jobStore = new JobStore();
+        jobStore.put(status("job2", "process1", "Running"));
+        jobStore.put(status("job1", "process1", "Running"));
+        JobStore.Snapshot snapshot = jobStore.getSnapshot();
+        assertSame(snapshot, jobStore.getSnapshot());
+        assertEquals(Arrays.asList("job2", "job1"), ids(snapshot.getJobList()));
+        //An update keeps the position of the job
+        jobStore.put(status("job2", "process1", "Succeeded"));
+        JobStore.Snapshot updated = jobStore.getSnapshot();
+        assertTrue(updated.getVersion() > snapshot.getVersion());
+        assertEquals(Arrays.asList("job2", "job1"), ids(updated.getJobList()));
+    }
+
+    /**
+     * Builds the status of a job.
+     */
+    private static StatusInfo status(String jobId, String processId, String status){
+        StatusInfo statusInfo = new StatusInfo(jobId);
+        statusInfo.setProcessID(processId);
+        statusInfo.setStatus(status);
+        return statusInfo;
+    }
+
+    /**
+     * Returns the ids of the jobs in the list order.
+     */
+    private static List<String> ids(List<StatusInfo> statusInfoList){
+        List<String> list = new ArrayList<>();
+        for(StatusInfo statusInfo : statusInfoList){
+            list.add(statusInfo.getJobId());
+        }
+        return list;
+    }
+
+    /**
+     * Returns the sorted ids of the jobs.
+     */
+    private static List<String> sortedIds(List<StatusInfo> statusInfoList){
+        List<String> list = ids(statusInfoList);
+        Collections.sort(list);
+        return list;
+    }
+}
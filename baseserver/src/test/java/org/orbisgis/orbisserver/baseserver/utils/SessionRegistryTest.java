@@ -0,0 +1,123 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+import org.orbisgis.orbisserver.baseserver.model.Session;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class of the SessionRegistry.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionRegistryTest {
+
+    /**
+     * Tests that a second session of a user is not registered while the first one is open.
+     */
+    @Test
+    public void testRegisterTwice() {
+        SessionRegistry registry = new SessionRegistry();
+        Session first = new UserSession("user1");
+        Session second = new UserSession("user1");
+        assertSame(first, registry.register(first));
+        assertSame(first, registry.register(second));
+        assertNull(registry.getByToken(second.getToken().toString()));
+        assertSame(first, registry.getByUsername("user1"));
+    }
+
+    /**
+     * Tests that a session killed but not unregistered yet is replaced by a new session of its user, and that the end
+     * of its kill does not unregister the new session.
+     */
+    @Test
+    public void testRegisterOverKilled() {
+        SessionRegistry registry = new SessionRegistry();
+        Session killed = new UserSession("user1");
+        registry.register(killed);
+        assertTrue(killed.compareAndSetState(Session.State.OPEN, Session.State.KILLED));
+        Session session = new UserSession("user1");
+        assertSame(session, registry.register(session));
+        assertSame(session, registry.getByToken(session.getToken().toString()));
+        assertSame(session, registry.getByUsername("user1"));
+        assertFalse(registry.kill(killed));
+        assertSame(session, registry.getByUsername("user1"));
+    }
+
+    /**
+     * Tests that a killed session is unregistered.
+     */
+    @Test
+    public void testKill() {
+        SessionRegistry registry = new SessionRegistry();
+        Session session = new UserSession("user1");
+        registry.register(session);
+        assertTrue(registry.kill(session));
+        assertFalse(registry.kill(session));
+        assertNull(registry.getByToken(session.getToken().toString()));
+        assertNull(registry.getByUsername("user1"));
+        assertEquals(0, registry.getSessions().size());
+    }
+
+    /**
+     * Session of a user, without resources.
+     */
+    private static class UserSession extends Session {
+        /** Name of the user of the session. */
+        private final String username;
+
+        private UserSession(String username){
+            super(UUID.randomUUID(), null, null);
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+    }
+}
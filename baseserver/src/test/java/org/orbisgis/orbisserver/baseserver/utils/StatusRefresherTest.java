@@ -0,0 +1,158 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.orbisgis.orbisserver.baseserver.model.Session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class of the StatusRefresher.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class StatusRefresherTest {
+
+    /** Maximum time to wait for a refresh of a test in seconds. */
+    private static final long WAIT_SECONDS = 10;
+
+    /**
+     * Tests that the refreshes of a session due in the same coalescing window are run with one bulk refresh.
+     */
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        TimerWheel timerWheel = new TimerWheel(10, 64, Runnable::run);
+        try {
+            StatusRefresher refresher = new StatusRefresher(timerWheel, "test");
+            RecordingSession session = new RecordingSession(1);
+            refresher.schedule(session, new StatusInfo("job1"), 10);
+            refresher.schedule(session, new StatusInfo("job2"), 100);
+            assertEquals(2, refresher.getPendingRefreshes());
+            assertTrue(session.refreshed.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(1, session.refreshList.size());
+            List<String> jobIdList = new ArrayList<>(session.refreshList.get(0));
+            Collections.sort(jobIdList);
+            assertEquals(Arrays.asList("job1", "job2"), jobIdList);
+            assertEquals(0, refresher.getPendingRefreshes());
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Tests that a refresh scheduled again for a job replaces the pending one.
+     */
+    @Test
+    public void testReplace() throws InterruptedException {
+        TimerWheel timerWheel = new TimerWheel(10, 64, Runnable::run);
+        try {
+            StatusRefresher refresher = new StatusRefresher(timerWheel, "test");
+            RecordingSession session = new RecordingSession(1);
+            refresher.schedule(session, new StatusInfo("job1"), 60000);
+            refresher.schedule(session, new StatusInfo("job1"), 10);
+            assertEquals(1, refresher.getPendingRefreshes());
+            assertTrue(session.refreshed.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList(Collections.singletonList("job1")), session.refreshList);
+            assertEquals(0, refresher.getPendingRefreshes());
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Tests that the refreshes of a cancelled session are dropped while the other sessions are still refreshed.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        TimerWheel timerWheel = new TimerWheel(10, 64, Runnable::run);
+        try {
+            StatusRefresher refresher = new StatusRefresher(timerWheel, "test");
+            RecordingSession cancelled = new RecordingSession(1);
+            RecordingSession kept = new RecordingSession(1);
+            refresher.schedule(cancelled, new StatusInfo("job1"), 50);
+            refresher.schedule(kept, new StatusInfo("job2"), 50);
+            refresher.cancel(cancelled);
+            assertEquals(1, refresher.getPendingRefreshes());
+            assertTrue(kept.refreshed.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(Collections.singletonList(Collections.singletonList("job2")), kept.refreshList);
+            assertTrue(cancelled.refreshList.isEmpty());
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Session recording the bulk refreshes of its jobs instead of requesting their status.
+     */
+    private static class RecordingSession extends Session {
+        /** Ids of the refreshed jobs of each bulk refresh. */
+        private final List<List<String>> refreshList = Collections.synchronizedList(new ArrayList<List<String>>());
+        /** Counted down on each bulk refresh. */
+        private final CountDownLatch refreshed;
+
+        private RecordingSession(int expectedRefreshes){
+            super(UUID.randomUUID(), null, null);
+            this.refreshed = new CountDownLatch(expectedRefreshes);
+        }
+
+        @Override
+        public void refreshStatus(List<StatusInfo> statusInfoList) {
+            List<String> jobIdList = new ArrayList<>();
+            for(StatusInfo statusInfo : statusInfoList){
+                jobIdList.add(statusInfo.getJobId());
+            }
+            refreshList.add(jobIdList);
+            refreshed.countDown();
+        }
+    }
+}
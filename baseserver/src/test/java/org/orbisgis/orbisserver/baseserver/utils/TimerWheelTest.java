@@ -0,0 +1,177 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.baseserver.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class of the TimerWheel.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class TimerWheelTest {
+
+    /** Maximum time to wait for a timer of a test in seconds. */
+    private static final long WAIT_SECONDS = 10;
+
+    /**
+     * Tests that a scheduled task is run once its delay is elapsed, never before.
+     */
+    @Test
+    public void testSchedule() throws InterruptedException {
+        TimerWheel timerWheel = new TimerWheel(10, 16, Runnable::run);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicLong elapsedNanos = new AtomicLong();
+            long startNanos = System.nanoTime();
+            TimerWheel.Timeout timeout = timerWheel.schedule(() -> {
+                elapsedNanos.set(System.nanoTime() - startNanos);
+                done.countDown();
+            }, 50, TimeUnit.MILLISECONDS, "test");
+            assertEquals(1, timerWheel.getPendingTimers());
+            assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(elapsedNanos.get() >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+            assertEquals(0, timerWheel.getPendingTimers());
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Tests that a cancelled task is not run and is removed from the pending timers.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        TimerWheel timerWheel = new TimerWheel(10, 16, Runnable::run);
+        try {
+            AtomicBoolean run = new AtomicBoolean(false);
+            TimerWheel.Timeout timeout = timerWheel.schedule(() -> run.set(true), 50, TimeUnit.MILLISECONDS, "test");
+            assertTrue(timeout.cancel());
+            assertFalse(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+            assertEquals(0, timerWheel.getPendingTimers());
+            Thread.sleep(150);
+            assertFalse(run.get());
+            assertFalse(timeout.isExpired());
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Tests the timers longer than a rotation of the wheel : they wait for their remaining rounds and expire in
+     * deadline order with the shorter ones.
+     */
+    @Test
+    public void testRounds() throws InterruptedException {
+        //The wheel turns in 40 ms
+        TimerWheel timerWheel = new TimerWheel(10, 4, Runnable::run);
+        try {
+            List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            CountDownLatch done = new CountDownLatch(3);
+            AtomicLong elapsedNanos = new AtomicLong();
+            long startNanos = System.nanoTime();
+            timerWheel.schedule(() -> {
+                elapsedNanos.set(System.nanoTime() - startNanos);
+                order.add("long");
+                done.countDown();
+            }, 150, TimeUnit.MILLISECONDS, "long");
+            timerWheel.schedule(() -> {
+                order.add("medium");
+                done.countDown();
+            }, 70, TimeUnit.MILLISECONDS, "medium");
+            timerWheel.schedule(() -> {
+                order.add("short");
+                done.countDown();
+            }, 20, TimeUnit.MILLISECONDS, "short");
+            assertEquals(Arrays.asList("short in", "medium in", "long in"), descriptionPrefixes(timerWheel));
+            assertTrue(done.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("short", "medium", "long"), order);
+            assertTrue(elapsedNanos.get() >= TimeUnit.MILLISECONDS.toNanos(150));
+        }
+        finally {
+            timerWheel.close();
+        }
+    }
+
+    /**
+     * Tests that a closed wheel refuses the new timers.
+     */
+    @Test
+    public void testClose() {
+        TimerWheel timerWheel = new TimerWheel(10, 16, Runnable::run);
+        timerWheel.close();
+        try {
+            timerWheel.schedule(() -> {}, 10, TimeUnit.MILLISECONDS, "test");
+            fail("A closed wheel should refuse the timers.");
+        } catch (RejectedExecutionException ignored) {}
+    }
+
+    /**
+     * Returns the pending timer descriptions without their remaining delay.
+     * @param timerWheel Timer wheel to inspect.
+     * @return The descriptions in deadline order.
+     */
+    private static List<String> descriptionPrefixes(TimerWheel timerWheel){
+        List<String> list = new ArrayList<>();
+        for(String description : timerWheel.getPendingTimerDescriptions()){
+            list.add(description.substring(0, description.indexOf(" in ") + 3));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.wps._2_0.*;
+import org.orbisgis.orbiswps.service.WpsServiceImpl;
+
+/**
+ * WpsBridge calling the typed methods of the in-process WpsServiceImpl, without any XML serialization.
+ *
+ * @author Sylvain PALOMINOS
+ */
+class DirectWpsBridge implements WpsBridge {
+
+    /** Wps server instance. */
+    private final WpsServiceImpl wpsServer;
+
+    /**
+     * Main constructor.
+     * @param wpsServer Wps server instance.
+     */
+    DirectWpsBridge(WpsServiceImpl wpsServer){
+        this.wpsServer = wpsServer;
+    }
+
+    @Override
+    public WPSCapabilitiesType getCapabilities(GetCapabilitiesType getCapabilities) {
+        return wpsServer.getCapabilities(getCapabilities);
+    }
+
+    @Override
+    public ProcessOfferings describeProcess(DescribeProcess describeProcess) {
+        return wpsServer.describeProcess(describeProcess);
+    }
+
+    @Override
+    public StatusInfo execute(ExecuteRequestType execute) {
+        Object response = wpsServer.execute(execute);
+        if(!(response instanceof StatusInfo)){
+            throw new IllegalStateException("Unexpected Execute response : "+response);
+        }
+        return (StatusInfo) response;
+    }
+
+    @Override
+    public StatusInfo getStatus(GetStatus getStatus) {
+        return wpsServer.getStatus(getStatus);
+    }
+
+    @Override
+    public Result getResult(GetResult getResult) {
+        return wpsServer.getResult(getResult);
+    }
+
+    @Override
+    public StatusInfo dismiss(Dismiss dismiss) {
+        return wpsServer.dismiss(dismiss);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the script folder of the wps engine and notifies the changed and deleted scripts. The events are gathered
+ * until the folder is quiet for a short time, so a script written in several steps is only notified once.
+ *
+ * If the watch service has lost events, the folder is scanned again : all its scripts are notified as changed, and the
+ * scripts seen before which are not in the folder anymore are notified as deleted.
+ *
+ * @author Sylvain PALOMINOS
+ */
+class ScriptWatcher {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptWatcher.class);
+
+    /** Extension of the watched scripts. */
+    static final String SCRIPT_EXTENSION = ".groovy";
+    /** Time without event after which the changes are notified in milliseconds. */
+    private static final long QUIET_MILLIS = 500;
+
+    /** Folder watched. */
+    private final File scriptFolder;
+    /** Listener notified of the changes. */
+    private final Listener listener;
+    /** Watch service of the folder, null if not started. */
+    private WatchService watchService;
+    /** Thread waiting for the events. */
+    private Thread watcherThread;
+    /** Scripts seen in the folder, only used by the watcher thread. */
+    private final Set<File> knownScripts = new HashSet<>();
+
+    /**
+     * Main constructor.
+     * @param scriptFolder Folder to watch.
+     * @param listener Listener notified of the changes.
+     */
+    ScriptWatcher(File scriptFolder, Listener listener){
+        this.scriptFolder = scriptFolder;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts watching the folder.
+     */
+    synchronized void start(){
+        if(watchService != null){
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            scriptFolder.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            LOGGER.error("Unable to watch the script folder.\n"+e.getMessage());
+            watchService = null;
+            return;
+        }
+        knownScripts.clear();
+        knownScripts.addAll(listScripts());
+        final WatchService service = watchService;
+        watcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch(service);
+            }
+        }, "orbisserver-script-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Stops watching the folder.
+     */
+    synchronized void close(){
+        if(watchService == null){
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException ignored) {}
+        watcherThread.interrupt();
+        watchService = null;
+        watcherThread = null;
+    }
+
+    /**
+     * Main loop of the watcher thread.
+     * @param service Watch service of the folder.
+     */
+    private void watch(WatchService service){
+        Set<File> changed = new LinkedHashSet<>();
+        Set<File> deleted = new LinkedHashSet<>();
+        try {
+            while(!Thread.currentThread().isInterrupted()) {
+                //Waits for a first event, then gathers the others until the folder is quiet
+                WatchKey key = changed.isEmpty() && deleted.isEmpty() ?
+                        service.take() : service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                if(key == null){
+                    notifyListener(changed, deleted);
+                    changed = new LinkedHashSet<>();
+                    deleted = new LinkedHashSet<>();
+                    continue;
+                }
+                for(WatchEvent<?> event : key.pollEvents()){
+                    if(event.kind() == OVERFLOW){
+                        LOGGER.warn("Events of the script folder have been lost, all the scripts are reloaded.");
+                        rescan(changed, deleted);
+                        continue;
+                    }
+                    if(!event.context().toString().endsWith(SCRIPT_EXTENSION)){
+                        continue;
+                    }
+                    File file = new File(scriptFolder, event.context().toString());
+                    if(event.kind() == ENTRY_DELETE){
+                        changed.remove(file);
+                        deleted.add(file);
+                        knownScripts.remove(file);
+                    }
+                    else {
+                        deleted.remove(file);
+                        changed.add(file);
+                        knownScripts.add(file);
+                    }
+                }
+                if(!key.reset()){
+                    LOGGER.warn("The script folder is no more watched.");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            //The watcher is closed
+        }
+    }
+
+    /**
+     * Scans the folder again after lost events : all the scripts of the folder are marked as changed and the known
+     * scripts which are not in the folder anymore as deleted.
+     * @param changed Scripts created or modified.
+     * @param deleted Scripts deleted.
+     */
+    private void rescan(Set<File> changed, Set<File> deleted){
+        Set<File> scripts = listScripts();
+        for(File script : knownScripts){
+            if(!scripts.contains(script)){
+                changed.remove(script);
+                deleted.add(script);
+            }
+        }
+        deleted.removeAll(scripts);
+        changed.addAll(scripts);
+        knownScripts.clear();
+        knownScripts.addAll(scripts);
+    }
+
+    /**
+     * Returns the scripts of the folder.
+     * @return The script files.
+     */
+    private Set<File> listScripts(){
+        Set<File> scripts = new LinkedHashSet<>();
+        File[] files = scriptFolder.listFiles();
+        if(files != null){
+            for(File file : files){
+                if(file.getName().endsWith(SCRIPT_EXTENSION)){
+                    scripts.add(file);
+                }
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Notifies the listener, logging its errors so the watcher keeps running.
+     */
+    private void notifyListener(Set<File> changed, Set<File> deleted){
+        try {
+            listener.scriptsChanged(changed, deleted);
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to reload the scripts.\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Listener of the script changes.
+     */
+    interface Listener {
+        /**
+         * Called from the watcher thread once scripts have changed.
+         * @param changed Scripts created or modified.
+         * @param deleted Scripts deleted.
+         */
+        void scriptsChanged(Set<File> changed, Set<File> deleted);
+    }
+}
@@ -38,157 +38,92 @@
  */
 package org.orbisgis.orbisserver.wpsservice;
 
-import net.opengis.ows._2.*;
+import net.opengis.ows._2.CodeType;
 import net.opengis.wps._2_0.*;
-import net.opengis.wps._2_0.GetCapabilitiesType;
-import net.opengis.wps._2_0.ObjectFactory;
-import org.orbisgis.orbisserver.api.model.*;
-import org.orbisgis.orbisserver.api.model.Data;
+import org.orbisgis.orbisserver.api.model.ExecuteRequest;
 import org.orbisgis.orbisserver.api.model.Operation;
 import org.orbisgis.orbisserver.api.model.Result;
+import org.orbisgis.orbisserver.api.model.StatusBatch;
 import org.orbisgis.orbisserver.api.model.StatusInfo;
-import org.orbisgis.orbisserver.api.service.Service;
+import org.orbisgis.orbisserver.api.model.StatusRequest;
+import org.orbisgis.orbisserver.api.service.AsyncService;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
 import org.orbisgis.orbisserver.api.service.ServiceFactory;
-import org.orbisgis.orbiswps.scripts.WpsScriptPlugin;
-import org.orbisgis.orbiswps.service.WpsServiceImpl;
-import org.orbisgis.orbiswps.service.model.*;
-import org.orbisgis.orbiswps.service.model.Enumeration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
-import java.io.*;
-import java.nio.file.Files;
-import java.util.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Service managing the wps part for the core-server module
+ * Service managing the wps part for the core-server module. The asynchronous calls are run by the wps engine, which
+ * completes their future once the engine has answered.
+ *
+ * A dismissed job is cancelled by the wps engine, which also drops the tables the job has created.
  */
-public class ServiceImpl implements Service {
+public class ServiceImpl implements AsyncService {
 
     /** Logger of the class. */
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceImpl.class);
 
-    /** Wps server instance */
-    private WpsServiceImpl wpsServer;
-    /** ExecutorService used for the WpsServer instance to execute the scripts. */
-    private ExecutorService executorService;
-    /** Workspace used by the WsServer.*/
-    private File workspaceFolder;
-    /** DataSource to use for the SQL requests.*/
-    private DataSource ds;
-    /** Cached list of operations available.*/
-    private List<Operation> cachedOpList;
+    /** Wps engine shared by all the sessions. */
+    private final WpsEngine wpsEngine;
+    /** Resources of the session used by the wps engine to execute the operations. */
+    private SessionContext sessionContext;
+    /** Last known state of the jobs which result has not been retrieved, with the job id as key. */
+    private final Map<String, JobState> jobStateMap = new ConcurrentHashMap<>();
+    /** Version of the job states, incremented on each job change. */
+    private final AtomicLong stateVersion = new AtomicLong();
+
+    /**
+     * Main constructor.
+     * @param wpsEngine Wps engine shared by all the sessions.
+     */
+    public ServiceImpl(WpsEngine wpsEngine){
+        this.wpsEngine = wpsEngine;
+    }
 
     @Override
     public StatusInfo executeOperation(ExecuteRequest request) {
         try {
-            Map<String, String> outputData = new HashMap<>();
-            ExecuteRequestType execute = new ExecuteRequestType();
-
-            for (Map.Entry<String, String> entry : request.getDataMap().entrySet()) {
-                DataInputType dataInputType = new DataInputType();
-                net.opengis.wps._2_0.Data data = new net.opengis.wps._2_0.Data();
-                data.getContent().add(entry.getValue());
-                data.setEncoding("simple");
-                data.setMimeType("text/plain");
-                dataInputType.setData(data);
-                dataInputType.setId(entry.getKey());
-                execute.getInput().add(dataInputType);
-            }
-
-            for (Map.Entry<String, String> entry : outputData.entrySet()) {
-                OutputDefinitionType outputDefinitionType = new OutputDefinitionType();
-                outputDefinitionType.setId(entry.getKey());
-                outputDefinitionType.setEncoding("simple");
-                outputDefinitionType.setMimeType("text/plain");
-                outputDefinitionType.setTransmission(DataTransmissionModeType.REFERENCE);
-                execute.getOutput().add(outputDefinitionType);
-            }
-
-
-            Unmarshaller unmarshaller = JaxbContainer.JAXBCONTEXT.createUnmarshaller();
-            Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
-            ObjectFactory factory = new ObjectFactory();
-            //Creates the ExecuteRequestType
-
-            CodeType codeType = new CodeType();
-            codeType.setValue(request.getId());
-            execute.setIdentifier(codeType);
-            execute.setResponse("document");
-            execute.setMode("auto");
-
-            //Marshall the ExecuteRequestType object into an OutputStream
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            marshaller.marshal(factory.createExecute(execute), out);
-            //Write the OutputStream content into an Input stream before sending it to the wpsService
-            InputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
-            ByteArrayOutputStream xml = (ByteArrayOutputStream) wpsServer.callOperation(in);
-            //Get back the result of the DescribeProcess request as a BufferReader
-            InputStream resultXml = new ByteArrayInputStream(xml.toByteArray());
-            //Unmarshall the result and check that the object is the same as the resource unmashalled xml.
-            Object resultObject = unmarshaller.unmarshal(resultXml);
-
-            net.opengis.wps._2_0.StatusInfo statusInfo = (net.opengis.wps._2_0.StatusInfo) resultObject;
-            StatusInfo status = new StatusInfo(statusInfo.getJobID());
-            status.setStatus(statusInfo.getStatus());
-            if (statusInfo.getPercentCompleted() != null) {
-                status.setPercentCompleted(statusInfo.getPercentCompleted());
-            }
-            if (statusInfo.getNextPoll() != null) {
-                status.setNextPoll(statusInfo.getNextPoll());
-            }
-            if (statusInfo.getEstimatedCompletion() != null) {
-                status.setEstimatedCompletion(statusInfo.getEstimatedCompletion());
-            }
-            return status;
+            StatusInfo statusInfo = WpsModelConverter.toStatusInfo(
+                    wpsEngine.execute(sessionContext, toExecuteRequestType(request)));
+            updateJobState(statusInfo);
+            return statusInfo;
         }
         catch(Exception e){
-
+            LOGGER.error("Unable to execute the operation.\n"+e.getMessage());
         }
         return null;
     }
 
     @Override
-    public StatusInfo getStatus(StatusRequest request) {
+    public CompletableFuture<StatusInfo> executeOperationAsync(ExecuteRequest request) {
+        return wpsEngine.executeAsync(sessionContext, toExecuteRequestType(request)).handle((info, error) -> {
+            if(error != null){
+                LOGGER.error("Unable to execute the operation.\n"+error.getMessage());
+                return null;
+            }
+            StatusInfo statusInfo = WpsModelConverter.toStatusInfo(info);
+            updateJobState(statusInfo);
+            return statusInfo;
+        });
+    }
 
+    @Override
+    public StatusInfo getStatus(StatusRequest request) {
         try {
-            Unmarshaller unmarshaller = JaxbContainer.JAXBCONTEXT.createUnmarshaller();
-            Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
-            //Get the corresponding GetStatus
-            GetStatus getStatus = new GetStatus();
-            getStatus.setJobID(request.getId());
-            //Marshall the GetStatus object into an OutputStream
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            marshaller.marshal(getStatus, out);
-            //Write the OutputStream content into an Input stream before sending it to the wpsService
-            InputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
-            ByteArrayOutputStream xml = (ByteArrayOutputStream) wpsServer.callOperation(in);
-            //Get back the result of the DescribeProcess request as a BufferReader
-            InputStream resultXml = new ByteArrayInputStream(xml.toByteArray());
-            //Unmarshall the result and check that the object is the same as the resource unmashalled xml.
-            net.opengis.wps._2_0.StatusInfo info = (net.opengis.wps._2_0.StatusInfo)unmarshaller.unmarshal(resultXml);
-            StatusInfo statusInfo = new StatusInfo(info.getJobID());
-            statusInfo.setEstimatedCompletion(info.getEstimatedCompletion());
-            statusInfo.setNextPoll(info.getNextPoll());
-            if(info.getNextPoll() != null) {
-                statusInfo.setNextRefreshMillis(info.getNextPoll().toGregorianCalendar().getTime().getTime());
-            }
-            else{
-                statusInfo.setNextRefreshMillis(-1);
-            }
-            statusInfo.setPercentCompleted(info.getPercentCompleted());
-            statusInfo.setProcessTitle(request.getProcessTitle());
-            statusInfo.setProcessID(request.getProcessId());
-            statusInfo.setStatus(info.getStatus());
+            StatusInfo statusInfo = toStatusInfo(wpsEngine.getStatus(sessionContext, toGetStatus(request)), request);
+            updateJobState(statusInfo);
             return statusInfo;
         }
         catch(Exception e){
@@ -198,56 +133,52 @@ public class ServiceImpl implements Service {
     }
 
     @Override
-    public Result getResult(StatusRequest request) {
+    public CompletableFuture<StatusInfo> getStatusAsync(StatusRequest request) {
+        return wpsEngine.getStatusAsync(sessionContext, Collections.singletonList(toGetStatus(request)))
+                .handle((infoList, error) -> {
+                    if(error != null){
+                        LOGGER.error("Unable to get the StatusRequest response.\n"+error.getMessage());
+                        return null;
+                    }
+                    if(infoList.get(0) == null){
+                        return null;
+                    }
+                    StatusInfo statusInfo = toStatusInfo(infoList.get(0), request);
+                    updateJobState(statusInfo);
+                    return statusInfo;
+                });
+    }
 
+    @Override
+    public StatusBatch getStatus(List<StatusRequest> requestList, long sinceVersion) {
         try {
-            Unmarshaller unmarshaller = JaxbContainer.JAXBCONTEXT.createUnmarshaller();
-            Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
-            //Get the corresponding GetResult
-            GetResult getResult = new GetResult();
-            getResult.setJobID(request.getId());
-            //Marshall the GetResult object into an OutputStream
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            marshaller.marshal(getResult, out);
-            //Write the OutputStream content into an Input stream before sending it to the wpsService
-            InputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
-            ByteArrayOutputStream xml = (ByteArrayOutputStream) wpsServer.callOperation(in);
-            //Get back the result of the DescribeProcess request as a BufferReader
-            InputStream resultXml = new ByteArrayInputStream(xml.toByteArray());
-            //Unmarshall the result and check that the object is the same as the resource unmashalled xml.
-            net.opengis.wps._2_0.Result result = (net.opengis.wps._2_0.Result)unmarshaller.unmarshal(resultXml);
-            Result res = new Result(result.getJobID());
-            res.setExpirationDate(result.getExpirationDate());
-            List<Output> outputList = new ArrayList<>();
-            Operation currentOp = null;
-            for(Operation op : cachedOpList){
-                if(op.getId().equalsIgnoreCase(request.getProcessId())){
-                    currentOp = op;
-                }
-            }
-            for(DataOutputType outData : result.getOutput()){
-                Output output = new Output(outData.getId());
-                if(currentOp != null) {
-                    for (Output currentOpOut : currentOp.getOutputList()) {
-                        if (currentOpOut.getId().equalsIgnoreCase(outData.getId())){
-                            output.setTitle(currentOpOut.getTitle());
-                        }
-                    }
-                }
-                if(outData.isSetData()){
-                    Data data = new Data();
-                    data.setMimeType(outData.getData().getMimeType());
-                    data.setContent(outData.getData().getContent());
-                    output.setData(data);
-                }
-                else if(outData.isSetReference()) {
-                    output.setReference(outData.getReference().getHref());
-                }
-                outputList.add(output);
+            //All the jobs are requested in one call to the engine
+            return toStatusBatch(wpsEngine.getStatus(sessionContext, toGetStatusList(requestList)), requestList,
+                    sinceVersion);
+        }
+        catch(Exception e){
+            LOGGER.error("Unable to get the StatusRequest responses.\n"+e.getMessage());
+        }
+        return new StatusBatch(stateVersion.get(), new ArrayList<StatusInfo>());
+    }
+
+    @Override
+    public CompletableFuture<StatusBatch> getStatusAsync(List<StatusRequest> requestList, long sinceVersion) {
+        return wpsEngine.getStatusAsync(sessionContext, toGetStatusList(requestList)).handle((infoList, error) -> {
+            if(error != null){
+                LOGGER.error("Unable to get the StatusRequest responses.\n"+error.getMessage());
+                return new StatusBatch(stateVersion.get(), new ArrayList<StatusInfo>());
             }
-            res.setOutputList(outputList);
-            return res;
+            return toStatusBatch(infoList, requestList, sinceVersion);
+        });
+    }
+
+    @Override
+    public Result getResult(StatusRequest request) {
+        try {
+            jobStateMap.remove(request.getId());
+            return WpsModelConverter.toResult(wpsEngine.getResult(sessionContext, toGetResult(request)),
+                    wpsEngine.getOperationDescription(request.getProcessId()));
         }
         catch(Exception e){
             LOGGER.error("Unable to get the StatusRequest response.\n"+e.getMessage());
@@ -256,258 +187,213 @@ public class ServiceImpl implements Service {
     }
 
     @Override
-    public List<Operation> getAllOperation() {
-        cachedOpList = new ArrayList<>();
-        try {
-            Unmarshaller unmarshaller = JaxbContainer.JAXBCONTEXT.createUnmarshaller();
-            Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
-            ObjectFactory factory = new ObjectFactory();
-            //Creates the getCapabilities
-            GetCapabilitiesType getCapabilitiesType = new GetCapabilitiesType();
-            GetCapabilitiesType.AcceptLanguages acceptLanguages = new GetCapabilitiesType.AcceptLanguages();
-            acceptLanguages.getLanguage().add("*");
-            getCapabilitiesType.setAcceptLanguages(acceptLanguages);
-            AcceptVersionsType acceptVersionsType = new AcceptVersionsType();
-            acceptVersionsType.getVersion().add("2.0.0");
-            getCapabilitiesType.setAcceptVersions(acceptVersionsType);
-            SectionsType sectionsType = new SectionsType();
-            sectionsType.getSection().add("All");
-            getCapabilitiesType.setSections(sectionsType);
-            //Marshall the DescribeProcess object into an OutputStream
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            marshaller.marshal(factory.createGetCapabilities(getCapabilitiesType), out);
-            //Write the OutputStream content into an Input stream before sending it to the wpsService
-            InputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
-            ByteArrayOutputStream xml = (ByteArrayOutputStream) wpsServer.callOperation(in);
-            //Get back the result of the DescribeProcess request as a BufferReader
-            ByteArrayInputStream resultXml = new ByteArrayInputStream(xml.toByteArray());
-            //Unmarshall the result and check that the object is the same as the resource unmashalled xml.
-            Object resultObject = unmarshaller.unmarshal(resultXml);
-            WPSCapabilitiesType wpsCapabilitiesType = (WPSCapabilitiesType) ((JAXBElement) resultObject).getValue();
-
-            List<KeywordsType> keywordsType = null;
-            ArrayList<String> listWordEnglish = new ArrayList<>();
-
-            for(ProcessSummaryType process : wpsCapabilitiesType.getContents().getProcessSummary()){
-                Operation op = new Operation(process.getTitle().get(0).getValue(), process.getIdentifier().getValue());
-                if(process.getAbstract()!=null && !process.getAbstract().isEmpty()) {
-                    op.setAbstr(process.getAbstract().get(0).getValue());
-                    keywordsType = process.getKeywords();
-                    for(KeywordsType keyword : keywordsType){
-                        for (LanguageStringType language : keyword.getKeyword()) {
-                            if(language.getLang().equals("en")) {
-                                op.getKeyWord().add(language.getValue());
-                            }
-                        }
-                    }
-                }
-                cachedOpList.add(op);
+    public CompletableFuture<Result> getResultAsync(StatusRequest request) {
+        jobStateMap.remove(request.getId());
+        return wpsEngine.getResultAsync(sessionContext, toGetResult(request)).handle((result, error) -> {
+            if(error != null){
+                LOGGER.error("Unable to get the StatusRequest response.\n"+error.getMessage());
+                return null;
             }
+            return WpsModelConverter.toResult(result, wpsEngine.getOperationDescription(request.getProcessId()));
+        });
+    }
+
+    @Override
+    public StatusInfo dismiss(StatusRequest request) {
+        try {
+            StatusInfo statusInfo = toStatusInfo(wpsEngine.dismiss(sessionContext, toDismiss(request)), request);
+            jobStateMap.remove(request.getId());
+            return statusInfo;
         }
-        catch (Exception e){
-            LOGGER.error("Unable to get the list of the operations.\n"+e.getMessage());
+        catch(Exception e){
+            LOGGER.error("Unable to dismiss the job "+request.getId()+".\n"+e.getMessage());
         }
-        return cachedOpList;
+        return null;
     }
 
     @Override
-    public boolean hasOperation(String id) {
-        for(Operation op : cachedOpList){
-            if(op.getId().equals(id)){
-                return true;
+    public CompletableFuture<StatusInfo> dismissAsync(StatusRequest request) {
+        return wpsEngine.dismissAsync(sessionContext, toDismiss(request)).handle((info, error) -> {
+            if(error != null){
+                LOGGER.error("Unable to dismiss the job "+request.getId()+".\n"+error.getMessage());
+                return null;
             }
+            StatusInfo statusInfo = toStatusInfo(info, request);
+            jobStateMap.remove(request.getId());
+            return statusInfo;
+        });
+    }
+
+    /**
+     * Builds the Execute request of the WPS engine.
+     * @param request Execute request of the server.
+     * @return The Execute request of the engine.
+     */
+    private static ExecuteRequestType toExecuteRequestType(ExecuteRequest request){
+        ExecuteRequestType execute = new ExecuteRequestType();
+        for (Map.Entry<String, String> entry : request.getDataMap().entrySet()) {
+            DataInputType dataInputType = new DataInputType();
+            Data data = new Data();
+            data.getContent().add(entry.getValue());
+            data.setEncoding("simple");
+            data.setMimeType("text/plain");
+            dataInputType.setData(data);
+            dataInputType.setId(entry.getKey());
+            execute.getInput().add(dataInputType);
         }
-        return false;
+        CodeType codeType = new CodeType();
+        codeType.setValue(request.getId());
+        execute.setIdentifier(codeType);
+        execute.setResponse("document");
+        execute.setMode("auto");
+        return execute;
     }
 
-    @Override
-    public Operation getOperation(String id) {
-        Operation operation = null;
-        for(Operation op : cachedOpList){
-            if(op.getId().equals(id)){
-                operation = op;
-                operation.setAbstr(op.getAbstr());
-                operation.setInputList(new ArrayList<Input>());
-                operation.setOutputList(new ArrayList<Output>());
-                operation.setKeyWord(new ArrayList<String>());
-                try {
-                    Unmarshaller unmarshaller = JaxbContainer.JAXBCONTEXT.createUnmarshaller();
-                    Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
-                    //Creates the DescribeProcess
-                    DescribeProcess describeProcess = new DescribeProcess();
-                    describeProcess.setLang("en");
-                    CodeType codeType = new CodeType();
-                    codeType.setValue(id);
-                    describeProcess.getIdentifier().add(codeType);
-                    //Marshall the DescribeProcess object into an OutputStream
-                    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-                    ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    marshaller.marshal(describeProcess, out);
-                    //Write the OutputStream content into an Input stream before sending it to the wpsService
-                    InputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
-                    ByteArrayOutputStream xml = (ByteArrayOutputStream) wpsServer.callOperation(in);
-                    //Get back the result of the DescribeProcess request as a BufferReader
-                    InputStream resultXml = new ByteArrayInputStream(xml.toByteArray());
-                    //Unmarshall the result and check that the object is the same as the resource unmashalled xml.
-                    Object resultObject = unmarshaller.unmarshal(resultXml);
-                    if(resultObject instanceof ProcessOfferings) {
-                        ProcessOfferings processOfferings = (ProcessOfferings)resultObject;
-                        if(processOfferings.getProcessOffering() != null && !processOfferings.getProcessOffering().isEmpty()){
-                            for(InputDescriptionType idt : processOfferings.getProcessOffering().get(0).getProcess().getInput()){
-                                String title = idt.getTitle().get(0).getValue();
-                                String name = idt.getDataDescription().getValue().getClass().getSimpleName();
-                                String type = null;
-                                Boolean optional = (idt.getMinOccurs().intValue()==0);
-                                Map<String, Object> attributeMap = new HashMap<>();
-                                DataDescriptionType dataDescriptionType = idt.getDataDescription().getValue();
-                                if(dataDescriptionType instanceof LiteralDataType){
-                                    if(name.equalsIgnoreCase("LiteralDataType")) {
-                                        LiteralDataType literalData = (LiteralDataType) idt.getDataDescription().getValue();
-                                        for (LiteralDataType.LiteralDataDomain ldd : literalData.getLiteralDataDomain()) {
-                                            if (ldd.isDefault()) {
-                                                String dataType = ldd.getDataType().getValue();
-                                                if (dataType.equalsIgnoreCase("string")) {
-                                                    type = "string";
-                                                }
-                                                if (dataType.equalsIgnoreCase("boolean")) {
-                                                    type = "boolean";
-                                                    attributeMap.put("value", "false");
-                                                    if (ldd.isSetDefaultValue()) {
-                                                        attributeMap.put("value", ldd.getDefaultValue().getValue());
-                                                    }
-                                                }
-                                                if (dataType.equalsIgnoreCase("double") || dataType.equalsIgnoreCase("integer") ||
-                                                        dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("short") ||
-                                                        dataType.equalsIgnoreCase("byte") || dataType.equalsIgnoreCase("unsigned_byte") ||
-                                                        dataType.equalsIgnoreCase("long")) {
-                                                    if (dataType.equalsIgnoreCase("double") || dataType.equalsIgnoreCase("float")) {
-                                                        attributeMap.put("spacing", "0.1");
-                                                    }
-                                                    type = "number";
-                                                    if (ldd.isSetDefaultValue()) {
-                                                        attributeMap.put("value", ldd.getDefaultValue().getValue());
-                                                    }
-                                                    if (ldd.isSetAllowedValues()) {
-                                                        for (Object valueOrRange : ldd.getAllowedValues().getValueOrRange()) {
-                                                            if (valueOrRange instanceof ValueType) {
-                                                                ValueType value = (ValueType) valueOrRange;
-                                                                attributeMap.put("value", value.getValue());
-                                                            }
-                                                            if (valueOrRange instanceof RangeType) {
-                                                                RangeType range = (RangeType) valueOrRange;
-                                                                attributeMap.put("min", range.getMinimumValue().getValue());
-                                                                attributeMap.put("max", range.getMaximumValue().getValue());
-                                                                attributeMap.put("spacing", range.getSpacing().getValue());
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                                if(dataDescriptionType instanceof JDBCTable){
-                                    attributeMap.put("value", "Table name");
-                                    JDBCTable table = (JDBCTable)dataDescriptionType;
-                                    if(table.getDefaultValue() != null && !table.getDefaultValue().isEmpty()){
-                                        attributeMap.put("value", table.getDefaultValue());
-                                    }
-                                }
-                                if(dataDescriptionType instanceof JDBCColumn){
-                                    attributeMap.put("value", "Columns name");
-                                    JDBCColumn column = (JDBCColumn)dataDescriptionType;
-                                    if(column.getDefaultValues() != null && column.getDefaultValues().length>0){
-                                        StringBuilder str = new StringBuilder();
-                                        for(String val : column.getDefaultValues()){
-                                            if(str.length() > 0){
-                                                str.append(",");
-                                            }
-                                            str.append(val);
-                                        }
-                                        attributeMap.put("value", str.toString());
-                                    }
-                                }
-                                if(dataDescriptionType instanceof JDBCValue){
-                                    attributeMap.put("value", "Values name");
-                                    JDBCValue value = (JDBCValue)dataDescriptionType;
-                                    if(value.getDefaultValues() != null && value.getDefaultValues().length>0){
-                                        StringBuilder str = new StringBuilder();
-                                        for(String val : value.getDefaultValues()){
-                                            if(str.length() > 0){
-                                                str.append(",");
-                                            }
-                                            str.append(val);
-                                        }
-                                        attributeMap.put("value", str.toString());
-                                    }
-                                }
-                                if(dataDescriptionType instanceof Enumeration){
-                                    Enumeration enumeration = (Enumeration)dataDescriptionType;
-                                    attributeMap.put("multiSelection", enumeration.isMultiSelection());
-                                    attributeMap.put("valueList", enumeration.getValues());
-                                    List<String> nameList = new ArrayList<>(Arrays.asList(enumeration.getValuesNames()));
-                                    attributeMap.put("nameList", nameList);
-                                }
-                                String identifier = idt.getIdentifier().getValue();
-                                Input input = new Input(title, name, identifier, type, attributeMap, optional);
-                                operation.addInput(input);
-                            }
-                            for(OutputDescriptionType odt : processOfferings.getProcessOffering().get(0).getProcess().getOutput()){
-                                String title = odt.getTitle().get(0).getValue();
-                                String identifier = odt.getIdentifier().getValue();
-                                Output output = new Output(title, identifier);
-                                operation.addOutput(output);
-                            }
-                        }
-                    }
-                }
-                catch(Exception e){
-                    LOGGER.error("Unable to get the Operation with the given id.\n"+e.getMessage());
-                }
-            }
+    /**
+     * Builds the GetStatus request of the WPS engine.
+     * @param request Status request of the server.
+     * @return The GetStatus request of the engine.
+     */
+    private static GetStatus toGetStatus(StatusRequest request){
+        GetStatus getStatus = new GetStatus();
+        getStatus.setJobID(request.getId());
+        return getStatus;
+    }
+
+    /**
+     * Builds the GetStatus requests of the WPS engine.
+     * @param requestList Status requests of the server.
+     * @return The GetStatus requests of the engine, in the same order.
+     */
+    private static List<GetStatus> toGetStatusList(List<StatusRequest> requestList){
+        List<GetStatus> getStatusList = new ArrayList<>();
+        for(StatusRequest request : requestList){
+            getStatusList.add(toGetStatus(request));
         }
-        return operation;
+        return getStatusList;
     }
 
     /**
-     * Creates an  instance of the WpsServer.
+     * Builds the GetResult request of the WPS engine.
+     * @param request Status request of the server.
+     * @return The GetResult request of the engine.
      */
-    private void createWpsServerInstance(){
-        File f = new File(workspaceFolder,"wpsServer.properties");
-        InputStream is = null;
-        try {
-            is = this.getClass().getResource("wpsServer.properties").openStream();
-        } catch (IOException e) {
-            LOGGER.error("Unable to load the wps server properties file.\n"+e.getMessage());
-            return;
+    private static GetResult toGetResult(StatusRequest request){
+        GetResult getResult = new GetResult();
+        getResult.setJobID(request.getId());
+        return getResult;
+    }
+
+    /**
+     * Builds the Dismiss request of the WPS engine.
+     * @param request Status request of the server.
+     * @return The Dismiss request of the engine.
+     */
+    private static Dismiss toDismiss(StatusRequest request){
+        Dismiss dismiss = new Dismiss();
+        dismiss.setJobID(request.getId());
+        return dismiss;
+    }
+
+    /**
+     * Converts the StatusInfo of the WPS engine and updates the known state of the job.
+     * @param info StatusInfo of the engine.
+     * @param request Status request of the job.
+     * @return The StatusInfo of the server.
+     */
+    private StatusInfo toStatusInfo(net.opengis.wps._2_0.StatusInfo info, StatusRequest request){
+        StatusInfo statusInfo = WpsModelConverter.toStatusInfo(info);
+        statusInfo.setProcessTitle(request.getProcessTitle());
+        statusInfo.setProcessID(request.getProcessId());
+        return statusInfo;
+    }
+
+    /**
+     * Builds the StatusBatch containing the jobs which have changed since the given version.
+     * @param infoList StatusInfo of the engine in the order of the requests, null for the jobs not answered.
+     * @param requestList Status requests of the jobs.
+     * @param sinceVersion Version of the previous bulk status request.
+     * @return The StatusBatch of the changed jobs.
+     */
+    private StatusBatch toStatusBatch(List<net.opengis.wps._2_0.StatusInfo> infoList, List<StatusRequest> requestList,
+                                      long sinceVersion){
+        List<StatusInfo> statusInfoList = new ArrayList<>();
+        for(int i = 0; i < requestList.size(); i++){
+            if(infoList.get(i) == null){
+                continue;
+            }
+            StatusInfo statusInfo = toStatusInfo(infoList.get(i), requestList.get(i));
+            if(updateJobState(statusInfo) > sinceVersion){
+                statusInfoList.add(statusInfo);
+            }
         }
-        try {
-            Files.copy(is, f.toPath(), REPLACE_EXISTING);
-        } catch (IOException e) {
-            LOGGER.error("Unable to copy the wps server properties file.\n"+e.getMessage());
-            return;
+        return new StatusBatch(stateVersion.get(), statusInfoList);
+    }
+
+    /**
+     * Updates the known state of a job, incrementing the state version if its status or its progress has changed.
+     * @param statusInfo New status of the job.
+     * @return The version of the last change of the job.
+     */
+    private long updateJobState(StatusInfo statusInfo){
+        JobState state = jobStateMap.get(statusInfo.getJobId());
+        if(state != null && state.status.equalsIgnoreCase(statusInfo.getStatus()) &&
+                Objects.equals(state.percent, statusInfo.getPercentCompleted())){
+            return state.version;
         }
-        wpsServer = new org.orbisgis.orbiswps.service.WpsServiceImpl(ds, executorService);
-        wpsServer.setExecutorService(executorService);
-        wpsServer.setDataSource(ds);
+        state = new JobState(statusInfo.getStatus(), statusInfo.getPercentCompleted(), stateVersion.incrementAndGet());
+        jobStateMap.put(statusInfo.getJobId(), state);
+        return state.version;
+    }
 
-        WpsScriptPlugin scriptPlugin = new WpsScriptPlugin();
-        scriptPlugin.activate();
-        wpsServer.addWpsScriptBundle(scriptPlugin);
+    @Override
+    public List<Operation> getAllOperation() {
+        return wpsEngine.getOperationCatalog().getOperations();
+    }
+
+    @Override
+    public OperationCatalog getOperationCatalog() {
+        return wpsEngine.getOperationCatalog();
+    }
+
+    @Override
+    public boolean hasOperation(String id) {
+        return wpsEngine.getOperationCatalog().hasOperation(id);
+    }
+
+    @Override
+    public Operation getOperation(String id) {
+        return wpsEngine.getOperationDescription(id);
     }
 
     @Override
     public void shutdown(){
-        //Nothing to do
+        jobStateMap.clear();
     }
 
     @Override
     public void start(Map<String, Object> propertyMap) {
-        this.ds = (DataSource)propertyMap.get(ServiceFactory.DATA_SOURCE_PROP);
-        this.executorService = (ExecutorService) propertyMap.get(ServiceFactory.EXECUTOR_SERVICE_PROP);
-        this.workspaceFolder = (File)propertyMap.get(ServiceFactory.WORKSPACE_FOLDER_PROP);
-        this.cachedOpList = new ArrayList<>();
-        createWpsServerInstance();
+        this.sessionContext = new SessionContext(
+                (DataSource)propertyMap.get(ServiceFactory.DATA_SOURCE_PROP),
+                (ExecutorService) propertyMap.get(ServiceFactory.EXECUTOR_SERVICE_PROP),
+                (File)propertyMap.get(ServiceFactory.WORKSPACE_FOLDER_PROP));
+    }
+
+    /**
+     * Last known state of a job.
+     */
+    private static class JobState {
+        /** Status of the job. */
+        private final String status;
+        /** Percent complete of the job. */
+        private final Integer percent;
+        /** Version of the state. */
+        private final long version;
+
+        private JobState(String status, Integer percent, long version){
+            this.status = status;
+            this.percent = percent;
+            this.version = version;
+        }
     }
 }
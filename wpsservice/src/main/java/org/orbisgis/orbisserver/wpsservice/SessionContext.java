@@ -0,0 +1,94 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Resources of a session used by the shared WPS engine while it executes an operation for this session.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class SessionContext {
+
+    /** DataSource of the session. */
+    private final DataSource dataSource;
+    /** ExecutorService of the session, used to run the jobs. */
+    private final ExecutorService executorService;
+    /** Workspace folder of the session. */
+    private final File workspaceFolder;
+
+    /**
+     * Main constructor.
+     * @param dataSource DataSource of the session.
+     * @param executorService ExecutorService of the session.
+     * @param workspaceFolder Workspace folder of the session.
+     */
+    public SessionContext(DataSource dataSource, ExecutorService executorService, File workspaceFolder){
+        this.dataSource = dataSource;
+        this.executorService = executorService;
+        this.workspaceFolder = workspaceFolder;
+    }
+
+    /**
+     * Returns the DataSource of the session.
+     * @return The session DataSource.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Returns the ExecutorService of the session.
+     * @return The session ExecutorService.
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Returns the workspace folder of the session.
+     * @return The session workspace folder.
+     */
+    public File getWorkspaceFolder() {
+        return workspaceFolder;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import org.h2gis.utilities.TableLocation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records the tables created by a job through the connections of its tasks, so the partial outputs of a dismissed job
+ * can be dropped without touching the tables of the other jobs or of the user.
+ *
+ * The connections given to the tasks of the job are wrapped. A statement creating a table, with CREATE TABLE or with a
+ * file read function of H2GIS, records the table if it did not exist before the statement.
+ *
+ * @author Sylvain PALOMINOS
+ */
+class TableRecorder {
+
+    /** Statement creating a table, the group being the table name. */
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "^\\s*CREATE\\s+(?:(?:CACHED|MEMORY|LOCAL|GLOBAL|TEMP|TEMPORARY|LINKED)\\s+)*TABLE\\s+" +
+                    "(?:IF\\s+NOT\\s+EXISTS\\s+)?((?:\"[^\"]+\"|[\\w$]+)(?:\\.(?:\"[^\"]+\"|[\\w$]+))*)",
+            Pattern.CASE_INSENSITIVE);
+    /** Call of a file read function writing a table, like SHPRead('file', 'table'), the group being the table name.
+     * CSVRead returns a result set, its second argument is not a table. */
+    private static final Pattern READ_CALL = Pattern.compile(
+            "\\b(?!CSVREAD\\b)\\w+READ\\s*\\(\\s*'[^']*'\\s*,\\s*'([^']+)'", Pattern.CASE_INSENSITIVE);
+
+    /** Locations of the created tables in creation order. */
+    private final Set<String> tableSet = Collections.synchronizedSet(new LinkedHashSet<String>());
+
+    /**
+     * Wraps a connection given to a task of the job.
+     * @param connection Connection of the session.
+     * @return The connection recording the created tables.
+     */
+    Connection wrap(final Connection connection){
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = invokeTarget(connection, method, args);
+                        if(result != null && Statement.class.isAssignableFrom(method.getReturnType())){
+                            //The prepare methods give the statement sql as first argument
+                            String preparedSql = args != null && args.length > 0 && args[0] instanceof String ?
+                                    (String) args[0] : null;
+                            return wrapStatement(connection, result, method.getReturnType(), preparedSql);
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Returns the tables created by the job.
+     * @return The locations of the created tables in creation order.
+     */
+    List<String> getTables(){
+        synchronized (tableSet) {
+            return new ArrayList<>(tableSet);
+        }
+    }
+
+    /**
+     * Wraps a statement of a wrapped connection.
+     * @param connection Connection of the session.
+     * @param statement Statement to wrap.
+     * @param statementClass Interface of the statement.
+     * @param preparedSql Sql of a prepared statement, null for a plain statement.
+     * @return The statement recording the created tables.
+     */
+    private Object wrapStatement(final Connection connection, final Object statement, Class<?> statementClass,
+                                 final String preparedSql){
+        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{statementClass},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if(!method.getName().startsWith("execute")){
+                            return invokeTarget(statement, method, args);
+                        }
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ?
+                                (String) args[0] : preparedSql;
+                        TableLocation table = sql != null ? createdTable(sql) : null;
+                        boolean existed = table != null && exists(connection, table);
+                        Object result = invokeTarget(statement, method, args);
+                        if(table != null && !existed){
+                            tableSet.add(table.toString());
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Returns the table created by a statement.
+     * @param sql Sql of the statement.
+     * @return The location of the table, null if the statement does not create a table.
+     */
+    private static TableLocation createdTable(String sql){
+        Matcher matcher = CREATE_TABLE.matcher(sql);
+        if(matcher.find()){
+            return TableLocation.parse(matcher.group(1), true);
+        }
+        matcher = READ_CALL.matcher(sql);
+        if(matcher.find()){
+            return TableLocation.parse(matcher.group(1), true);
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the table exists. A table without schema is searched in all the schemas.
+     * @param connection Connection of the session.
+     * @param table Location of the table.
+     * @return True if the table exists.
+     */
+    private static boolean exists(Connection connection, TableLocation table) throws SQLException {
+        String schema = table.getSchema().isEmpty() ? null : table.getSchema();
+        try (ResultSet rs = connection.getMetaData().getTables(null, schema, table.getTable(), null)) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Invokes a method on the wrapped object, throwing the exceptions of the method itself.
+     * @param target Wrapped object.
+     * @param method Method to invoke.
+     * @param args Arguments of the method.
+     * @return The value returned by the method.
+     */
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
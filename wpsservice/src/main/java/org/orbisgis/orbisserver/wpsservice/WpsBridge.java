@@ -0,0 +1,101 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.wps._2_0.*;
+
+/**
+ * Call path from the server to the WPS engine. The requests and the responses are the JAXB objects of the WPS 2.0
+ * schema, the bridge implementation deciding how they are transmitted to the engine.
+ *
+ * @author Sylvain PALOMINOS
+ */
+interface WpsBridge {
+
+    /** System property selecting the bridge : "direct" (default) or "xml". */
+    String BRIDGE_PROPERTY = "orbisserver.wps.bridge";
+
+    /**
+     * Requests the capabilities of the engine.
+     * @param getCapabilities GetCapabilities request.
+     * @return The capabilities.
+     * @throws Exception If the request fails.
+     */
+    WPSCapabilitiesType getCapabilities(GetCapabilitiesType getCapabilities) throws Exception;
+
+    /**
+     * Requests the description of processes.
+     * @param describeProcess DescribeProcess request.
+     * @return The process descriptions.
+     * @throws Exception If the request fails.
+     */
+    ProcessOfferings describeProcess(DescribeProcess describeProcess) throws Exception;
+
+    /**
+     * Requests the execution of a process.
+     * @param execute Execute request.
+     * @return The StatusInfo of the job.
+     * @throws Exception If the request fails.
+     */
+    StatusInfo execute(ExecuteRequestType execute) throws Exception;
+
+    /**
+     * Requests the status of a job.
+     * @param getStatus GetStatus request.
+     * @return The StatusInfo of the job.
+     * @throws Exception If the request fails.
+     */
+    StatusInfo getStatus(GetStatus getStatus) throws Exception;
+
+    /**
+     * Requests the result of a job.
+     * @param getResult GetResult request.
+     * @return The result of the job.
+     * @throws Exception If the request fails.
+     */
+    Result getResult(GetResult getResult) throws Exception;
+
+    /**
+     * Requests the dismissal of a job.
+     * @param dismiss Dismiss request.
+     * @return The StatusInfo of the dismissed job.
+     * @throws Exception If the request fails.
+     */
+    StatusInfo dismiss(Dismiss dismiss) throws Exception;
+}
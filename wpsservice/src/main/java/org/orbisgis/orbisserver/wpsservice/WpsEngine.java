@@ -0,0 +1,977 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.ows._2.AcceptVersionsType;
+import net.opengis.ows._2.CodeType;
+import net.opengis.ows._2.SectionsType;
+import net.opengis.wps._2_0.*;
+import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2gis.utilities.SFSUtilities;
+import org.orbisgis.orbisserver.api.model.Operation;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
+import org.orbisgis.orbiswps.scripts.WpsScriptPlugin;
+import org.orbisgis.orbiswps.service.WpsServiceImpl;
+import org.orbisgis.orbiswps.service.process.ProcessIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.net.URI;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Server wide WPS engine shared by all the sessions. The WpsServiceImpl is created and the process scripts are loaded
+ * only once, when the engine is started.
+ *
+ * The engine does not own the session resources : the WpsServiceImpl is set with a DataSource and an ExecutorService
+ * which route each call to the resources of the calling session. Before calling the engine, the session binds its
+ * SessionContext to the current thread, and the jobs submitted during the call keep this context in the thread running
+ * them. The calls made without session, like the engine initialization, use the engine own database.
+ *
+ * Besides the bundled scripts, the engine loads the scripts of its 'scripts' folder and watches it : a changed script
+ * is compiled again in the background and a new catalog is published once done. The lookups keep using the previous
+ * catalog meanwhile, and the running jobs keep the compiled script they have been started with.
+ *
+ * The tasks submitted by the wps server for a job are tracked until its result is retrieved, so a dismissed job can be
+ * cancelled : its queued tasks are dropped and its running tasks are interrupted. The tables created by the tasks
+ * through their connections are recorded, and are dropped as the partial outputs of the dismissed job.
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class WpsEngine {
+
+    /** Logger of the class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WpsEngine.class);
+
+    /** Context of the session calling the engine in the current thread. */
+    private static final ThreadLocal<SessionContext> CURRENT_CONTEXT = new ThreadLocal<>();
+    /** Tasks submitted by the wps server during the execute call of the current thread. */
+    private static final ThreadLocal<List<JobTask>> SUBMITTED_TASKS = new ThreadLocal<>();
+    /** Recorder of the tables created by the job of the execute call or of the task of the current thread. */
+    private static final ThreadLocal<TableRecorder> CURRENT_RECORDER = new ThreadLocal<>();
+    /** Maximum time waited for the interrupted tasks of a dismissed job to stop in milliseconds. */
+    private static final long DISMISS_WAIT_MILLIS = 5000;
+
+    /** Folder of the engine, containing its properties file and its database. */
+    private final File engineFolder;
+    /** Wps server instance shared by the sessions. */
+    private WpsServiceImpl wpsServer;
+    /** Call path to the wps server. */
+    private volatile WpsBridge bridge;
+    /** Bundle of the process scripts. */
+    private WpsScriptPlugin scriptPlugin;
+    /** Folder of the scripts loaded in addition of the bundled ones. */
+    private final File scriptFolder;
+    /** Watcher of the script folder, null if the engine is not started. */
+    private ScriptWatcher scriptWatcher;
+    /** Identifiers of the processes of the loaded scripts with the script file as key. */
+    private final Map<File, List<URI>> scriptProcessMap = new HashMap<>();
+    /** Lock of the script loading. */
+    private final Object scriptLock = new Object();
+    /** DataSource used when no session is bound to the current thread. */
+    private DataSource defaultDataSource;
+    /** ExecutorService used when no session is bound to the current thread. */
+    private ExecutorService defaultExecutorService;
+    /** ExecutorService running the asynchronous calls of the sessions to the engine. */
+    private ExecutorService callExecutorService;
+    /** Version of the last operation catalog built. */
+    private final AtomicLong catalogVersion = new AtomicLong();
+    /** Catalog of the operations, null until requested or once the scripts have changed. */
+    private volatile OperationCatalog operationCatalog;
+    /** Described operations of the current catalog version. */
+    private volatile DescriptionCache descriptionCache;
+    /** Tasks of the jobs which result has not been retrieved, with the job id as key. */
+    private final Map<String, List<JobTask>> jobTaskMap = new ConcurrentHashMap<>();
+    /** Tables created by the jobs which result has not been retrieved, with the job id as key. */
+    private final Map<String, TableRecorder> jobTableMap = new ConcurrentHashMap<>();
+
+    /**
+     * Main constructor.
+     * @param engineFolder Folder of the engine, containing its properties file and its database.
+     */
+    public WpsEngine(File engineFolder){
+        this.engineFolder = engineFolder;
+        this.scriptFolder = new File(engineFolder, "scripts");
+    }
+
+    /**
+     * Creates the WpsServer instance and loads the process scripts.
+     */
+    public synchronized void start(){
+        if(wpsServer != null){
+            return;
+        }
+        engineFolder.mkdirs();
+        try (InputStream is = WpsEngine.class.getResource("wpsServer.properties").openStream()) {
+            Files.copy(is, new File(engineFolder, "wpsServer.properties").toPath(), REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.error("Unable to copy the wps server properties file.\n"+e.getMessage());
+        }
+        String dataBaseLocation = new File(engineFolder, "h2_db.mv.db").getAbsolutePath();
+        try {
+            defaultDataSource = SFSUtilities.wrapSpatialDataSource(H2GISDBFactory.createDataSource(dataBaseLocation, true));
+        } catch (SQLException e) {
+            LOGGER.error("Unable to create the wps engine database : \n"+e.getMessage());
+        }
+        defaultExecutorService = Executors.newSingleThreadExecutor();
+        AtomicLong threadCount = new AtomicLong();
+        callExecutorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "wps-engine-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        DataSource routingDataSource = new RoutingDataSource();
+        ExecutorService routingExecutorService = new RoutingExecutorService();
+        wpsServer = new WpsServiceImpl(routingDataSource, routingExecutorService);
+        wpsServer.setExecutorService(routingExecutorService);
+        wpsServer.setDataSource(routingDataSource);
+
+        scriptPlugin = new WpsScriptPlugin();
+        scriptPlugin.activate();
+        wpsServer.addWpsScriptBundle(scriptPlugin);
+        scriptFolder.mkdirs();
+        File[] scripts = scriptFolder.listFiles();
+        if(scripts != null) {
+            synchronized (scriptLock) {
+                for (File script : scripts) {
+                    if (script.getName().endsWith(ScriptWatcher.SCRIPT_EXTENSION)) {
+                        loadScript(script);
+                    }
+                }
+            }
+        }
+        scriptWatcher = new ScriptWatcher(scriptFolder, this::reloadScripts);
+        scriptWatcher.start();
+        if("xml".equalsIgnoreCase(System.getProperty(WpsBridge.BRIDGE_PROPERTY))) {
+            bridge = new XmlWpsBridge(wpsServer);
+        }
+        else {
+            bridge = new DirectWpsBridge(wpsServer);
+        }
+        LOGGER.info("Wps engine started.");
+    }
+
+    /**
+     * Unloads the process scripts and releases the engine resources.
+     */
+    public synchronized void stop(){
+        if(wpsServer == null){
+            return;
+        }
+        scriptWatcher.close();
+        scriptWatcher = null;
+        synchronized (scriptLock) {
+            scriptProcessMap.clear();
+        }
+        scriptPlugin.deactivate();
+        defaultExecutorService.shutdownNow();
+        callExecutorService.shutdownNow();
+        jobTaskMap.clear();
+        jobTableMap.clear();
+        operationCatalog = null;
+        descriptionCache = null;
+        bridge = null;
+        wpsServer = null;
+        scriptPlugin = null;
+        LOGGER.info("Wps engine stopped.");
+    }
+
+    /**
+     * Returns the wps server instance, used to build a bridge on it.
+     * @return The wps server, null if the engine is not started.
+     */
+    WpsServiceImpl getWpsServer(){
+        return wpsServer;
+    }
+
+    /**
+     * Calls a WPS operation on behalf of a session.
+     * @param context Context of the calling session.
+     * @param in Xml request.
+     * @return The Xml response.
+     */
+    public OutputStream callOperation(SessionContext context, InputStream in) throws Exception {
+        WpsServiceImpl server = wpsServer;
+        if(server == null){
+            throw new IllegalStateException("The wps engine is not started.");
+        }
+        return inContext(context, bridge -> server.callOperation(in));
+    }
+
+    /**
+     * Requests the capabilities of the engine on behalf of a session.
+     * @param context Context of the calling session, null for a call without session.
+     * @param getCapabilities GetCapabilities request.
+     * @return The capabilities.
+     * @throws Exception If the request fails.
+     */
+    public WPSCapabilitiesType getCapabilities(SessionContext context, GetCapabilitiesType getCapabilities)
+            throws Exception {
+        return inContext(context, bridge -> bridge.getCapabilities(getCapabilities));
+    }
+
+    /**
+     * Requests the description of processes on behalf of a session.
+     * @param context Context of the calling session, null for a call without session.
+     * @param describeProcess DescribeProcess request.
+     * @return The process descriptions.
+     * @throws Exception If the request fails.
+     */
+    public ProcessOfferings describeProcess(SessionContext context, DescribeProcess describeProcess)
+            throws Exception {
+        return inContext(context, bridge -> bridge.describeProcess(describeProcess));
+    }
+
+    /**
+     * Requests the execution of a process on behalf of a session.
+     * @param context Context of the calling session.
+     * @param execute Execute request.
+     * @return The StatusInfo of the job.
+     * @throws Exception If the request fails.
+     */
+    public StatusInfo execute(SessionContext context, ExecuteRequestType execute) throws Exception {
+        return inContext(context, executeCall(execute));
+    }
+
+    /**
+     * Returns the call requesting the execution of a process. The tasks submitted by the wps server during the call are
+     * registered as the tasks of the job, and share the recorder of the tables created by the job.
+     * @param execute Execute request.
+     * @return The call to the engine.
+     */
+    private BridgeCall<StatusInfo> executeCall(ExecuteRequestType execute) {
+        return bridge -> {
+            List<JobTask> taskList = new ArrayList<>();
+            TableRecorder recorder = new TableRecorder();
+            SUBMITTED_TASKS.set(taskList);
+            CURRENT_RECORDER.set(recorder);
+            StatusInfo statusInfo;
+            try {
+                statusInfo = bridge.execute(execute);
+            }
+            finally {
+                SUBMITTED_TASKS.remove();
+                CURRENT_RECORDER.remove();
+            }
+            List<JobTask> runningTasks = new ArrayList<>();
+            for(JobTask task : taskList){
+                if(!task.done.isDone()){
+                    runningTasks.add(task);
+                }
+            }
+            if(!runningTasks.isEmpty()) {
+                jobTaskMap.put(statusInfo.getJobID(), runningTasks);
+                jobTableMap.put(statusInfo.getJobID(), recorder);
+            }
+            return statusInfo;
+        };
+    }
+
+    /**
+     * Requests the status of a job on behalf of a session.
+     * @param context Context of the calling session.
+     * @param getStatus GetStatus request.
+     * @return The StatusInfo of the job.
+     * @throws Exception If the request fails.
+     */
+    public StatusInfo getStatus(SessionContext context, GetStatus getStatus) throws Exception {
+        return inContext(context, bridge -> bridge.getStatus(getStatus));
+    }
+
+    /**
+     * Requests the status of several jobs on behalf of a session, binding the session context once for all of them.
+     * @param context Context of the calling session.
+     * @param getStatusList GetStatus requests.
+     * @return The StatusInfo of the jobs in the order of the requests, null for the jobs which status can not be
+     * requested.
+     * @throws Exception If the engine can not be called.
+     */
+    public List<StatusInfo> getStatus(SessionContext context, List<GetStatus> getStatusList) throws Exception {
+        return inContext(context, statusCall(getStatusList));
+    }
+
+    /**
+     * Returns the call requesting the status of several jobs, each job being requested separately.
+     * @param getStatusList GetStatus requests.
+     * @return The call to the engine.
+     */
+    private BridgeCall<List<StatusInfo>> statusCall(List<GetStatus> getStatusList) {
+        return bridge -> {
+            List<StatusInfo> statusInfoList = new ArrayList<>();
+            for(GetStatus getStatus : getStatusList){
+                StatusInfo statusInfo = null;
+                try {
+                    statusInfo = bridge.getStatus(getStatus);
+                } catch (Exception e) {
+                    LOGGER.error("Unable to get the status of the job "+getStatus.getJobID()+".\n"+e.getMessage());
+                }
+                statusInfoList.add(statusInfo);
+            }
+            return statusInfoList;
+        };
+    }
+
+    /**
+     * Requests the result of a job on behalf of a session.
+     * @param context Context of the calling session.
+     * @param getResult GetResult request.
+     * @return The result of the job.
+     * @throws Exception If the request fails.
+     */
+    public Result getResult(SessionContext context, GetResult getResult) throws Exception {
+        jobTaskMap.remove(getResult.getJobID());
+        jobTableMap.remove(getResult.getJobID());
+        return inContext(context, bridge -> bridge.getResult(getResult));
+    }
+
+    /**
+     * Requests the execution of a process on behalf of a session without blocking the calling thread.
+     * @param context Context of the calling session.
+     * @param execute Execute request.
+     * @return A future completed with the StatusInfo of the job.
+     */
+    public CompletableFuture<StatusInfo> executeAsync(SessionContext context, ExecuteRequestType execute) {
+        return inContextAsync(context, executeCall(execute));
+    }
+
+    /**
+     * Requests the status of several jobs on behalf of a session without blocking the calling thread.
+     * @param context Context of the calling session.
+     * @param getStatusList GetStatus requests.
+     * @return A future completed with the StatusInfo of the jobs in the order of the requests, null for the jobs which
+     * status can not be requested.
+     */
+    public CompletableFuture<List<StatusInfo>> getStatusAsync(SessionContext context, List<GetStatus> getStatusList) {
+        return inContextAsync(context, statusCall(getStatusList));
+    }
+
+    /**
+     * Requests the result of a job on behalf of a session without blocking the calling thread.
+     * @param context Context of the calling session.
+     * @param getResult GetResult request.
+     * @return A future completed with the result of the job.
+     */
+    public CompletableFuture<Result> getResultAsync(SessionContext context, GetResult getResult) {
+        jobTaskMap.remove(getResult.getJobID());
+        jobTableMap.remove(getResult.getJobID());
+        return inContextAsync(context, bridge -> bridge.getResult(getResult));
+    }
+
+    /**
+     * Dismisses a job on behalf of a session and cancels its tasks.
+     * @param context Context of the calling session.
+     * @param dismiss Dismiss request.
+     * @return The StatusInfo of the dismissed job.
+     * @throws Exception If the request fails.
+     */
+    public StatusInfo dismiss(SessionContext context, Dismiss dismiss) throws Exception {
+        return inContext(context, dismissCall(dismiss));
+    }
+
+    /**
+     * Dismisses a job on behalf of a session and cancels its tasks without blocking the calling thread.
+     * @param context Context of the calling session.
+     * @param dismiss Dismiss request.
+     * @return A future completed with the StatusInfo of the dismissed job once its tasks are stopped.
+     */
+    public CompletableFuture<StatusInfo> dismissAsync(SessionContext context, Dismiss dismiss) {
+        return inContextAsync(context, dismissCall(dismiss));
+    }
+
+    /**
+     * Returns the call dismissing a job. Once the wps server has dismissed the job, the queued tasks of the job are
+     * dropped and the running ones are interrupted. The call waits for the interrupted tasks to stop, so the executor
+     * of the session is free again once it returns, unless a process does not handle the interruption. The tables
+     * created by the job are then dropped.
+     * @param dismiss Dismiss request.
+     * @return The call to the engine.
+     */
+    private BridgeCall<StatusInfo> dismissCall(Dismiss dismiss) {
+        return bridge -> {
+            try {
+                return bridge.dismiss(dismiss);
+            }
+            finally {
+                List<JobTask> taskList = jobTaskMap.remove(dismiss.getJobID());
+                if(taskList != null) {
+                    stopTasks(dismiss.getJobID(), taskList);
+                }
+                TableRecorder recorder = jobTableMap.remove(dismiss.getJobID());
+                if(recorder != null) {
+                    dropTables(dismiss.getJobID(), recorder.getTables());
+                }
+            }
+        };
+    }
+
+    /**
+     * Cancels the tasks of a job and waits for them to stop.
+     * @param jobId Identifier of the job.
+     * @param taskList Tasks of the job.
+     */
+    private static void stopTasks(String jobId, List<JobTask> taskList) {
+        CompletableFuture[] doneArray = new CompletableFuture[taskList.size()];
+        for(int i = 0; i < taskList.size(); i++){
+            doneArray[i] = taskList.get(i).cancel();
+        }
+        try {
+            CompletableFuture.allOf(doneArray).get(DISMISS_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("The tasks of the job "+jobId+" are still running after their interruption.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Unable to stop the tasks of the job "+jobId+".\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the tables created by a dismissed job from the database of the calling session.
+     * @param jobId Identifier of the job.
+     * @param tableList Locations of the tables created by the job.
+     */
+    private void dropTables(String jobId, List<String> tableList) {
+        if(tableList.isEmpty()){
+            return;
+        }
+        try (Connection connection = currentDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            for(String table : tableList){
+                statement.execute("DROP TABLE IF EXISTS "+table);
+                LOGGER.info("Table "+table+" of the dismissed job "+jobId+" dropped.");
+            }
+        } catch (SQLException e) {
+            LOGGER.error("Unable to drop the tables of the dismissed job "+jobId+".\n"+e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a call to the engine with the session context bound to a thread of the call executor.
+     * @param context Context of the calling session.
+     * @param call Call to run.
+     * @return A future completed with the response of the call.
+     */
+    private <T> CompletableFuture<T> inContextAsync(SessionContext context, BridgeCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            callExecutorService.execute(() -> {
+                try {
+                    future.complete(inContext(context, call));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            //The engine is stopped or not started
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a call to the engine with the session context bound to the current thread.
+     * @param context Context of the calling session, null for a call without session.
+     * @param call Call to run.
+     * @return The response of the call.
+     * @throws Exception If the call fails.
+     */
+    private <T> T inContext(SessionContext context, BridgeCall<T> call) throws Exception {
+        WpsBridge currentBridge = bridge;
+        if(currentBridge == null){
+            throw new IllegalStateException("The wps engine is not started.");
+        }
+        SessionContext previous = CURRENT_CONTEXT.get();
+        CURRENT_CONTEXT.set(context);
+        try {
+            return call.call(currentBridge);
+        }
+        finally {
+            restoreContext(previous);
+        }
+    }
+
+    /**
+     * Returns the catalog of the operations offered by the engine. The catalog is built on the first call and kept
+     * until the scripts change, each new catalog having a new version.
+     * @return The operation catalog, empty if the operations can not be requested.
+     */
+    public OperationCatalog getOperationCatalog(){
+        OperationCatalog catalog = operationCatalog;
+        if(catalog != null){
+            return catalog;
+        }
+        synchronized (this) {
+            if(operationCatalog == null) {
+                try {
+                    operationCatalog = new OperationCatalog(catalogVersion.incrementAndGet(), requestOperations());
+                } catch (Exception e) {
+                    LOGGER.error("Unable to get the list of the operations.\n"+e.getMessage());
+                    return OperationCatalog.EMPTY;
+                }
+            }
+            return operationCatalog;
+        }
+    }
+
+    /**
+     * Builds a new version of the operation catalog and publishes it. The lookups keep the current catalog until the
+     * new one is published. Should be called each time the processes change.
+     */
+    public void invalidateOperationCatalog(){
+        publishOperationCatalog(null);
+    }
+
+    /**
+     * Compiles again the changed scripts, unloads the deleted ones and publishes the new catalog. Only the descriptions
+     * of the operations of these scripts are dropped.
+     * @param changed Scripts created or modified.
+     * @param deleted Scripts deleted.
+     */
+    void reloadScripts(Set<File> changed, Set<File> deleted){
+        Set<String> changedIds = new HashSet<>();
+        synchronized (scriptLock) {
+            if(wpsServer == null){
+                return;
+            }
+            for(File script : deleted){
+                changedIds.addAll(unloadScript(script));
+            }
+            for(File script : changed){
+                changedIds.addAll(unloadScript(script));
+                changedIds.addAll(loadScript(script));
+            }
+        }
+        LOGGER.info("Scripts reloaded : "+changed.size()+" changed, "+deleted.size()+" deleted.");
+        publishOperationCatalog(changedIds);
+    }
+
+    /**
+     * Compiles a script and adds its processes to the wps server. Should be called with the script lock held.
+     * @param script Script file.
+     * @return The identifiers of the added processes.
+     */
+    private List<String> loadScript(File script){
+        List<String> idList = new ArrayList<>();
+        List<URI> uriList = new ArrayList<>();
+        try {
+            List<ProcessIdentifier> processList = wpsServer.addProcess(script);
+            if(processList != null) {
+                for (ProcessIdentifier process : processList) {
+                    String id = process.getProcessDescriptionType().getIdentifier().getValue();
+                    idList.add(id);
+                    uriList.add(URI.create(id));
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to load the script '"+script.getName()+"'.\n"+e.getMessage());
+        }
+        scriptProcessMap.put(script, uriList);
+        return idList;
+    }
+
+    /**
+     * Removes the processes of a script from the wps server. Should be called with the script lock held.
+     * @param script Script file.
+     * @return The identifiers of the removed processes.
+     */
+    private List<String> unloadScript(File script){
+        List<String> idList = new ArrayList<>();
+        List<URI> uriList = scriptProcessMap.remove(script);
+        if(uriList != null) {
+            for (URI uri : uriList) {
+                wpsServer.removeProcess(uri);
+                idList.add(uri.toString());
+            }
+        }
+        return idList;
+    }
+
+    /**
+     * Builds a new version of the operation catalog and publishes it with the descriptions of the unchanged operations.
+     * @param changedIds Identifiers of the changed operations, null if all the operations may have changed.
+     */
+    private void publishOperationCatalog(Set<String> changedIds){
+        OperationCatalog catalog;
+        try {
+            catalog = new OperationCatalog(catalogVersion.incrementAndGet(), requestOperations());
+        } catch (Exception e) {
+            LOGGER.error("Unable to get the list of the operations.\n"+e.getMessage());
+            //The catalog is built again on the next lookup
+            operationCatalog = null;
+            return;
+        }
+        DescriptionCache cache = new DescriptionCache(catalog.getVersion());
+        DescriptionCache previous = descriptionCache;
+        if(changedIds != null && previous != null){
+            for(Map.Entry<String, Operation> entry : previous.operations.entrySet()){
+                if(!changedIds.contains(entry.getKey()) && catalog.hasOperation(entry.getKey())){
+                    cache.operations.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        synchronized (this) {
+            descriptionCache = cache;
+            operationCatalog = catalog;
+        }
+    }
+
+    /**
+     * Returns the description of the operation with the given id, with its inputs and outputs. The description is
+     * requested once per catalog version and shared between the sessions, so the returned operation should not be
+     * modified.
+     * @param id Identifier of the operation.
+     * @return The described operation, or null if the catalog does not contain the operation or if its description
+     * can not be requested.
+     */
+    public Operation getOperationDescription(String id){
+        OperationCatalog catalog = getOperationCatalog();
+        Operation summary = catalog.getOperation(id);
+        if(summary == null){
+            return null;
+        }
+        DescriptionCache cache = descriptionCache;
+        if(cache == null || cache.version < catalog.getVersion()){
+            cache = new DescriptionCache(catalog.getVersion());
+            descriptionCache = cache;
+        }
+        else if(cache.version > catalog.getVersion()){
+            //A new catalog has been published since the lookup, the description is not kept
+            cache = new DescriptionCache(catalog.getVersion());
+        }
+        Operation operation = cache.operations.get(id);
+        if(operation == null){
+            try {
+                operation = WpsModelConverter.toDescribedOperation(summary, requestDescription(id));
+            } catch (Exception e) {
+                LOGGER.error("Unable to get the Operation with the given id.\n"+e.getMessage());
+                //The summary has no inputs and outputs, so it is not given as a description
+                return null;
+            }
+            Operation previous = cache.operations.putIfAbsent(id, operation);
+            if(previous != null){
+                operation = previous;
+            }
+        }
+        return operation;
+    }
+
+    /**
+     * Requests the description of a process to the wps server.
+     * @param id Identifier of the process.
+     * @return The description of the process.
+     * @throws Exception If the description can not be requested or read.
+     */
+    private ProcessOfferings requestDescription(String id) throws Exception {
+        DescribeProcess describeProcess = new DescribeProcess();
+        describeProcess.setLang("en");
+        CodeType codeType = new CodeType();
+        codeType.setValue(id);
+        describeProcess.getIdentifier().add(codeType);
+        return describeProcess(null, describeProcess);
+    }
+
+    /**
+     * Requests the summary of all the processes to the wps server.
+     * @return The list of the operations.
+     * @throws Exception If the capabilities can not be requested or read.
+     */
+    private List<Operation> requestOperations() throws Exception {
+        GetCapabilitiesType getCapabilitiesType = new GetCapabilitiesType();
+        GetCapabilitiesType.AcceptLanguages acceptLanguages = new GetCapabilitiesType.AcceptLanguages();
+        acceptLanguages.getLanguage().add("*");
+        getCapabilitiesType.setAcceptLanguages(acceptLanguages);
+        AcceptVersionsType acceptVersionsType = new AcceptVersionsType();
+        acceptVersionsType.getVersion().add("2.0.0");
+        getCapabilitiesType.setAcceptVersions(acceptVersionsType);
+        SectionsType sectionsType = new SectionsType();
+        sectionsType.getSection().add("All");
+        getCapabilitiesType.setSections(sectionsType);
+        return WpsModelConverter.toOperations(getCapabilities(null, getCapabilitiesType));
+    }
+
+    /**
+     * Sets back the context which was bound to the current thread.
+     * @param previous Context to restore, can be null.
+     */
+    private static void restoreContext(SessionContext previous){
+        if(previous == null){
+            CURRENT_CONTEXT.remove();
+        }
+        else{
+            CURRENT_CONTEXT.set(previous);
+        }
+    }
+
+    /**
+     * Returns the DataSource of the session bound to the current thread or the engine one.
+     * @return A DataSource.
+     */
+    private DataSource currentDataSource() throws SQLException {
+        SessionContext context = CURRENT_CONTEXT.get();
+        DataSource dataSource = context != null ? context.getDataSource() : defaultDataSource;
+        if(dataSource == null){
+            throw new SQLException("No database available for the wps engine.");
+        }
+        return dataSource;
+    }
+
+    /**
+     * Call to the wps server through the bridge.
+     */
+    private interface BridgeCall<T> {
+        T call(WpsBridge bridge) throws Exception;
+    }
+
+    /**
+     * Described operations of one catalog version.
+     */
+    private static class DescriptionCache {
+        private final long version;
+        private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+        private DescriptionCache(long version){
+            this.version = version;
+        }
+    }
+
+    /**
+     * Task of a job submitted by the wps server, run with the context of the submitting session and the table recorder
+     * of its job. A task cancelled before its start is not run, a task cancelled while running has its thread
+     * interrupted.
+     */
+    private static class JobTask implements Runnable {
+        /** Context of the session which has submitted the task. */
+        private final SessionContext context;
+        /** Task of the wps server. */
+        private final Runnable command;
+        /** Recorder of the tables created by the job, null if the task does not belong to a job. */
+        private final TableRecorder recorder;
+        /** Future completed once the task has run or has been cancelled before its start. */
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        /** True if the task has been cancelled. */
+        private boolean cancelled = false;
+        /** Thread running the task, null if not running. */
+        private Thread runner;
+
+        private JobTask(SessionContext context, Runnable command, TableRecorder recorder){
+            this.context = context;
+            this.command = command;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if(cancelled){
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            SessionContext previous = CURRENT_CONTEXT.get();
+            TableRecorder previousRecorder = CURRENT_RECORDER.get();
+            CURRENT_CONTEXT.set(context);
+            CURRENT_RECORDER.set(recorder);
+            try {
+                command.run();
+            }
+            finally {
+                restoreContext(previous);
+                if(previousRecorder == null){
+                    CURRENT_RECORDER.remove();
+                }
+                else{
+                    CURRENT_RECORDER.set(previousRecorder);
+                }
+                synchronized (this) {
+                    runner = null;
+                    //The interruption of a cancelled task should not reach the next task of the thread
+                    Thread.interrupted();
+                }
+                done.complete(null);
+            }
+        }
+
+        /**
+         * Cancels the task.
+         * @return The future completed once the task is stopped.
+         */
+        private synchronized CompletableFuture<Void> cancel(){
+            if(!cancelled){
+                cancelled = true;
+                if(runner != null){
+                    runner.interrupt();
+                }
+                else{
+                    done.complete(null);
+                }
+            }
+            return done;
+        }
+    }
+
+    /**
+     * DataSource giving the connections of the session bound to the current thread. The connections given to the
+     * tasks of a job record the tables created by the job.
+     */
+    private class RoutingDataSource implements DataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recorded(currentDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recorded(currentDataSource().getConnection(username, password));
+        }
+
+        /**
+         * Wraps the connection with the table recorder of the job of the current thread, if any.
+         * @param connection Connection of the session.
+         * @return The connection to give to the wps server.
+         */
+        private Connection recorded(Connection connection) {
+            TableRecorder recorder = CURRENT_RECORDER.get();
+            return recorder != null ? recorder.wrap(connection) : connection;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if(iface.isInstance(this)){
+                return iface.cast(this);
+            }
+            return currentDataSource().unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || currentDataSource().isWrapperFor(iface);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return currentDataSource().getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            currentDataSource().setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            currentDataSource().setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return currentDataSource().getLoginTimeout();
+        }
+
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    /**
+     * ExecutorService running the jobs in the ExecutorService of the session bound to the submitting thread. The
+     * session context is bound to the thread running the job. The session ExecutorServices are owned by the sessions,
+     * so this executor can not be shut down.
+     */
+    private class RoutingExecutorService extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            SessionContext context = CURRENT_CONTEXT.get();
+            ExecutorService executorService = context != null ? context.getExecutorService() : defaultExecutorService;
+            JobTask task = new JobTask(context, command, CURRENT_RECORDER.get());
+            List<JobTask> taskList = SUBMITTED_TASKS.get();
+            if(taskList != null){
+                taskList.add(task);
+            }
+            executorService.execute(task);
+        }
+
+        @Override
+        public void shutdown() {
+            //The executors are owned by the sessions
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
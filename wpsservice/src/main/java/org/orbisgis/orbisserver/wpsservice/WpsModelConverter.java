@@ -0,0 +1,267 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.ows._2.*;
+import net.opengis.wps._2_0.*;
+import org.orbisgis.orbisserver.api.model.Input;
+import org.orbisgis.orbisserver.api.model.Operation;
+import org.orbisgis.orbisserver.api.model.Output;
+import org.orbisgis.orbisserver.api.model.Result;
+import org.orbisgis.orbisserver.api.model.StatusInfo;
+import org.orbisgis.orbiswps.service.model.*;
+import org.orbisgis.orbiswps.service.model.Enumeration;
+
+import java.util.*;
+
+/**
+ * Conversion of the objects of the WPS engine into the model of the server.
+ *
+ * @author Sylvain PALOMINOS
+ */
+final class WpsModelConverter {
+
+    private WpsModelConverter(){}
+
+    /**
+     * Converts the capabilities of the WPS engine into the list of the operation summaries.
+     * @param wpsCapabilitiesType Capabilities of the WPS engine.
+     * @return The list of the operations, without inputs and outputs.
+     */
+    static List<Operation> toOperations(WPSCapabilitiesType wpsCapabilitiesType){
+        List<Operation> operationList = new ArrayList<>();
+        List<KeywordsType> keywordsType = null;
+        for(ProcessSummaryType process : wpsCapabilitiesType.getContents().getProcessSummary()){
+            Operation op = new Operation(process.getTitle().get(0).getValue(), process.getIdentifier().getValue());
+            if(process.getAbstract()!=null && !process.getAbstract().isEmpty()) {
+                op.setAbstr(process.getAbstract().get(0).getValue());
+                keywordsType = process.getKeywords();
+                for(KeywordsType keyword : keywordsType){
+                    for (LanguageStringType language : keyword.getKeyword()) {
+                        if(language.getLang().equals("en")) {
+                            op.getKeyWord().add(language.getValue());
+                        }
+                    }
+                }
+            }
+            operationList.add(op);
+        }
+        return operationList;
+    }
+
+    /**
+     * Converts the description of a process into an operation with its inputs and outputs. The lists and the input
+     * attributes of the returned operation are unmodifiable, so it can be shared between threads.
+     * @param summary Summary of the operation from the catalog.
+     * @param processOfferings Description of the process.
+     * @return The described operation.
+     */
+    static Operation toDescribedOperation(Operation summary, ProcessOfferings processOfferings){
+        Operation operation = new Operation(summary.getTitle(), summary.getId());
+        operation.setAbstr(summary.getAbstr());
+        if(processOfferings.getProcessOffering() != null && !processOfferings.getProcessOffering().isEmpty()){
+            for(InputDescriptionType idt : processOfferings.getProcessOffering().get(0).getProcess().getInput()){
+                String title = idt.getTitle().get(0).getValue();
+                String name = idt.getDataDescription().getValue().getClass().getSimpleName();
+                String type = null;
+                Boolean optional = (idt.getMinOccurs().intValue()==0);
+                Map<String, Object> attributeMap = new HashMap<>();
+                DataDescriptionType dataDescriptionType = idt.getDataDescription().getValue();
+                if(dataDescriptionType instanceof LiteralDataType){
+                    if(name.equalsIgnoreCase("LiteralDataType")) {
+                        LiteralDataType literalData = (LiteralDataType) idt.getDataDescription().getValue();
+                        for (LiteralDataType.LiteralDataDomain ldd : literalData.getLiteralDataDomain()) {
+                            if (ldd.isDefault()) {
+                                String dataType = ldd.getDataType().getValue();
+                                if (dataType.equalsIgnoreCase("string")) {
+                                    type = "string";
+                                }
+                                if (dataType.equalsIgnoreCase("boolean")) {
+                                    type = "boolean";
+                                    attributeMap.put("value", "false");
+                                    if (ldd.isSetDefaultValue()) {
+                                        attributeMap.put("value", ldd.getDefaultValue().getValue());
+                                    }
+                                }
+                                if (dataType.equalsIgnoreCase("double") || dataType.equalsIgnoreCase("integer") ||
+                                        dataType.equalsIgnoreCase("float") || dataType.equalsIgnoreCase("short") ||
+                                        dataType.equalsIgnoreCase("byte") || dataType.equalsIgnoreCase("unsigned_byte") ||
+                                        dataType.equalsIgnoreCase("long")) {
+                                    if (dataType.equalsIgnoreCase("double") || dataType.equalsIgnoreCase("float")) {
+                                        attributeMap.put("spacing", "0.1");
+                                    }
+                                    type = "number";
+                                    if (ldd.isSetDefaultValue()) {
+                                        attributeMap.put("value", ldd.getDefaultValue().getValue());
+                                    }
+                                    if (ldd.isSetAllowedValues()) {
+                                        for (Object valueOrRange : ldd.getAllowedValues().getValueOrRange()) {
+                                            if (valueOrRange instanceof ValueType) {
+                                                ValueType value = (ValueType) valueOrRange;
+                                                attributeMap.put("value", value.getValue());
+                                            }
+                                            if (valueOrRange instanceof RangeType) {
+                                                RangeType range = (RangeType) valueOrRange;
+                                                attributeMap.put("min", range.getMinimumValue().getValue());
+                                                attributeMap.put("max", range.getMaximumValue().getValue());
+                                                attributeMap.put("spacing", range.getSpacing().getValue());
+                                            }
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                if(dataDescriptionType instanceof JDBCTable){
+                    attributeMap.put("value", "Table name");
+                    JDBCTable table = (JDBCTable)dataDescriptionType;
+                    if(table.getDefaultValue() != null && !table.getDefaultValue().isEmpty()){
+                        attributeMap.put("value", table.getDefaultValue());
+                    }
+                }
+                if(dataDescriptionType instanceof JDBCColumn){
+                    attributeMap.put("value", "Columns name");
+                    JDBCColumn column = (JDBCColumn)dataDescriptionType;
+                    if(column.getDefaultValues() != null && column.getDefaultValues().length>0){
+                        StringBuilder str = new StringBuilder();
+                        for(String val : column.getDefaultValues()){
+                            if(str.length() > 0){
+                                str.append(",");
+                            }
+                            str.append(val);
+                        }
+                        attributeMap.put("value", str.toString());
+                    }
+                }
+                if(dataDescriptionType instanceof JDBCValue){
+                    attributeMap.put("value", "Values name");
+                    JDBCValue value = (JDBCValue)dataDescriptionType;
+                    if(value.getDefaultValues() != null && value.getDefaultValues().length>0){
+                        StringBuilder str = new StringBuilder();
+                        for(String val : value.getDefaultValues()){
+                            if(str.length() > 0){
+                                str.append(",");
+                            }
+                            str.append(val);
+                        }
+                        attributeMap.put("value", str.toString());
+                    }
+                }
+                if(dataDescriptionType instanceof Enumeration){
+                    Enumeration enumeration = (Enumeration)dataDescriptionType;
+                    attributeMap.put("multiSelection", enumeration.isMultiSelection());
+                    attributeMap.put("valueList", enumeration.getValues());
+                    List<String> nameList = new ArrayList<>(Arrays.asList(enumeration.getValuesNames()));
+                    attributeMap.put("nameList", nameList);
+                }
+                String identifier = idt.getIdentifier().getValue();
+                Input input = new Input(title, name, identifier, type,
+                        Collections.unmodifiableMap(attributeMap), optional);
+                operation.addInput(input);
+            }
+            for(OutputDescriptionType odt : processOfferings.getProcessOffering().get(0).getProcess().getOutput()){
+                String title = odt.getTitle().get(0).getValue();
+                String identifier = odt.getIdentifier().getValue();
+                Output output = new Output(title, identifier);
+                operation.addOutput(output);
+            }
+        }
+        operation.setInputList(Collections.unmodifiableList(operation.getInputList()));
+        operation.setOutputList(Collections.unmodifiableList(operation.getOutputList()));
+        operation.setKeyWord(Collections.unmodifiableList(new ArrayList<>(summary.getKeyWord())));
+        return operation;
+    }
+
+    /**
+     * Converts the StatusInfo of the WPS engine into the StatusInfo of the server.
+     * @param info StatusInfo of the WPS engine.
+     * @return The StatusInfo of the server, without the process identifier and title.
+     */
+    static StatusInfo toStatusInfo(net.opengis.wps._2_0.StatusInfo info){
+        StatusInfo statusInfo = new StatusInfo(info.getJobID());
+        statusInfo.setStatus(info.getStatus());
+        if(info.getPercentCompleted() != null) {
+            statusInfo.setPercentCompleted(info.getPercentCompleted());
+        }
+        statusInfo.setEstimatedCompletion(info.getEstimatedCompletion());
+        statusInfo.setNextPoll(info.getNextPoll());
+        if(info.getNextPoll() != null) {
+            statusInfo.setNextRefreshMillis(info.getNextPoll().toGregorianCalendar().getTime().getTime());
+        }
+        else{
+            statusInfo.setNextRefreshMillis(-1);
+        }
+        return statusInfo;
+    }
+
+    /**
+     * Converts the Result of the WPS engine into the Result of the server.
+     * @param result Result of the WPS engine.
+     * @param operation Described operation of the job, used for the output titles. Can be null.
+     * @return The Result of the server.
+     */
+    static Result toResult(net.opengis.wps._2_0.Result result, Operation operation){
+        Result res = new Result(result.getJobID());
+        res.setExpirationDate(result.getExpirationDate());
+        List<Output> outputList = new ArrayList<>();
+        for(DataOutputType outData : result.getOutput()){
+            Output output = new Output(outData.getId());
+            if(operation != null) {
+                for (Output operationOutput : operation.getOutputList()) {
+                    if (operationOutput.getId().equalsIgnoreCase(outData.getId())){
+                        output.setTitle(operationOutput.getTitle());
+                    }
+                }
+            }
+            if(outData.isSetData()){
+                org.orbisgis.orbisserver.api.model.Data data = new org.orbisgis.orbisserver.api.model.Data();
+                data.setMimeType(outData.getData().getMimeType());
+                data.setContent(outData.getData().getContent());
+                output.setData(data);
+            }
+            else if(outData.isSetReference()) {
+                output.setReference(outData.getReference().getHref());
+            }
+            outputList.add(output);
+        }
+        res.setOutputList(outputList);
+        return res;
+    }
+}
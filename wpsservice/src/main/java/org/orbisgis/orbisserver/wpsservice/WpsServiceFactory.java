@@ -40,9 +40,11 @@ package org.orbisgis.orbisserver.wpsservice;
 
 import org.apache.felix.ipojo.annotations.*;
 import org.orbisgis.orbisserver.api.BaseServer;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
 import org.orbisgis.orbisserver.api.service.Service;
 import org.orbisgis.orbisserver.api.service.ServiceFactory;
 
+import java.io.File;
 import java.util.Map;
 
 /**
@@ -59,12 +61,13 @@ public class WpsServiceFactory implements ServiceFactory {
     @Requires
     private BaseServer baseServer;
 
+    /** Wps engine shared by all the services created by the factory. */
+    private WpsEngine wpsEngine = new WpsEngine(new File("workspace", "wps_engine"));
+
     @Override
     public Service createService(Map<String, Object> properties) {
-        ServiceImpl wpsService = new ServiceImpl();
+        ServiceImpl wpsService = new ServiceImpl(wpsEngine);
         wpsService.start(properties);
-        //initiate the wpsService with a first request
-        wpsService.getAllOperation();
         return wpsService;
     }
 
@@ -73,12 +76,19 @@ public class WpsServiceFactory implements ServiceFactory {
         return ServiceImpl.class;
     }
 
+    @Override
+    public OperationCatalog getOperationCatalog() {
+        return wpsEngine.getOperationCatalog();
+    }
+
     @Validate
     public void start(){
+        wpsEngine.start();
         baseServer.registerServiceFactory(this);
     }
 
     @Invalidate
     public void stop(){
+        wpsEngine.stop();
     }
 }
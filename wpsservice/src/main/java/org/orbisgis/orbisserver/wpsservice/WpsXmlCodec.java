@@ -0,0 +1,224 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.wps._2_0.DataOutputType;
+import net.opengis.wps._2_0.Result;
+import org.orbisgis.orbiswps.service.model.*;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reading and writing of the WPS documents.
+ *
+ * The JAXB marshallers and unmarshallers are costly to create and not thread safe, so each thread keeps its own
+ * instances, created on its first use. The documents are written without indentation and read with a StAX reader, and
+ * the Result documents are read output by output.
+ *
+ * @author Sylvain PALOMINOS
+ */
+final class WpsXmlCodec {
+
+    /** Marshaller of the current thread. */
+    private static final ThreadLocal<Marshaller> MARSHALLER = ThreadLocal.withInitial(() -> {
+        try {
+            Marshaller marshaller = JaxbContainer.JAXBCONTEXT.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+            return marshaller;
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Unable to create the JAXB marshaller.", e);
+        }
+    });
+    /** Unmarshaller of the current thread. */
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLER = ThreadLocal.withInitial(() -> {
+        try {
+            return JaxbContainer.JAXBCONTEXT.createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Unable to create the JAXB unmarshaller.", e);
+        }
+    });
+    /** Factory of the StAX readers, thread safe once configured. */
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    private WpsXmlCodec(){}
+
+    /**
+     * Writes a JAXB object as a compact XML document.
+     * @param object Object to write.
+     * @param out Stream receiving the document.
+     * @throws JAXBException If the object can not be marshalled.
+     */
+    static void write(Object object, OutputStream out) throws JAXBException {
+        MARSHALLER.get().marshal(object, out);
+    }
+
+    /**
+     * Writes a JAXB object as a compact XML document and returns a stream over it, without copying the document.
+     * @param object Object to write.
+     * @return A stream reading the document.
+     * @throws JAXBException If the object can not be marshalled.
+     */
+    static InputStream toInputStream(Object object) throws JAXBException {
+        DocumentBuffer buffer = new DocumentBuffer();
+        write(object, buffer);
+        return buffer.toInputStream();
+    }
+
+    /**
+     * Returns a stream over the content of a buffer filled by the engine, without copying it. The buffer gives its
+     * internal array to the stream it writes to, so this array is read in place.
+     * @param buffer Buffer holding a document.
+     * @return A stream reading the document.
+     * @throws IOException If the buffer can not be read.
+     */
+    static InputStream contentStream(ByteArrayOutputStream buffer) throws IOException {
+        BufferReader reader = new BufferReader();
+        buffer.writeTo(reader);
+        return reader.in;
+    }
+
+    /**
+     * Reads a XML document with a StAX reader.
+     * @param in Stream of the document.
+     * @return The unmarshalled object.
+     * @throws JAXBException If the document can not be unmarshalled.
+     * @throws XMLStreamException If the document is not well formed.
+     */
+    static Object read(InputStream in) throws JAXBException, XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            return UNMARSHALLER.get().unmarshal(reader);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads a Result document. The outputs are unmarshalled one by one while the reader goes through the document, so
+     * the whole document is never held as a JAXB tree.
+     * @param in Stream of the document.
+     * @return The Result.
+     * @throws JAXBException If an output can not be unmarshalled.
+     * @throws XMLStreamException If the document is not well formed.
+     */
+    static Result readResult(InputStream in) throws JAXBException, XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            Unmarshaller unmarshaller = UNMARSHALLER.get();
+            Result result = new Result();
+            int depth = 0;
+            while(reader.hasNext()){
+                int event = reader.getEventType();
+                if(event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    //The children of the Result element are at the second level
+                    if(depth == 2) {
+                        String name = reader.getLocalName();
+                        if ("Output".equals(name)) {
+                            //The unmarshaller leaves the reader after the end of the element
+                            result.getOutput().add(unmarshaller.unmarshal(reader, DataOutputType.class).getValue());
+                            depth--;
+                            continue;
+                        } else if ("JobID".equals(name)) {
+                            result.setJobID(reader.getElementText());
+                            depth--;
+                        } else if ("ExpirationDate".equals(name)) {
+                            result.setExpirationDate(DatatypeFactory.newInstance()
+                                    .newXMLGregorianCalendar(reader.getElementText().trim()));
+                            depth--;
+                        }
+                    }
+                }
+                else if(event == XMLStreamConstants.END_ELEMENT){
+                    depth--;
+                }
+                reader.next();
+            }
+            return result;
+        } catch (DatatypeConfigurationException e) {
+            throw new XMLStreamException("Unable to read the expiration date of the result.", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream giving a stream over its content without copying it.
+     */
+    private static class DocumentBuffer extends ByteArrayOutputStream {
+        private InputStream toInputStream(){
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+
+    /**
+     * OutputStream keeping a stream over the array given by a ByteArrayOutputStream, written in one call.
+     */
+    private static class BufferReader extends OutputStream {
+        private InputStream in = new ByteArrayInputStream(new byte[0]);
+
+        @Override
+        public void write(int b) {
+            throw new UnsupportedOperationException("The buffer should be written in one call.");
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            in = new ByteArrayInputStream(b, off, len);
+        }
+    }
+}
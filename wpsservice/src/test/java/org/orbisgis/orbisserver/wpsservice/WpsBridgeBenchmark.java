@@ -0,0 +1,144 @@
+/*
+ * OrbisServer is an OSGI web application to expose OGC services.
+ *
+ * OrbisServer is part of the OrbisGIS platform
+ *
+ * OrbisGIS is a java GIS application dedicated to research in GIScience.
+ * OrbisGIS is developed by the GIS group of the DECIDE team of the
+ * Lab-STICC CNRS laboratory, see <http://www.lab-sticc.fr/>.
+ *
+ * The GIS group of the DECIDE team is located at :
+ *
+ * Laboratoire Lab-STICC – CNRS UMR 6285
+ * Equipe DECIDE
+ * UNIVERSITÉ DE BRETAGNE-SUD
+ * Institut Universitaire de Technologie de Vannes
+ * 8, Rue Montaigne - BP 561 56017 Vannes Cedex
+ *
+ * OrbisServer is distributed under LGPL 3 license.
+ *
+ * Copyright (C) 2017 CNRS (Lab-STICC UMR CNRS 6285)
+ *
+ *
+ * OrbisServer is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * OrbisServer is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * OrbisServer. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For more information, please consult: <http://www.orbisgis.org/>
+ * or contact directly:
+ * info_at_ orbisgis.org
+ */
+package org.orbisgis.orbisserver.wpsservice;
+
+import net.opengis.ows._2.CodeType;
+import net.opengis.wps._2_0.ExecuteRequestType;
+import net.opengis.wps._2_0.GetStatus;
+import net.opengis.wps._2_0.StatusInfo;
+import org.orbisgis.orbisserver.api.service.OperationCatalog;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Benchmark of the per call cost of the WpsBridge implementations : the same GetStatus request is sent through the
+ * XmlWpsBridge and through the DirectWpsBridge of one wps server, and the mean time of a call is printed for both.
+ *
+ * The bridges are measured alternately over several rounds after a warm up, so the JIT compilation and the garbage
+ * collection affect both in the same way. It can be run from the wpsservice module with :
+ * mvn test-compile org.codehaus.mojo:exec-maven-plugin:1.6.0:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.orbisgis.orbisserver.wpsservice.WpsBridgeBenchmark [-Dexec.args="rounds calls"]
+ *
+ * @author Sylvain PALOMINOS
+ */
+public class WpsBridgeBenchmark {
+
+    /** Default number of measured rounds. */
+    private static final int DEFAULT_ROUNDS = 5;
+    /** Default number of calls by round and by bridge. */
+    private static final int DEFAULT_CALLS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CALLS;
+        File engineFolder = Files.createTempDirectory("wps-bridge-benchmark").toFile();
+        WpsEngine engine = new WpsEngine(engineFolder);
+        engine.start();
+        try {
+            WpsBridge xmlBridge = new XmlWpsBridge(engine.getWpsServer());
+            WpsBridge directBridge = new DirectWpsBridge(engine.getWpsServer());
+            GetStatus getStatus = new GetStatus();
+            getStatus.setJobID(submitJob(engine, directBridge));
+
+            //Warm up
+            measure(xmlBridge, getStatus, calls);
+            measure(directBridge, getStatus, calls);
+
+            long xmlNanos = 0;
+            long directNanos = 0;
+            for(int i = 0; i < rounds; i++){
+                xmlNanos += measure(xmlBridge, getStatus, calls);
+                directNanos += measure(directBridge, getStatus, calls);
+            }
+            double xmlMicros = xmlNanos / 1000.0 / rounds / calls;
+            double directMicros = directNanos / 1000.0 / rounds / calls;
+            System.out.println(String.format(Locale.ROOT, "GetStatus, %d rounds of %d calls", rounds, calls));
+            System.out.println(String.format(Locale.ROOT, "  XmlWpsBridge    : %10.2f us/call", xmlMicros));
+            System.out.println(String.format(Locale.ROOT, "  DirectWpsBridge : %10.2f us/call", directMicros));
+            System.out.println(String.format(Locale.ROOT, "  Saving          : %10.2f us/call (%.1f %%)",
+                    xmlMicros - directMicros, (xmlMicros - directMicros) * 100 / xmlMicros));
+        }
+        finally {
+            engine.stop();
+        }
+    }
+
+    /**
+     * Executes the first process of the engine to get a job to request the status of. The job may fail as no input
+     * is given, its status can be requested anyway.
+     * @param engine Started wps engine.
+     * @param bridge Bridge used for the execution.
+     * @return The identifier of the job.
+     * @throws Exception If the process can not be executed.
+     */
+    private static String submitJob(WpsEngine engine, WpsBridge bridge) throws Exception {
+        OperationCatalog catalog = engine.getOperationCatalog();
+        if(catalog.getOperations().isEmpty()){
+            throw new IllegalStateException("The wps engine does not offer any process.");
+        }
+        ExecuteRequestType execute = new ExecuteRequestType();
+        CodeType codeType = new CodeType();
+        codeType.setValue(catalog.getOperations().get(0).getId());
+        execute.setIdentifier(codeType);
+        execute.setResponse("document");
+        execute.setMode("auto");
+        return bridge.execute(execute).getJobID();
+    }
+
+    /**
+     * Sends the GetStatus request several times through a bridge.
+     * @param bridge Bridge to measure.
+     * @param getStatus GetStatus request.
+     * @param calls Number of calls.
+     * @return The total time of the calls in nanoseconds.
+     * @throws Exception If a call fails.
+     */
+    private static long measure(WpsBridge bridge, GetStatus getStatus, int calls) throws Exception {
+        long start = System.nanoTime();
+        for(int i = 0; i < calls; i++){
+            StatusInfo statusInfo = bridge.getStatus(getStatus);
+            if(statusInfo == null){
+                throw new IllegalStateException("No status returned by "+bridge.getClass().getSimpleName()+".");
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}